@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.content.ContentValues;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.table.ActorTable;
+import org.andstatus.app.net.social.AActivity;
+import org.andstatus.app.net.social.ActivityType;
+import org.andstatus.app.net.social.Actor;
+import org.andstatus.app.origin.Origin;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.StringUtils;
+import org.andstatus.app.util.UriUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ActorIdsResolverTest {
+    private static final int ACTORS_MAX = 1000;
+    private MyContext myContext;
+    private MyAccount ma;
+
+    @Before
+    public void setUp() {
+        TestSuite.initializeWithData(this);
+        myContext = TestSuite.getMyContextForTest();
+        ma = demoData.getGnuSocialAccount();
+    }
+
+    @Test
+    public void resolvesTheSameIdsAsLookupOfEachActor() {
+        Origin origin = ma.getOrigin();
+        String webFingerId1 = "duplicated1-" + demoData.testRunUid + "@example.com";
+        long tempOidActorId1 = insertActor(origin, StringUtils.toTempOid(webFingerId1), webFingerId1);
+        long realOidActorId1 = insertActor(origin, "https://example.com/users/duplicated1-" + demoData.testRunUid,
+                webFingerId1);
+        String webFingerId2 = "duplicated2-" + demoData.testRunUid + "@example.com";
+        long tempOidActorId2 = insertActor(origin, StringUtils.toTempOid(webFingerId2), webFingerId2);
+        insertActor(origin, StringUtils.toTempOid("other-" + webFingerId2), webFingerId2);
+
+        List<Supplier<Actor>> suppliers = new ArrayList<>();
+        suppliers.add(() -> Actor.fromOid(origin, "").setWebFingerId(webFingerId1));
+        suppliers.add(() -> Actor.fromOid(origin, StringUtils.toTempOid(webFingerId1)).setWebFingerId(webFingerId1));
+        suppliers.add(() -> Actor.fromOid(origin, "").setWebFingerId(webFingerId2));
+        suppliers.add(() -> Actor.fromOid(origin, StringUtils.toTempOid(webFingerId2)).setWebFingerId(webFingerId2));
+        int specialCases = suppliers.size();
+        addDemoActors(origin, suppliers);
+
+        List<Actor> lookedUp = suppliers.stream().map(Supplier::get).collect(Collectors.toList());
+        lookedUp.forEach(Actor::lookupActorId);
+
+        List<Actor> resolved = suppliers.stream().map(Supplier::get).collect(Collectors.toList());
+        List<AActivity> activities = resolved.stream().map(actor -> {
+            AActivity activity = AActivity.from(ma.getActor(), ActivityType.UPDATE);
+            activity.setActor(actor);
+            return activity;
+        }).collect(Collectors.toList());
+        new ActorIdsResolver(myContext).resolve(activities);
+
+        assertEquals("Real oid should be preferred", realOidActorId1, resolved.get(0).actorId);
+        assertEquals("Real oid should be preferred", realOidActorId1, resolved.get(1).actorId);
+        assertNotEquals(tempOidActorId1, realOidActorId1);
+        assertEquals("The first actor should be found", tempOidActorId2, resolved.get(2).actorId);
+        assertEquals("The first actor should be found", tempOidActorId2, resolved.get(3).actorId);
+
+        long foundCount = resolved.stream().filter(actor -> actor.actorId != 0).count();
+        assertTrue("Found " + foundCount + " of " + resolved.size(), foundCount > specialCases);
+        for (int i = 0; i < resolved.size(); i++) {
+            Actor actor = resolved.get(i);
+            if (actor.actorId == 0) {
+                // As in DataUpdater, actors not found by the resolver are looked up one by one
+                actor.lookupActorId();
+            }
+            assertEquals("Actor " + i + ": " + lookedUp.get(i), lookedUp.get(i).actorId, actor.actorId);
+        }
+    }
+
+    /** Actors of the origin by real oid, by WebFinger ID, and by temp oid with WebFinger ID */
+    private void addDemoActors(Origin origin, List<Supplier<Actor>> suppliers) {
+        String sql = "SELECT " + ActorTable.ACTOR_OID + ", " + ActorTable.WEBFINGER_ID
+                + " FROM " + ActorTable.TABLE_NAME
+                + " WHERE " + ActorTable.ORIGIN_ID + "=" + origin.getId()
+                + " ORDER BY " + ActorTable._ID + " LIMIT " + ACTORS_MAX;
+        MyQuery.foldLeft(myContext, sql, suppliers, list -> cursor -> {
+            String oid = DbUtils.getString(cursor, ActorTable.ACTOR_OID);
+            String webFingerId = DbUtils.getString(cursor, ActorTable.WEBFINGER_ID);
+            if (UriUtils.isRealOid(oid)) {
+                list.add(() -> Actor.fromOid(origin, oid));
+            }
+            if (Actor.isWebFingerIdValid(webFingerId)) {
+                list.add(() -> Actor.fromOid(origin, "").setWebFingerId(webFingerId));
+                if (!UriUtils.isRealOid(oid)) {
+                    list.add(() -> Actor.fromOid(origin, oid).setWebFingerId(webFingerId));
+                }
+            }
+            return list;
+        });
+        MyLog.v(this, () -> "Actors to resolve: " + suppliers.size());
+    }
+
+    private long insertActor(Origin origin, String oid, String webFingerId) {
+        ContentValues values = new ContentValues();
+        values.put(ActorTable.ORIGIN_ID, origin.getId());
+        values.put(ActorTable.USER_ID, 0);
+        values.put(ActorTable.ACTOR_OID, oid);
+        values.put(ActorTable.USERNAME, webFingerId.substring(0, webFingerId.indexOf("@")));
+        values.put(ActorTable.WEBFINGER_ID, webFingerId);
+        values.put(ActorTable.INS_DATE, MyLog.uniqueCurrentTimeMS());
+        long actorId = MyProvider.insert(myContext, ActorTable.TABLE_NAME, values);
+        assertTrue("Actor " + webFingerId + " inserted", actorId > 0);
+        return actorId;
+    }
+}
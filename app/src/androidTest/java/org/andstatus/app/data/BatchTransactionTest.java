@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.table.ActorTable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchTransactionTest {
+    private MyContext myContext;
+
+    @Before
+    public void setUp() {
+        TestSuite.initializeWithData(this);
+        myContext = TestSuite.getMyContextForTest();
+    }
+
+    @Test
+    public void failedBatchIsRolledBack() {
+        long actorId1 = demoData.getPumpioConversationAccount().getActorId();
+        long actorId2 = demoData.getGnuSocialAccount().getActorId();
+        assertNotEquals(actorId1, actorId2);
+        String location1 = "Batch location 1 " + demoData.testRunUid;
+        String location2 = "Batch location 2 " + demoData.testRunUid;
+        String location1Stored = MyQuery.actorIdToStringColumnValue(ActorTable.LOCATION, actorId1);
+        String location2Stored = MyQuery.actorIdToStringColumnValue(ActorTable.LOCATION, actorId2);
+        long commitsBefore = BatchTransaction.getCommitsCount();
+        long rollbacksBefore = BatchTransaction.getRollbacksCount();
+
+        BatchTransaction batch = BatchTransaction.begin(myContext, "test");
+        try {
+            batch.execute(() -> setLocation(actorId1, location1));
+            BatchTransaction nested = BatchTransaction.begin(myContext, "nested");
+            try {
+                nested.execute(() -> {
+                    setLocation(actorId2, location2);
+                    throw new IllegalStateException("Test failure");
+                });
+                nested.setSuccessful();
+            } finally {
+                nested.end();
+            }
+            batch.setSuccessful();
+            fail("The failure should reach the outer batch");
+        } catch (IllegalStateException e) {
+            assertEquals("Test failure", e.getMessage());
+        } finally {
+            batch.end();
+        }
+
+        assertEquals(commitsBefore, BatchTransaction.getCommitsCount());
+        assertEquals(rollbacksBefore + 1, BatchTransaction.getRollbacksCount());
+        assertEquals(location1Stored, MyQuery.actorIdToStringColumnValue(ActorTable.LOCATION, actorId1));
+        assertEquals(location2Stored, MyQuery.actorIdToStringColumnValue(ActorTable.LOCATION, actorId2));
+
+        batch = BatchTransaction.begin(myContext, "test2");
+        try {
+            batch.execute(() -> setLocation(actorId1, location1));
+            BatchTransaction nested = BatchTransaction.begin(myContext, "nested2");
+            try {
+                nested.execute(() -> setLocation(actorId2, location2));
+                nested.setSuccessful();
+            } finally {
+                nested.end();
+            }
+            assertEquals("Nested batch shouldn't commit", commitsBefore, BatchTransaction.getCommitsCount());
+            batch.setSuccessful();
+        } finally {
+            batch.end();
+        }
+        assertEquals(commitsBefore + 1, BatchTransaction.getCommitsCount());
+        assertEquals(location1, MyQuery.actorIdToStringColumnValue(ActorTable.LOCATION, actorId1));
+        assertEquals(location2, MyQuery.actorIdToStringColumnValue(ActorTable.LOCATION, actorId2));
+    }
+
+    @Test
+    public void transactionBeginsOnFirstItem() {
+        long actorId = demoData.getPumpioConversationAccount().getActorId();
+        String location = "Batch location 3 " + demoData.testRunUid;
+        long commitsBefore = BatchTransaction.getCommitsCount();
+
+        BatchTransaction batch = BatchTransaction.beginOnFirstItem(myContext, "onFirstItem");
+        try {
+            assertFalse(myContext.getDatabase().inTransaction());
+            batch.execute(() -> {
+                assertTrue(myContext.getDatabase().inTransaction());
+                setLocation(actorId, location);
+            });
+            batch.setSuccessful();
+        } finally {
+            batch.end();
+        }
+        assertFalse(myContext.getDatabase().inTransaction());
+        assertEquals(commitsBefore + 1, BatchTransaction.getCommitsCount());
+        assertEquals(location, MyQuery.actorIdToStringColumnValue(ActorTable.LOCATION, actorId));
+
+        BatchTransaction.beginOnFirstItem(myContext, "noItems").end();
+        assertEquals("Batch without items shouldn't commit", commitsBefore + 1, BatchTransaction.getCommitsCount());
+    }
+
+    @Test
+    public void actionsRunAfterCommitOnly() {
+        AtomicInteger counter = new AtomicInteger();
+        BatchTransaction.afterCommit(counter::incrementAndGet);
+        assertEquals("Without a batch the action runs immediately", 1, counter.get());
+
+        BatchTransaction batch = BatchTransaction.begin(myContext, "afterCommit");
+        try {
+            batch.execute(() -> BatchTransaction.afterCommit(counter::incrementAndGet));
+            assertEquals("Action shouldn't run before commit", 1, counter.get());
+            batch.setSuccessful();
+        } finally {
+            batch.end();
+        }
+        assertEquals("Action should run after commit", 2, counter.get());
+
+        batch = BatchTransaction.begin(myContext, "afterRollback");
+        try {
+            batch.execute(() -> BatchTransaction.afterCommit(counter::incrementAndGet));
+        } finally {
+            batch.end();
+        }
+        assertEquals("Action should be dropped on rollback", 2, counter.get());
+    }
+
+    private void setLocation(long actorId, String location) {
+        MyProvider.update(myContext, ActorTable.TABLE_NAME, ActorTable.LOCATION + "='" + location + "'",
+                ActorTable._ID + "=" + actorId);
+    }
+}
@@ -117,8 +117,11 @@ public class DataPrunerTest {
         SharedPreferencesUtil.putLong(MyPreferences.KEY_MAXIMUM_SIZE_OF_ATTACHMENT_MB, newSizeOfAttachmentMb);
         SharedPreferencesUtil.putLong(MyPreferences.KEY_MAXIMUM_SIZE_OF_CACHED_MEDIA_MB, maximumSizeOfStoredMediaMb);
 
+        MediaFilesSize.reset();
+        long accountedSize1 = MediaFilesSize.getTotal(MyContextHolder.get());
         DataPruner dp = new DataPruner(MyContextHolder.get());
         long prunedCount1 = dp.pruneMedia();
+        long accountedSize2 = MediaFilesSize.getTotal(MyContextHolder.get());
         long dirSize2 = MyStorage.getMediaFilesSize();
         long prunedCount2 = dp.pruneMedia();
         long dirSize3 = MyStorage.getMediaFilesSize();
@@ -129,6 +132,8 @@ public class DataPrunerTest {
         assertNotEquals("Something should be pruned, dir size: " + dirSize1
                 + " max: " + maximumSizeOfStoredMediaMb + " MB", 0, prunedCount1);
         assertTrue("Dir size should decrease " + dirSize1 + " -> " + dirSize2, dirSize1 > dirSize2);
+        assertTrue("Accounted size should decrease " + accountedSize1 + " -> " + accountedSize2,
+                accountedSize1 > accountedSize2);
         assertEquals("Nothing should be pruned, " + dirSize2 + " -> " + dirSize3, 0, prunedCount2);
     }
 
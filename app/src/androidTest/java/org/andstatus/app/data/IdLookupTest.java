@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.table.ActivityTable;
+import org.andstatus.app.database.table.ActorTable;
+import org.andstatus.app.database.table.NoteTable;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.StopWatch;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Lookups by id with a bound parameter should return the same values, as lookups with the id in SQL did before */
+public class IdLookupTest {
+    private static final int ITERATIONS = 2000;
+    private static final int ROWS_MAX = 100;
+    private MyContext myContext;
+    private long noteId;
+
+    @Before
+    public void setUp() {
+        TestSuite.initializeWithData(this);
+        myContext = TestSuite.getMyContextForTest();
+        noteId = MyQuery.oidToId(OidEnum.NOTE_OID, demoData.getPumpioConversationOrigin().getId(),
+                demoData.conversationMentionsNoteOid);
+        assertTrue(noteId > 0);
+    }
+
+    @Test
+    public void noteLookupsAreTheSameAsBefore() {
+        List<Long> ids = idsOf(NoteTable.TABLE_NAME);
+        for (long id : ids) {
+            for (String columnName : new String[]{NoteTable.NOTE_OID, NoteTable.CONTENT, NoteTable.CONVERSATION_OID,
+                    NoteTable.URL}) {
+                assertEquals(columnName + " of note " + id, stringBefore(NoteTable.TABLE_NAME, columnName, id),
+                        MyQuery.noteIdToStringColumnValue(columnName, id));
+            }
+            for (String columnName : new String[]{NoteTable.ORIGIN_ID, NoteTable.CONVERSATION_ID,
+                    NoteTable.AUTHOR_ID, NoteTable.IN_REPLY_TO_NOTE_ID, NoteTable.UPDATED_DATE}) {
+                assertEquals(columnName + " of note " + id, longBefore(NoteTable.TABLE_NAME, columnName, id),
+                        MyQuery.noteIdToLongColumnValue(columnName, id));
+            }
+        }
+    }
+
+    @Test
+    public void actorLookupsAreTheSameAsBefore() {
+        List<Long> ids = idsOf(ActorTable.TABLE_NAME);
+        for (long id : ids) {
+            for (String columnName : new String[]{ActorTable.ACTOR_OID, ActorTable.USERNAME,
+                    ActorTable.WEBFINGER_ID}) {
+                assertEquals(columnName + " of actor " + id, stringBefore(ActorTable.TABLE_NAME, columnName, id),
+                        MyQuery.actorIdToStringColumnValue(columnName, id));
+            }
+            for (String columnName : new String[]{ActorTable.ORIGIN_ID, ActorTable.USER_ID}) {
+                assertEquals(columnName + " of actor " + id, longBefore(ActorTable.TABLE_NAME, columnName, id),
+                        MyQuery.actorIdToLongColumnValue(columnName, id));
+            }
+        }
+    }
+
+    @Test
+    public void activityLookupsAreTheSameAsBefore() {
+        List<Long> ids = idsOf(ActivityTable.TABLE_NAME);
+        for (long id : ids) {
+            for (String columnName : new String[]{ActivityTable.ACTOR_ID, ActivityTable.NOTE_ID,
+                    ActivityTable.ACTIVITY_TYPE}) {
+                assertEquals(columnName + " of activity " + id, longBefore(ActivityTable.TABLE_NAME, columnName, id),
+                        MyQuery.activityIdToLongColumnValue(columnName, id));
+            }
+        }
+    }
+
+    @Test
+    public void emptyAndNotFound() {
+        assertEquals("", MyQuery.noteIdToStringColumnValue(NoteTable.NOTE_OID, 0));
+        assertEquals(0, MyQuery.noteIdToLongColumnValue(NoteTable.ORIGIN_ID, 0));
+        assertEquals("Not found", "", MyQuery.noteIdToStringColumnValue(NoteTable.NOTE_OID, Long.MAX_VALUE));
+        assertEquals("Not found", 0, MyQuery.noteIdToLongColumnValue(NoteTable.ORIGIN_ID, Long.MAX_VALUE));
+        assertEquals("Not found", "", MyQuery.actorIdToStringColumnValue(ActorTable.USERNAME, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void parameterizedLookupsVersusConcatenatedSql() {
+        long originId = longBefore(NoteTable.TABLE_NAME, NoteTable.ORIGIN_ID, noteId);
+        assertTrue(originId > 0);
+        assertEquals(originId, MyQuery.noteIdToLongColumnValue(NoteTable.ORIGIN_ID, noteId));
+        String noteOid = stringBefore(NoteTable.TABLE_NAME, NoteTable.NOTE_OID, noteId);
+        assertEquals(demoData.conversationMentionsNoteOid, noteOid);
+        assertEquals(noteOid, MyQuery.noteIdToStringColumnValue(NoteTable.NOTE_OID, noteId));
+
+        StopWatch stopWatch = StopWatch.createStarted();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(originId, longBefore(NoteTable.TABLE_NAME, NoteTable.ORIGIN_ID, noteId));
+        }
+        long concatenatedMs = stopWatch.getTime();
+
+        stopWatch = StopWatch.createStarted();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(originId, MyQuery.noteIdToLongColumnValue(NoteTable.ORIGIN_ID, noteId));
+        }
+        long parameterizedMs = stopWatch.getTime();
+
+        MyLog.i(this, ITERATIONS + " lookups. Concatenated SQL: " + concatenatedMs + " ms, parameterized SQL: "
+                + parameterizedMs + " ms");
+    }
+
+    private List<Long> idsOf(String tableName) {
+        String sql = "SELECT _id FROM " + tableName + " ORDER BY _id DESC LIMIT " + ROWS_MAX;
+        List<Long> ids = MyQuery.foldLeft(myContext, sql, new ArrayList<>(), list -> cursor -> {
+            list.add(cursor.getLong(0));
+            return list;
+        });
+        assertTrue("No rows in " + tableName, !ids.isEmpty());
+        return ids;
+    }
+
+    /** The lookup, as it was before the id became a parameter */
+    private static long longBefore(String tableName, String columnName, long id) {
+        return MyQuery.conditionToLongColumnValue(tableName, columnName, "t._id=" + id);
+    }
+
+    private static String stringBefore(String tableName, String columnName, long id) {
+        return MyQuery.conditionToStringColumnValue(null, tableName, columnName, "_id=" + id);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.TestSuite;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OidCacheTest {
+    private MyContext myContext;
+
+    @Before
+    public void setUp() {
+        TestSuite.initializeWithData(this);
+        myContext = TestSuite.getMyContextForTest();
+    }
+
+    @Test
+    public void repeatedLookupIsCached() {
+        MyAccount ma = demoData.getPumpioConversationAccount();
+        OidCache.clear();
+        long actorId = MyQuery.oidToId(myContext, OidEnum.ACTOR_OID, ma.getOriginId(), ma.getActorOid());
+        assertNotEquals("Actor of " + ma, 0, actorId);
+
+        long hitsBefore = OidCache.getHits();
+        assertEquals(actorId, MyQuery.oidToId(myContext, OidEnum.ACTOR_OID, ma.getOriginId(), ma.getActorOid()));
+        assertEquals(OidCache.toSummary(), hitsBefore + 1, OidCache.getHits());
+
+        OidCache.onIdDeleted(OidEnum.ACTOR_OID, actorId);
+        assertEquals(0, OidCache.get(OidEnum.ACTOR_OID, ma.getOriginId(), ma.getActorOid()));
+    }
+
+    @Test
+    public void entriesOfTransactionArePublishedOnCommitOnly() throws Exception {
+        long originId = demoData.getPumpioConversationAccount().getOriginId();
+        String oid1 = "uncommittedOid1" + demoData.testRunUid;
+        String oid2 = "uncommittedOid2" + demoData.testRunUid;
+        final long id = 987654321;
+
+        BatchTransaction batch = BatchTransaction.begin(myContext, "rolledBack");
+        try {
+            batch.execute(() -> OidCache.put(OidEnum.NOTE_OID, originId, oid1, id));
+            assertEquals("Seen by the thread of the transaction", id,
+                    OidCache.get(OidEnum.NOTE_OID, originId, oid1));
+            assertEquals("Not seen by other threads", 0, getInOtherThread(originId, oid1));
+        } finally {
+            batch.end();
+        }
+        assertEquals("Forgotten on rollback", 0, OidCache.get(OidEnum.NOTE_OID, originId, oid1));
+
+        batch = BatchTransaction.begin(myContext, "committed");
+        try {
+            batch.execute(() -> OidCache.put(OidEnum.NOTE_OID, originId, oid1, id));
+            batch.setSuccessful();
+        } finally {
+            batch.end();
+        }
+        assertEquals("Published on commit", id, getInOtherThread(originId, oid1));
+
+        OidCache.put(OidEnum.NOTE_OID, originId, oid2, id);
+        OidCache.put(OidEnum.ACTOR_OID, originId, oid2, id);
+        OidCache.onIdDeleted(OidEnum.NOTE_OID, id);
+        assertEquals(0, OidCache.get(OidEnum.NOTE_OID, originId, oid1));
+        assertEquals(0, OidCache.get(OidEnum.NOTE_OID, originId, oid2));
+        assertEquals("Ids of other objects are kept", id, OidCache.get(OidEnum.ACTOR_OID, originId, oid2));
+        OidCache.onIdDeleted(OidEnum.ACTOR_OID, id);
+    }
+
+    private static long getInOtherThread(long originId, String oid) throws Exception {
+        return CompletableFuture.supplyAsync(() -> OidCache.get(OidEnum.NOTE_OID, originId, oid)).get();
+    }
+
+    @Test
+    public void notFoundOidIsNotCached() {
+        MyAccount ma = demoData.getPumpioConversationAccount();
+        String oid = "unknownOid" + demoData.testRunUid;
+        long missesBefore = OidCache.getMisses();
+        assertEquals(0, MyQuery.oidToId(myContext, OidEnum.NOTE_OID, ma.getOriginId(), oid));
+        assertEquals(0, MyQuery.oidToId(myContext, OidEnum.NOTE_OID, ma.getOriginId(), oid));
+        assertTrue(OidCache.toSummary(), OidCache.getMisses() >= missesBefore + 2);
+    }
+}
@@ -30,6 +30,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
@@ -39,6 +41,7 @@ public class HttpConnectionMock extends HttpConnection {
 
     private final List<HttpReadResult> results = new CopyOnWriteArrayList<>();
     private final List<String> responses = new CopyOnWriteArrayList<>();
+    private final Map<String, String> responsesByUrl = new ConcurrentHashMap<>();
     public volatile int responsesCounter = 0;
     private boolean sameResponse = false;
     private volatile InputStream responseFileStream = null;
@@ -74,6 +77,11 @@ public class HttpConnectionMock extends HttpConnection {
         responses.add(responseString);
     }
 
+    /** The response to requests of the URL, so it doesn't depend on the order of parallel requests */
+    public void addResponse(String url, String responseString) {
+        responsesByUrl.put(url, responseString);
+    }
+
     public void setResponseFileStream(InputStream inputStream) {
         this.responseFileStream = inputStream;
     }
@@ -126,7 +134,8 @@ public class HttpConnectionMock extends HttpConnection {
     }
 
     private void onRequest(String method, HttpReadResult result) {
-        result.strResponse = getNextResponse();
+        String responseByUrl = responsesByUrl.get(result.getUrl());
+        result.strResponse = responseByUrl == null ? getNextResponse() : responseByUrl;
         if (result.fileResult != null && responseFileStream != null) {
             try {
                 HttpConnectionUtils.readStream(result, responseFileStream);
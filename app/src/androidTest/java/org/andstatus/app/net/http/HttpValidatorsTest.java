@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.net.Uri;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.database.table.HttpValidatorTable;
+import org.andstatus.app.util.UriUtils;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.stream.Stream;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HttpValidatorsTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void notModifiedResponseIsReused() throws ConnectionException {
+        MyAccount ma = demoData.getGnuSocialAccount();
+        HttpConnectionData data = ma.getConnection().getHttp().getData();
+        final Uri uri = UriUtils.fromString("https://example.com/api/actor" + demoData.testRunUid + ".json");
+        final String etag = "W/\"" + demoData.testRunUid + "\"";
+        final String body = "{\"id\":\"actor" + demoData.testRunUid + "\"}";
+
+        HttpReadResult result1 = new HttpReadResult(uri, new JSONObject());
+        result1.validators = HttpValidators.load(data, uri, false);
+        assertTrue(result1.validators.toString(), result1.validators.isEmpty());
+        assertTrue(result1.getConditionalHeaders().isEmpty());
+        result1.setStatusCode(200);
+        result1.setHeaders(Stream.of(etag), value -> "ETag", value -> value);
+        result1.strResponse = body;
+        result1.parseAndThrow();
+        assertFalse(result1.isNotModified());
+
+        long notModifiedBefore = HttpValidators.getNotModifiedCount(ma.getOriginId());
+        HttpReadResult result2 = new HttpReadResult(uri, new JSONObject());
+        result2.validators = HttpValidators.load(data, uri, false);
+        assertEquals(result2.validators.toString(), etag, result2.getConditionalHeaders().get("If-None-Match"));
+        result2.setStatusCode(304);
+        result2.parseAndThrow();
+        assertTrue(result2.toString(), result2.isNotModified());
+        assertEquals(body, result2.getResponse());
+        assertEquals("actor" + demoData.testRunUid, result2.getJsonObject().optString("id"));
+        assertEquals(notModifiedBefore + 1, HttpValidators.getNotModifiedCount(ma.getOriginId()));
+
+        assertTrue("Validators of a downloaded file are separate",
+                HttpValidators.load(data, uri, true).isEmpty());
+
+        HttpReadResult result3 = new HttpReadResult(uri, new JSONObject());
+        result3.validators = HttpValidators.load(data, uri, false);
+        result3.setStatusCode(200);
+        result3.strResponse = body;
+        result3.parseAndThrow();
+        assertTrue("No validators in the response", HttpValidators.load(data, uri, false).isEmpty());
+    }
+
+    @Test
+    public void storedResponsesAreLimitedInSize() throws ConnectionException {
+        MyAccount ma = demoData.getGnuSocialAccount();
+        HttpConnectionData data = ma.getConnection().getHttp().getData();
+        String uriPrefix = "https://example.com/api/large" + demoData.testRunUid + "-";
+
+        // Less chars than the limit, but more bytes in UTF-8
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < HttpValidators.MAX_RESPONSE_SIZE * 9 / 10) {
+            builder.append("\"\u0416\u0416\",");
+        }
+        Uri uriTooLarge = UriUtils.fromString(uriPrefix + "utf8.json");
+        saveResponse(data, uriTooLarge, "[" + builder + "\"\"]");
+        assertTrue("Response is too large to store", HttpValidators.load(data, uriTooLarge, false).isEmpty());
+
+        builder.setLength(0);
+        while (builder.length() < HttpValidators.MAX_RESPONSE_SIZE * 9 / 10) {
+            builder.append("\"abcdefgh\",");
+        }
+        String body = "[" + builder + "\"\"]";
+        int count = HttpValidators.MAX_RESPONSES_SIZE / body.length() + 2;
+        for (int i = 0; i < count; i++) {
+            saveResponse(data, UriUtils.fromString(uriPrefix + i + ".json"), body);
+            // So the rows differ by the validated date
+            DbUtils.waitMs(this, 2);
+        }
+        long responsesSize = MyQuery.sqlToLong(null, "responsesSize", "SELECT SUM("
+                + HttpValidatorTable.RESPONSE_SIZE + ") FROM " + HttpValidatorTable.TABLE_NAME);
+        assertTrue("Size of stored responses: " + responsesSize,
+                responsesSize <= HttpValidators.MAX_RESPONSES_SIZE);
+        assertFalse("The latest response is kept",
+                HttpValidators.load(data, UriUtils.fromString(uriPrefix + (count - 1) + ".json"), false).isEmpty());
+        assertTrue("The oldest response is deleted",
+                HttpValidators.load(data, UriUtils.fromString(uriPrefix + "0.json"), false).isEmpty());
+    }
+
+    private static void saveResponse(HttpConnectionData data, Uri uri, String body) throws ConnectionException {
+        HttpReadResult result = new HttpReadResult(uri, new JSONObject());
+        result.validators = HttpValidators.load(data, uri, false);
+        result.setStatusCode(200);
+        result.setHeaders(Stream.of("W/\"" + uri.getLastPathSegment() + "\""), value -> "ETag", value -> value);
+        result.strResponse = body;
+        result.parseAndThrow();
+    }
+
+    @Test
+    public void pagesAtPositionAreNotStored() throws ConnectionException {
+        MyAccount ma = demoData.getGnuSocialAccount();
+        HttpConnectionData data = ma.getConnection().getHttp().getData();
+        final Uri uri = UriUtils.fromString("https://example.com/api/timeline.json?count=20&max_id="
+                + demoData.testRunUid);
+        assertFalse(HttpValidators.mayRepeat(uri));
+        assertFalse(HttpValidators.mayRepeat(UriUtils.fromString("https://example.com/api/timeline.json?page=2")));
+        assertTrue(HttpValidators.mayRepeat(UriUtils.fromString("https://example.com/api/timeline.json?count=20")));
+        assertTrue(HttpValidators.mayRepeat(UriUtils.fromString("https://example.com/users/me/outbox?page=true")));
+
+        HttpReadResult result1 = new HttpReadResult(uri, new JSONObject());
+        result1.validators = HttpValidators.load(data, uri, false);
+        result1.setStatusCode(200);
+        result1.setHeaders(Stream.of("W/\"" + demoData.testRunUid + "\""), value -> "ETag", value -> value);
+        result1.strResponse = "[]";
+        result1.parseAndThrow();
+        assertTrue("Validators of a page at a position are not stored",
+                HttpValidators.load(data, uri, false).isEmpty());
+    }
+}
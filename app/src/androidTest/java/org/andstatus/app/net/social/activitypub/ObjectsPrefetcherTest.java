@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.social.activitypub;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.net.http.HttpConnectionMock;
+import org.andstatus.app.net.http.HttpReadResult;
+import org.andstatus.app.net.social.AActivity;
+import org.andstatus.app.net.social.ActivityType;
+import org.andstatus.app.net.social.Actor;
+import org.andstatus.app.net.social.ActorEndpointType;
+import org.andstatus.app.net.social.Connection;
+import org.andstatus.app.net.social.ConnectionMock;
+import org.andstatus.app.net.social.TimelinePosition;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.andstatus.app.net.social.activitypub.VerifyCredentialsActivityPubTest.ACTOR_OID;
+import static org.andstatus.app.net.social.activitypub.VerifyCredentialsActivityPubTest.UNIQUE_NAME_IN_ORIGIN;
+import static org.junit.Assert.assertEquals;
+
+public class ObjectsPrefetcherTest {
+    private ConnectionMock mock;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithAccounts(this);
+        mock = ConnectionMock.newFor(demoData.activityPubTestAccountName);
+    }
+
+    @Test
+    public void partialObjectsAreReplacedAndRequestedOnce() throws Exception {
+        String username = "prefetched" + demoData.testRunUid;
+        String actorOid = "https://pleroma.site/users/" + username;
+        String noteOid = "https://pleroma.site/objects/prefetched-" + demoData.testRunUid;
+        String content = "Prefetched note " + demoData.testRunUid;
+        String published = "2019-02-10T17:37:25.000Z";
+
+        HttpConnectionMock http = mock.getHttpMock();
+        http.addResponse("{\"type\":\"OrderedCollectionPage\",\"orderedItems\":["
+                + "{\"id\":\"https://pleroma.site/activities/create-" + demoData.testRunUid + "\","
+                + "\"type\":\"Create\",\"published\":\"" + published + "\","
+                + "\"actor\":\"" + actorOid + "\",\"object\":\"" + noteOid + "\"},"
+                + "{\"id\":\"https://pleroma.site/activities/like-" + demoData.testRunUid + "\","
+                + "\"type\":\"Like\",\"published\":\"" + published + "\","
+                + "\"actor\":\"" + actorOid + "\",\"object\":\"" + noteOid + "\"}"
+                + "]}");
+        http.addResponse(noteOid, "{\"id\":\"" + noteOid + "\",\"type\":\"Note\","
+                + "\"attributedTo\":\"" + actorOid + "\",\"published\":\"" + published + "\","
+                + "\"content\":\"" + content + "\"}");
+        http.addResponse(actorOid, "{\"id\":\"" + actorOid + "\",\"type\":\"Person\","
+                + "\"preferredUsername\":\"" + username + "\",\"name\":\"Prefetched actor\"}");
+
+        Actor actorForTimeline = Actor.fromOid(mock.getData().getOrigin(), ACTOR_OID)
+                .withUniqueName(UNIQUE_NAME_IN_ORIGIN);
+        actorForTimeline.endpoints.add(ActorEndpointType.API_INBOX, "https://pleroma.site/users/AndStatus/inbox");
+        List<AActivity> timeline = mock.connection.getTimeline(Connection.ApiRoutineEnum.HOME_TIMELINE,
+                TimelinePosition.EMPTY, TimelinePosition.EMPTY, 20, actorForTimeline);
+        assertEquals("Number of items in the Timeline " + timeline, 2, timeline.size());
+
+        AActivity create = timeline.get(0);
+        assertEquals(create.toString(), ActivityType.CREATE, create.type);
+        assertEquals(create.toString(), DownloadStatus.LOADED, create.getNote().getStatus());
+        assertEquals(create.toString(), content, create.getNote().getContent());
+        assertEquals(create.toString(), username, create.getActor().getUsername());
+
+        AActivity like = timeline.get(1);
+        assertEquals(like.toString(), ActivityType.LIKE, like.type);
+        assertEquals(like.toString(), content, like.getActivity().getNote().getContent());
+        assertEquals(like.toString(), username, like.getActor().getUsername());
+
+        assertEquals(http.toString(), 3, http.getRequestsCounter());
+        for (String url : new String[]{noteOid, actorOid}) {
+            assertEquals("Requests of " + url + "\n" + http, 1,
+                    http.getResults().stream().map(HttpReadResult::getUrl).filter(url::equals).count());
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.TestSuite;
 import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.data.OidEnum;
+import org.andstatus.app.database.table.NoteTable;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.timeline.LoadableListActivity.ProgressPublisher;
 import org.andstatus.app.util.MyLog;
@@ -11,6 +12,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.Set;
 
 import static org.andstatus.app.context.DemoData.demoData;
 import static org.junit.Assert.assertTrue;
@@ -55,6 +57,20 @@ public class ConversationViewLoaderTest implements ProgressPublisher {
         assertTrue(progressCounter > 0);
     }
 
+    @Test
+    public void testReplyGraph() {
+        Set<Long> graph = MyQuery.getLongs(RecursiveConversationLoader.sqlReplyGraphNoteIds(selectedNoteId));
+        assertTrue("Selected note " + selectedNoteId + " in " + graph, graph.contains(selectedNoteId));
+        long inReplyToNoteId = MyQuery.noteIdToLongColumnValue(NoteTable.IN_REPLY_TO_NOTE_ID, selectedNoteId);
+        if (inReplyToNoteId != 0) {
+            assertTrue("Parent note " + inReplyToNoteId + " in " + graph, graph.contains(inReplyToNoteId));
+        }
+        Set<Long> replies = MyQuery.getLongs("SELECT " + NoteTable._ID + " FROM " + NoteTable.TABLE_NAME
+                + " WHERE " + NoteTable.IN_REPLY_TO_NOTE_ID + "=" + selectedNoteId);
+        assertTrue("Replies " + replies + " in " + graph, graph.containsAll(replies));
+        assertTrue("Graph " + graph, graph.size() > 1);
+    }
+
     @Override
     public void publish(String progress) {
         progressCounter++;
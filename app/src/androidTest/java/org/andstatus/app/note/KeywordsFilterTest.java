@@ -20,6 +20,8 @@ import org.andstatus.app.note.KeywordsFilter.Keyword;
 import org.andstatus.app.util.MyHtml;
 import org.junit.Test;
 
+import java.util.Arrays;
+
 import static org.andstatus.app.note.KeywordsFilter.CONTAINS_PREFIX;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -74,6 +76,26 @@ public class KeywordsFilterTest {
         assertNotMatchAll(query, body2);
     }
 
+    @Test
+    public void testSqlSelection() {
+        KeywordsFilter filter = new KeywordsFilter("word \"deleted notice\" andstatus.org contains:somepath");
+        assertEquals("(note_id IN (SELECT docid FROM note_fts WHERE note_fts MATCH ?)"
+                        + " AND content LIKE ? AND content LIKE ?)",
+                filter.getSqlSelection("note_id", "content"));
+        assertEquals(Arrays.asList("\"word\" \"deleted notice\" \"andstatus.org\"",
+                "%,andstatus.org,%", "%somepath%", "1"),
+                Arrays.asList(filter.prependSqlSelectionArgs(new String[]{"1"})));
+
+        assertEquals("(note_id NOT IN (SELECT docid FROM note_fts WHERE note_fts MATCH ?)"
+                        + " AND IFNULL(content,'') NOT LIKE ? AND IFNULL(content,'') NOT LIKE ?)",
+                filter.getSqlSelectionToExclude("note_id", "content"));
+        assertEquals(Arrays.asList("\"word\" OR \"deleted notice\"", "%,andstatus.org,%", "%somepath%"),
+                Arrays.asList(filter.prependSqlSelectionArgsToExclude(new String[]{})));
+
+        filter = new KeywordsFilter("contains:andstatus");
+        assertEquals("(content LIKE ?)", filter.getSqlSelection("note_id", "content"));
+    }
+
     private void assertOneQueryToKeywords(String query, Keyword... keywords) {
         int size = keywords.length;
         KeywordsFilter filter1 = new KeywordsFilter(query);
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.note;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.net.social.Audience;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NoteContentCacheTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithAccounts(this);
+        NoteContentCache.clear();
+    }
+
+    @Test
+    public void unchangedNoteIsNotParsedAgain() {
+        MyAccount ma = demoData.getMyAccount(demoData.conversationAccountName);
+        Audience audience = new Audience(ma.getOrigin());
+        audience.add(ma.getActor());
+        String content = "Hello <b>@" + ma.getActor().getWebFingerId() + "</b>, thank you";
+        final long noteId = 12345;
+        final long updatedDate = 1550000000000L;
+
+        NoteContentCache.Parsed parsed1 = NoteContentCache.parse(noteId, updatedDate, "", "", content, audience);
+        assertTrue(parsed1.content.toString(), parsed1.content.toString().contains("thank you"));
+        assertSame(NoteContentCache.getInfo(), parsed1,
+                NoteContentCache.parse(noteId, updatedDate, "", "", content, audience));
+
+        assertNotSame("Updated note " + NoteContentCache.getInfo(), parsed1,
+                NoteContentCache.parse(noteId, updatedDate + 1, "", "", content, audience));
+        assertNotSame("Other text " + NoteContentCache.getInfo(), parsed1,
+                NoteContentCache.parse(noteId, updatedDate, "", "", content + ".", audience));
+        assertNotSame("Other audience " + NoteContentCache.getInfo(), parsed1,
+                NoteContentCache.parse(noteId, updatedDate, "", "", content, new Audience(ma.getOrigin())));
+        assertNotSame("Note without id is not cached", NoteContentCache.parse(0, updatedDate, "", "", content, audience),
+                NoteContentCache.parse(0, updatedDate, "", "", content, audience));
+    }
+}
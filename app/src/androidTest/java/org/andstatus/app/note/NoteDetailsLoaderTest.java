@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.note;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.AttachedImageFiles;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.database.table.NoteTable;
+import org.andstatus.app.net.social.Audience;
+import org.andstatus.app.origin.Origin;
+import org.andstatus.app.util.TriState;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+public class NoteDetailsLoaderTest {
+
+    @Before
+    public void setUp() {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void detailsOfManyNotesAreTheSameAsOfEachNote() {
+        MyContext myContext = MyContextHolder.get();
+        Origin origin = demoData.getPumpioConversationOrigin();
+        Set<Long> noteIds = MyQuery.getLongs(myContext, "SELECT " + NoteTable._ID + " FROM " + NoteTable.TABLE_NAME
+                + " WHERE " + NoteTable.ORIGIN_ID + "=" + origin.getId());
+        assertTrue("Notes of " + origin, noteIds.size() > 10);
+
+        NoteDetailsLoader loader = new NoteDetailsLoader(myContext);
+        noteIds.forEach(noteId -> {
+            loader.addNote(origin, noteId);
+            loader.addAttachmentsOf(noteId);
+        });
+        loader.load();
+
+        int withAudience = 0;
+        for (long noteId : noteIds) {
+            TriState isPublic = MyQuery.noteIdToTriState(NoteTable.PUBLIC, noteId);
+            Audience expected = Audience.fromNoteId(origin, noteId, isPublic);
+            Audience actual = loader.getAudience(origin, noteId, isPublic);
+            assertEquals("Audience of noteId:" + noteId, expected.getActors(), actual.getActors());
+            assertEquals("Public of noteId:" + noteId, expected.getPublic(), actual.getPublic());
+            if (expected.nonEmpty()) withAudience++;
+
+            Set<Long> expectedRebloggers = MyQuery.getRebloggers(myContext.getDatabase(), origin, noteId).stream()
+                    .map(actor -> actor.actorId).collect(Collectors.toSet());
+            assertEquals("Rebloggers of noteId:" + noteId, expectedRebloggers,
+                    loader.getRebloggers(noteId).stream().map(actor -> actor.actorId).collect(Collectors.toSet()));
+
+            assertEquals("Attached images of noteId:" + noteId, AttachedImageFiles.load(myContext, noteId),
+                    loader.getAttachedImageFiles(noteId));
+        }
+        assertTrue("No notes with audience " + loader, withAudience > 0);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.note;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.database.table.NoteTable;
+import org.andstatus.app.net.social.Actor;
+import org.andstatus.app.origin.Origin;
+import org.andstatus.app.timeline.DuplicationLink;
+import org.andstatus.app.timeline.LoadableListViewParameters;
+import org.andstatus.app.timeline.TimelineData;
+import org.andstatus.app.timeline.TimelinePage;
+import org.andstatus.app.timeline.TimelineParameters;
+import org.andstatus.app.timeline.WhichPage;
+import org.andstatus.app.timeline.meta.Timeline;
+import org.andstatus.app.timeline.meta.TimelineType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.andstatus.app.util.RelativeTime.SOME_TIME_AGO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Groups of duplicates, collapsed by {@link org.andstatus.app.timeline.DuplicatesCollapser},
+ * should be the same as before the length and hash checks in {@link BaseNoteViewItem#duplicates} */
+public class NoteDuplicatesTest {
+    private static final int NOTES_MAX = 200;
+    private static final int NOTES_TO_DUPLICATE = 10;
+    private MyContext myContext;
+
+    @Before
+    public void setUp() {
+        TestSuite.initializeWithData(this);
+        myContext = TestSuite.getMyContextForTest();
+    }
+
+    @Test
+    public void collapsedGroupsAreTheSameAsBefore() {
+        Timeline timeline = myContext.timelines().get(TimelineType.EVERYTHING, Actor.EMPTY, Origin.EMPTY);
+        List<NoteViewItem> items = loadDemoPage();
+        int maxDistance = MyPreferences.getMaxDistanceBetweenDuplicates();
+        assertTrue("Duplicates are not collapsed, distance: " + maxDistance, maxDistance > 0);
+
+        for (int i = 0; i < items.size(); i++) {
+            for (int j = 0; j < items.size(); j++) {
+                if (i == j) continue;
+                assertEquals(items.get(i) + " vs " + items.get(j),
+                        duplicatesBefore(timeline, timeline.preferredOrigin(), items.get(i), items.get(j)),
+                        items.get(i).duplicates(timeline, timeline.preferredOrigin(), items.get(j)));
+            }
+        }
+
+        Set<Set<Long>> expected = collapseBefore(timeline, items, maxDistance);
+        assertTrue("No duplicates in the demo page", expected.size() >= NOTES_TO_DUPLICATE / 2);
+
+        TimelinePage<NoteViewItem> page = new TimelinePage<>(
+                new TimelineParameters(myContext, timeline, WhichPage.CURRENT), new ArrayList<>(items));
+        TimelineData<NoteViewItem> data = new TimelineData<>(null, page);
+        data.updateView(LoadableListViewParameters.collapseDuplicates(true));
+        Set<Set<Long>> actual = new HashSet<>();
+        for (int position = 0; position < data.size(); position++) {
+            NoteViewItem parent = data.getItem(position);
+            if (parent.getChildren().isEmpty()) continue;
+
+            Set<Long> group = new HashSet<>();
+            group.add(parent.getId());
+            parent.getChildren().forEach(child -> group.add(child.getId()));
+            actual.add(group);
+        }
+        assertEquals(expected, actual);
+    }
+
+    /** Notes of the demo data, and duplicates of some of them: with the same and with longer content */
+    private List<NoteViewItem> loadDemoPage() {
+        String sql = "SELECT " + NoteTable._ID + ", " + NoteTable.CONTENT_TO_SEARCH + ", " + NoteTable.UPDATED_DATE
+                + " FROM " + NoteTable.TABLE_NAME
+                + " ORDER BY " + NoteTable.UPDATED_DATE + " DESC LIMIT " + NOTES_MAX;
+        List<NoteViewItem> items = MyQuery.foldLeft(myContext, sql, new ArrayList<>(), list -> cursor -> {
+            NoteViewItem item = new NoteViewItem(false, DbUtils.getLong(cursor, NoteTable.UPDATED_DATE));
+            item.setNoteId(DbUtils.getLong(cursor, NoteTable._ID));
+            item.contentToSearch = DbUtils.getString(cursor, NoteTable.CONTENT_TO_SEARCH);
+            list.add(item);
+            return list;
+        });
+        assertTrue("Demo notes: " + items.size(), items.size() > NOTES_TO_DUPLICATE);
+
+        List<NoteViewItem> page = new ArrayList<>();
+        long noteId = Long.MAX_VALUE / 2;
+        int duplicated = 0;
+        for (NoteViewItem item : items) {
+            page.add(item);
+            if (duplicated >= NOTES_TO_DUPLICATE || item.isTooShortToCompare()) continue;
+
+            duplicated++;
+            page.add(copyOf(item, ++noteId, item.contentToSearch, item.updatedDate - 1000));
+            page.add(copyOf(item, ++noteId, item.contentToSearch + " via AndStatus", item.updatedDate + 1000));
+        }
+        return page;
+    }
+
+    private static NoteViewItem copyOf(NoteViewItem item, long noteId, String contentToSearch, long updatedDate) {
+        NoteViewItem copy = new NoteViewItem(false, updatedDate);
+        copy.setNoteId(noteId);
+        copy.contentToSearch = contentToSearch;
+        return copy;
+    }
+
+    /** The pass of {@link org.andstatus.app.timeline.DuplicatesCollapser} over one page, without its optimizations
+     * @return ids of items of each group of duplicates */
+    private static Set<Set<Long>> collapseBefore(Timeline timeline, List<NoteViewItem> items, int maxDistance) {
+        Set<Set<Long>> collapsed = new HashSet<>();
+        // The parent is the first item of a group
+        List<List<NoteViewItem>> groups = new ArrayList<>();
+        for (NoteViewItem item : items) {
+            boolean found = false;
+            for (List<NoteViewItem> group : groups) {
+                DuplicationLink link = duplicatesBefore(timeline, timeline.preferredOrigin(), item, group.get(0));
+                if (link == DuplicationLink.DUPLICATES) {
+                    group.add(item);
+                } else if (link == DuplicationLink.IS_DUPLICATED) {
+                    group.add(0, item);
+                } else {
+                    continue;
+                }
+                found = true;
+                break;
+            }
+            if (!found) {
+                if (groups.size() > maxDistance) addGroup(collapsed, groups.remove(0));
+                groups.add(new ArrayList<>(Collections.singletonList(item)));
+            }
+        }
+        groups.forEach(group -> addGroup(collapsed, group));
+        return collapsed;
+    }
+
+    private static void addGroup(Set<Set<Long>> collapsed, List<NoteViewItem> group) {
+        if (group.size() < 2) return;
+
+        Set<Long> ids = new HashSet<>();
+        group.forEach(item -> ids.add(item.getId()));
+        collapsed.add(ids);
+    }
+
+    /** BaseNoteViewItem#duplicatesByOther before the length and hash checks.
+     * Equal content of the same date and the same notes are compared by favorited and reblogged,
+     * which didn't change, so the current implementation is used for them */
+    private static DuplicationLink duplicatesBefore(Timeline timeline, Origin preferredOrigin,
+                                                    NoteViewItem item, NoteViewItem other) {
+        if (item.isEmpty() || other.isEmpty()) return DuplicationLink.NONE;
+        if (item.getNoteId() == other.getNoteId()) return item.duplicates(timeline, preferredOrigin, other);
+
+        if (item.updatedDate > SOME_TIME_AGO && other.updatedDate > SOME_TIME_AGO
+                && (Math.abs(item.updatedDate - other.updatedDate) >= TimeUnit.HOURS.toMillis(24))
+                || item.isTooShortToCompare()
+                || other.isTooShortToCompare()
+                ) return DuplicationLink.NONE;
+        if (item.contentToSearch.equals(other.contentToSearch)) {
+            if (item.updatedDate == other.updatedDate) {
+                return item.duplicates(timeline, preferredOrigin, other);
+            } else if (item.updatedDate < other.updatedDate) {
+                return DuplicationLink.IS_DUPLICATED;
+            } else {
+                return DuplicationLink.DUPLICATES;
+            }
+        } else if (item.contentToSearch.contains(other.contentToSearch)) {
+            return DuplicationLink.DUPLICATES;
+        } else if (other.contentToSearch.contains(item.contentToSearch)) {
+            return DuplicationLink.IS_DUPLICATED;
+        }
+        return DuplicationLink.NONE;
+    }
+}
@@ -52,6 +52,16 @@ public class NotifierTest {
         assertCount(notifier, 1, NotificationEventType.ANNOUNCE);
         assertCount(notifier, 1, NotificationEventType.MENTION);
         assertCount(notifier, 1, NotificationEventType.PRIVATE);
+
+        notifier.recount();
+        assertCount(notifier, 1, NotificationEventType.ANNOUNCE);
+        assertCount(notifier, 1, NotificationEventType.MENTION);
+        assertCount(notifier, 1, NotificationEventType.PRIVATE);
+
+        notifier.clearAll();
+        assertTrue("Events should be empty " + notifier.getEvents(), notifier.getEvents().isEmpty());
+        notifier.recount();
+        assertTrue("Events should be empty after recount " + notifier.getEvents(), notifier.getEvents().isEmpty());
     }
 
     public static void addNotificationEvent(MyContext myContext, NotificationEventType eventType) {
@@ -76,6 +86,8 @@ public class NotifierTest {
         ", " + ActivityTable.NOTIFIED + "=" + TriState.TRUE.id +
         ", " + ActivityTable.NOTIFIED_ACTOR_ID + "=" + ActivityTable.ACTOR_ID +
         " WHERE " + ActivityTable._ID + "=" + activityId);
+        myContext.getNotifier().onNotificationEventChanged(NotificationEventType.EMPTY, 0, eventType,
+                MyQuery.activityIdToLongColumnValue(ActivityTable.ACTOR_ID, activityId), System.currentTimeMillis());
         myContext.getNotifier().update();
     }
 
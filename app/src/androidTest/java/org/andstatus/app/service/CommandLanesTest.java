@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.timeline.meta.TimelineType;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CommandLanesTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void commandsOfOneAccountAreSequential() {
+        MyAccount ma1 = demoData.getPumpioConversationAccount();
+        MyAccount ma2 = demoData.getGnuSocialAccount();
+        assertNotEquals(ma1.getOriginId(), ma2.getOriginId());
+
+        CommandData update1 = CommandData.newUpdateStatus(ma1, 1, 0);
+        CommandData update2 = CommandData.newUpdateStatus(ma1, 2, 0);
+        CommandData timeline = CommandData.newTimelineCommand(CommandEnum.GET_TIMELINE, ma2, TimelineType.HOME);
+
+        CommandLanes lanes = new CommandLanes();
+        assertTrue(lanes.tryAcquire(update1));
+        assertFalse("The same account", lanes.mayAcquire(update2));
+        assertFalse("The same account", lanes.tryAcquire(update2));
+        assertTrue("Other origin", lanes.tryAcquire(timeline));
+        assertEquals(2, lanes.busyCount());
+
+        assertThat(lanes.release(update1, 1000), containsString("1 commands"));
+        assertTrue(lanes.mayAcquire(update2));
+        assertTrue(lanes.tryAcquire(update2));
+        lanes.release(update2, 1000);
+        lanes.release(timeline, 1000);
+        assertEquals(0, lanes.busyCount());
+    }
+}
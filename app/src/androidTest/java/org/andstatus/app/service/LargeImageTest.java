@@ -16,11 +16,15 @@ package org.andstatus.app.service;
  */
 
 import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.TestSuite;
 import org.andstatus.app.data.AttachedImageFile;
 import org.andstatus.app.data.DemoNoteInserter;
 import org.andstatus.app.data.DownloadData;
+import org.andstatus.app.data.DownloadFile;
 import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.database.table.DownloadTable;
 import org.andstatus.app.graphics.CacheName;
 import org.andstatus.app.graphics.CachedImage;
 import org.andstatus.app.net.social.AActivity;
@@ -86,6 +90,45 @@ public class LargeImageTest {
         return data;
     }
 
+    @Test
+    public void testIdenticalAttachmentsShareFile() throws IOException {
+        DownloadData data1 = insertAndLoad("http://www.example.com/pictures/large_image1.png");
+        DownloadData data2 = insertAndLoad("http://www.example.org/reblogged/large_image2.png");
+        assertEquals("Identical attachments share the file " + data1 + "\n" + data2,
+                data1.getFilename(), data2.getFilename());
+        assertTrue(data1.toString(), data1.getFile().existed);
+
+        DownloadData.deleteAllOfThisNote(MyContextHolder.get().getDatabase(), data1.noteId);
+        assertTrue("The file is still used " + data2, new DownloadFile(data2.getFilename()).existsNow());
+        DownloadData.deleteAllOfThisNote(MyContextHolder.get().getDatabase(), data2.noteId);
+        long usages = MyQuery.sqlToLong(null, "usages", "SELECT COUNT(*) FROM " + DownloadTable.TABLE_NAME
+                + " WHERE " + DownloadTable.FILE_NAME + "='" + data2.getFilename() + "'");
+        assertEquals("File " + data2.getFilename() + " used by " + usages + " downloads", usages > 0,
+                new DownloadFile(data2.getFilename()).existsNow());
+    }
+
+    private DownloadData insertAndLoad(String uri) throws IOException {
+        MyAccount ma = demoData.getGnuSocialAccount();
+        DemoNoteInserter inserter = new DemoNoteInserter(ma);
+        AActivity activity = inserter.buildActivity(inserter.buildActor(), "", "Shared image " + uri, null, null,
+                DownloadStatus.LOADED);
+        activity.addAttachment(Attachment.fromUri(uri));
+        inserter.onActivity(activity);
+
+        DownloadData dd = DownloadData.getSingleAttachment(activity.getNote().noteId);
+        AttachmentDownloader loader = new AttachmentDownloader(dd);
+        ConnectionMock connMock = ConnectionMock.newFor(demoData.gnusocialTestAccountName);
+        try (InputStream inputStream = InstrumentationRegistry.getInstrumentation().getContext().getResources()
+                .openRawResource(org.andstatus.app.tests.R.raw.large_image)) {
+            connMock.getHttpMock().setResponseFileStream(inputStream);
+            loader.setConnectionMock(connMock.connection);
+            CommandData commandData = CommandData.newActorCommand(CommandEnum.GET_AVATAR, Actor.EMPTY, "");
+            loader.load(commandData);
+            assertFalse("Loaded " + uri + "\n" + commandData, commandData.getResult().hasError());
+        }
+        return DownloadData.fromId(dd.getDownloadId());
+    }
+
     private void loadingTest(DownloadData dd) {
         CachedImage image = new AttachedImageFile(dd).loadAndGetImage(CacheName.ATTACHED_IMAGE);
         int width = image.getImageSize().x;
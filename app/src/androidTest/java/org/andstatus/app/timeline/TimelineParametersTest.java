@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.timeline;
+
+import android.database.Cursor;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.database.table.ActivityTable;
+import org.andstatus.app.net.social.Actor;
+import org.andstatus.app.origin.Origin;
+import org.andstatus.app.timeline.meta.TimelineType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+public class TimelineParametersTest {
+
+    @Before
+    public void setUp() {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testKeysetPages() {
+        MyContext myContext = MyContextHolder.get();
+        TimelineParameters firstPart = TimelineParameters.clone(new TimelineParameters(myContext,
+                myContext.timelines().get(TimelineType.EVERYTHING, Actor.EMPTY, Origin.EMPTY), WhichPage.TOP),
+                WhichPage.TOP);
+        Set<Long> ids = loadActivityIds(firstPart);
+        assertEquals(firstPart.toString(), TimelineParameters.FIRST_PAGE_SIZE, firstPart.limit);
+        assertTrue("Demo data should fill the first part " + firstPart, firstPart.isFirstPartOfPage());
+        assertTrue(firstPart.toString(), firstPart.mayHaveOlderPage());
+
+        TimelineParameters older = TimelineParameters.clone(firstPart, WhichPage.OLDER);
+        assertEquals(firstPart.minDateLoaded, older.maxDate);
+        assertEquals(firstPart.minDateLoadedId, older.maxDateId);
+        Set<Long> olderIds = loadActivityIds(older);
+        assertFalse("Older page is not the first part " + older, older.isFirstPartOfPage());
+        assertTrue("Older page should have rows " + older, older.rowsLoaded > 0);
+        for (long id : olderIds) {
+            assertFalse("Activity " + id + " is loaded twice\n" + firstPart + "\n" + older, ids.contains(id));
+        }
+        assertTrue(older.toString(), older.maxDateLoaded < firstPart.minDateLoaded
+                || (older.maxDateLoaded == firstPart.minDateLoaded && older.maxDateLoadedId < firstPart.minDateLoadedId));
+    }
+
+    private Set<Long> loadActivityIds(TimelineParameters params) {
+        Set<Long> ids = new HashSet<>();
+        try (Cursor cursor = params.queryDatabase()) {
+            while (cursor.moveToNext()) {
+                long id = DbUtils.getLong(cursor, ActivityTable.ACTIVITY_ID);
+                params.rememberItemDateLoaded(DbUtils.getLong(cursor,
+                        ActivityTable.getTimeSortField(params.getTimelineType())), id);
+                ids.add(id);
+            }
+        }
+        params.rowsLoaded = ids.size();
+        return ids;
+    }
+}
@@ -46,4 +46,25 @@ public class CachedUsersAndActorsTest {
         assertEquals(users.toString(), false, users.isMeOrMyFriend(Actor.EMPTY));
     }
 
+    @Test
+    public void snapshots() {
+        CachedUsersAndActors users = MyContextHolder.get().users();
+        Actor actor = demoData.getMyAccount(demoData.conversationAccountSecondName).getActor();
+        ActorSnapshots snapshots = users.snapshots;
+
+        long versionRead = snapshots.getVersion();
+        snapshots.put(actor, true, versionRead);
+        assertEquals(snapshots.toString(), actor, snapshots.get(actor.actorId, true));
+        assertEquals(snapshots.toString(), actor, snapshots.get(actor.actorId, false));
+
+        users.reload(actor);
+        assertEquals("Invalidated on reload " + snapshots, Actor.EMPTY, snapshots.get(actor.actorId, false));
+        snapshots.put(actor, false, versionRead);
+        assertEquals("Stale snapshot accepted " + snapshots, Actor.EMPTY, snapshots.get(actor.actorId, false));
+
+        snapshots.put(actor, false, snapshots.getVersion());
+        assertEquals(snapshots.toString(), actor, snapshots.get(actor.actorId, false));
+        assertEquals("Loaded without avatar " + snapshots, Actor.EMPTY, snapshots.get(actor.actorId, true));
+    }
+
 }
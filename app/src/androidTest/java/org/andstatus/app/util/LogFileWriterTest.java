@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DbUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LogFileWriterTest {
+    private static final int WAIT_FOR_ROTATION_MS = 10000;
+    private static final Pattern DROPPED_PATTERN = Pattern.compile(" (\\d+) lines dropped, the queue is full");
+    private boolean isLogEnabled;
+    private int capacity;
+    private long maxFileSize;
+    private Supplier<String> today;
+
+    @Before
+    public void setUp() {
+        TestSuite.initialize(this);
+        isLogEnabled = MyLog.isLogToFileEnabled();
+        capacity = LogFileWriter.capacity;
+        maxFileSize = LogFileWriter.maxFileSize;
+        today = LogFileWriter.today;
+        MyLog.setLogToFile(true);
+    }
+
+    @After
+    public void tearDown() {
+        LogFileWriter.capacity = capacity;
+        LogFileWriter.maxFileSize = maxFileSize;
+        LogFileWriter.today = today;
+        MyLog.setLogToFile(isLogEnabled);
+    }
+
+    @Test
+    public void linesAreDroppedWhenTheQueueIsFull() {
+        final String marker = "Overflow " + MyLog.uniqueDateTimeFormatted();
+        final int linesToAdd = 30;
+        String filename = MyLog.getLogFilename();
+        LogFileWriter.capacity = 10;
+        synchronized (LogFileWriter.fileLock) {
+            // The writer thread waits, so the queue is not drained
+            for (int i = 0; i < linesToAdd; i++) {
+                LogFileWriter.add(marker + " " + i + "\n");
+            }
+        }
+        LogFileWriter.close();
+
+        List<String> lines = readLines(filename);
+        long written = lines.stream().filter(line -> line.startsWith(marker)).count();
+        long dropped = lines.stream().map(DROPPED_PATTERN::matcher).filter(Matcher::find)
+                .mapToLong(matcher -> Long.parseLong(matcher.group(1))).sum();
+        assertTrue("Written " + written + " lines of " + linesToAdd, written > 0 && written <= 10);
+        assertTrue("Dropped " + dropped + ", written " + written + " lines of " + linesToAdd,
+                dropped + written >= linesToAdd);
+        assertEquals("The first lines are kept", marker + " 0", lines.stream()
+                .filter(line -> line.startsWith(marker)).findFirst().orElse(""));
+    }
+
+    @Test
+    public void newFileIsStartedWhenTheFileIsTooLarge() {
+        // Less chars than the limit, but more bytes in UTF-8
+        LogFileWriter.maxFileSize = 1000;
+        StringBuilder builder = new StringBuilder("Large line ");
+        for (int i = 0; i < 300; i++) {
+            builder.append("ЖЖ");
+        }
+        assertTrue(builder.length() < LogFileWriter.maxFileSize);
+        assertTrue(LogFileWriter.utf8Length(builder.toString()) > LogFileWriter.maxFileSize);
+
+        String filename = MyLog.getLogFilename();
+        LogFileWriter.add(builder.append("\n").toString());
+        assertNewFileStarted(filename);
+    }
+
+    @Test
+    public void newFileIsStartedOnTheNextDay() {
+        String filename = MyLog.getLogFilename();
+        LogFileWriter.add("Before the next day\n");
+        LogFileWriter.today = () -> "2000-01-01";
+        LogFileWriter.add("On the next day\n");
+        assertNewFileStarted(filename);
+    }
+
+    @Test
+    public void newFileIsStartedWhenTheFileWasDeleted() {
+        String filename = MyLog.getLogFilename();
+        LogFileWriter.add("Before deletion\n");
+        // The file is deleted, while it is opened by the writer
+        File file = MyLog.getFileInLogDir(filename, true);
+        assertTrue("Deleted " + file, file.delete());
+        LogFileWriter.add("After deletion\n");
+        assertNewFileStarted(filename);
+    }
+
+    @Test
+    public void closeWritesAllQueuedLines() {
+        final String marker = "Queued " + MyLog.uniqueDateTimeFormatted();
+        final int linesToAdd = 100;
+        String filename = MyLog.getLogFilename();
+        for (int i = 0; i < linesToAdd; i++) {
+            LogFileWriter.add(marker + " " + i + "\n");
+        }
+        LogFileWriter.close();
+
+        List<String> lines = readLines(filename);
+        assertEquals(linesToAdd, lines.stream().filter(line -> line.startsWith(marker)).count());
+    }
+
+    @Test
+    public void utf8Length() {
+        assertEquals(0, LogFileWriter.utf8Length(""));
+        assertEquals(3, LogFileWriter.utf8Length("abc"));
+        assertEquals(4, LogFileWriter.utf8Length("ЖЖ"));
+        assertEquals(3, LogFileWriter.utf8Length("€"));
+        String emoji = new String(Character.toChars(0x1F600));
+        assertEquals(4, LogFileWriter.utf8Length(emoji));
+        String line = "Line ЖЖ € " + emoji + "\n";
+        assertEquals(line.getBytes(StandardCharsets.UTF_8).length, LogFileWriter.utf8Length(line));
+    }
+
+    private void assertNewFileStarted(String filename) {
+        for (int i = 0; i < WAIT_FOR_ROTATION_MS / 100; i++) {
+            if (!filename.equals(MyLog.getLogFilename())) break;
+            DbUtils.waitMs(this, 100);
+        }
+        String newFilename = MyLog.getLogFilename();
+        assertNotEquals("New file should be started", filename, newFilename);
+
+        final String marker = "In the new file " + MyLog.uniqueDateTimeFormatted();
+        LogFileWriter.add(marker + "\n");
+        LogFileWriter.close();
+        assertTrue(readLines(newFilename).stream().anyMatch(line -> line.contains(marker)));
+        assertFalse(readLines(filename).stream().anyMatch(line -> line.contains(marker)));
+    }
+
+    private static List<String> readLines(String filename) {
+        List<String> lines = new ArrayList<>();
+        File file = MyLog.getFileInLogDir(filename, true);
+        if (file == null || !file.exists()) return lines;
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read " + file, e);
+        }
+        return lines;
+    }
+}
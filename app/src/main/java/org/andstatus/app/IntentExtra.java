@@ -47,6 +47,8 @@ public enum IntentExtra{
     SERVICE_STATE("SERVICE_STATE"),
     SERVICE_EVENT("SERVICE_EVENT"),
     PROGRESS_TEXT("PROGRESS_TEXT"),
+    /** Throughput of the lane of parallel command execution */
+    LANE_SUMMARY("LANE_SUMMARY"),
     /** Text of the note/"tweet" */
     NOTE_TEXT("NOTE_TEXT"),
     MEDIA_URI("MEDIA_URI"),
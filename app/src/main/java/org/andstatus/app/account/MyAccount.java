@@ -181,7 +181,7 @@ public final class MyAccount implements Comparable<MyAccount>, IsEmpty {
     }
 
     public boolean isFollowing(Actor thatActor) {
-        return data.myContext().users().friendsOfMyActors.entrySet().stream()
+        return data.myContext().users().friendsOfMyActors().entrySet().stream()
                 .filter(entry -> entry.getKey() == thatActor.actorId)
                 .anyMatch(entry -> entry.getValue().contains(getActor().actorId));
     }
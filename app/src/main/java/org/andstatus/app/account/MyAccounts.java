@@ -209,7 +209,7 @@ public class MyAccounts implements IsEmpty {
     }
 
     private Optional<MyAccount> forFriend(Actor friend, boolean sameOriginOnly, boolean succeededOnly) {
-        return myContext.users().friendsOfMyActors.getOrDefault(friend.actorId, Collections.emptySet()).stream()
+        return myContext.users().friendsOfMyActors().getOrDefault(friend.actorId, Collections.emptySet()).stream()
                 .map(this::fromActorId)
                 .filter(ma -> ma.isValidAndSucceeded() || !succeededOnly)
                 .filter(ma -> !sameOriginOnly || ma.getOrigin().equals(friend.origin))
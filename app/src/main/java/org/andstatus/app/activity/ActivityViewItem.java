@@ -28,6 +28,7 @@ import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.net.social.ActivityType;
 import org.andstatus.app.net.social.Actor;
+import org.andstatus.app.note.NoteDetailsLoader;
 import org.andstatus.app.note.NoteViewItem;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.timeline.DuplicationLink;
@@ -180,6 +181,16 @@ public class ActivityViewItem extends ViewItem<ActivityViewItem> implements Comp
         this.objActorItem = objActorItem;
     }
 
+    @Override
+    public void addNoteDetailsToLoad(NoteDetailsLoader loader) {
+        noteViewItem.addNoteDetailsToLoad(loader);
+    }
+
+    @Override
+    public void setLoadedNoteDetails(NoteDetailsLoader loader) {
+        noteViewItem.setLoadedNoteDetails(loader);
+    }
+
     @Override
     public void addActorsToLoad(ActorListLoader loader) {
         noteViewItem.addActorsToLoad(loader);
@@ -19,12 +19,16 @@ import org.andstatus.app.origin.Origin;
 import org.andstatus.app.timeline.LoadableListActivity;
 import org.andstatus.app.timeline.LoadableListActivity.ProgressPublisher;
 import org.andstatus.app.timeline.ViewItem;
+import org.andstatus.app.user.ActorSnapshots;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StopWatch;
 import org.andstatus.app.util.StringUtils;
 
 import androidx.annotation.NonNull;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static java.util.stream.Collectors.toList;
 
 public class ActorListLoader extends SyncLoader<ActorViewItem> {
@@ -89,6 +93,10 @@ public class ActorListLoader extends SyncLoader<ActorViewItem> {
     }
 
     protected void loadInternal() {
+        if (loadsListedActorsOnly()) {
+            loadListedActors();
+            return;
+        }
         Uri mContentUri = MatchedUri.getActorListUri(mActorListType, origin.getId(), mCentralItemId, searchQuery);
         try (Cursor c = myContext.context().getContentResolver()
                     .query(mContentUri, ActorSql.baseProjection(), getSelection(), null, null)) {
@@ -98,6 +106,46 @@ public class ActorListLoader extends SyncLoader<ActorViewItem> {
         }
     }
 
+    /** Actors, added to the list, are simply loaded by their ids */
+    private boolean loadsListedActorsOnly() {
+        return mActorListType == ActorListType.ACTORS_AT_ORIGIN && StringUtils.isEmpty(searchQuery)
+                && !items.isEmpty();
+    }
+
+    /** Takes actors from {@link ActorSnapshots} and queries the database for missing actors only */
+    private void loadListedActors() {
+        ActorSnapshots snapshots = myContext.users().snapshots;
+        boolean withAvatar = MyPreferences.getShowAvatars();
+        List<Long> idsToQuery = new ArrayList<>();
+        for (int index = 0; index < items.size(); index++) {
+            ActorViewItem item = items.get(index);
+            long actorId = item.getId();
+            if (actorId == 0) continue;
+
+            Actor actor = snapshots.get(actorId, withAvatar);
+            if (actor.isEmpty()) {
+                idsToQuery.add(actorId);
+            } else {
+                ActorViewItem cachedItem = ActorViewItem.fromActor(actor);
+                cachedItem.populated = true;
+                items.set(index, cachedItem);
+            }
+        }
+        if (!idsToQuery.isEmpty()) {
+            long versionRead = snapshots.getVersion();
+            Uri mContentUri = MatchedUri.getActorListUri(mActorListType, origin.getId(), mCentralItemId, searchQuery);
+            try (Cursor c = myContext.context().getContentResolver()
+                    .query(mContentUri, ActorSql.baseProjection(),
+                            ActorTable.TABLE_NAME + "." + BaseColumns._ID + SqlIds.fromIds(idsToQuery).getSql(),
+                            null, null)) {
+                while (c != null && c.moveToNext()) {
+                    snapshots.put(populateItem(c).actor, withAvatar, versionRead);
+                }
+            }
+        }
+        MyLog.v(this, () -> "Queried " + idsToQuery.size() + " of " + items.size() + " actors; " + snapshots);
+    }
+
     @NonNull
     protected String getSelection() {
         SqlWhere where = new SqlWhere();
@@ -111,7 +159,7 @@ public class ActorListLoader extends SyncLoader<ActorViewItem> {
 
     }
 
-    private void populateItem(Cursor cursor) {
+    private ActorViewItem populateItem(Cursor cursor) {
         ActorViewItem item = ActorViewItem.EMPTY.fromCursor(myContext, cursor);
         int index = items.indexOf(item);
         if (index < 0) {
@@ -119,6 +167,7 @@ public class ActorListLoader extends SyncLoader<ActorViewItem> {
         } else {
             items.set(index, item);
         }
+        return item;
     }
 
     protected String getSqlActorIds() {
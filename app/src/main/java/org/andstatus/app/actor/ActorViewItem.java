@@ -179,7 +179,7 @@ public class ActorViewItem extends ViewItem<ActorViewItem> implements Comparable
     }
 
     public Stream<Actor> getMyActorsFollowingTheActor(MyContext myContext) {
-        return NullUtil.getOrDefault(myContext.users().friendsOfMyActors, actor.actorId, Collections.emptySet()).stream()
+        return NullUtil.getOrDefault(myContext.users().friendsOfMyActors(), actor.actorId, Collections.emptySet()).stream()
                 .filter(id -> id != myFollowingActorToHide.actorId)
                 .map(id -> NullUtil.getOrDefault(myContext.users().actors, id, Actor.EMPTY))
                 .filter(Actor::nonEmpty);
@@ -32,6 +32,7 @@ import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.context.MyStorage;
 import org.andstatus.app.data.DataPruner;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MediaFilesSize;
 import org.andstatus.app.database.DatabaseHolder;
 import org.andstatus.app.service.MyServiceManager;
 import org.andstatus.app.service.MyServiceState;
@@ -293,6 +294,7 @@ public class MyBackupAgent extends BackupAgent {
         }
         assertNextHeader(data, DATABASE_KEY + "_" + DatabaseHolder.DATABASE_NAME);
         databasesRestored += restoreFile(data, MyStorage.getDatabasePath(DatabaseHolder.DATABASE_NAME));
+        MediaFilesSize.reset();
         MyContextHolder.release(() -> "doRestore");
         MyContextHolder.setOnRestore(true);
         MyContextHolder.initialize(this, this);
@@ -29,6 +29,8 @@ import org.acra.ACRA;
 import org.acra.ReportingInteractionMode;
 import org.acra.annotation.ReportsCrashes;
 import org.andstatus.app.R;
+import org.andstatus.app.graphics.ImageCaches;
+import org.andstatus.app.note.NoteContentCache;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtils;
 import org.andstatus.app.util.TamperingDetector;
@@ -64,6 +66,15 @@ public class MyApplication extends Application {
                 MyLocale.onConfigurationChanged(this, newConfig));
     }
     
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (!isAcraProcess) {
+            ImageCaches.onTrimMemory(level);
+            NoteContentCache.onTrimMemory(level);
+        }
+    }
+
     @Override
     public File getDatabasePath(String name) {
         return isAcraProcess ? super.getDatabasePath(name) : MyStorage.getDatabasePath(name);
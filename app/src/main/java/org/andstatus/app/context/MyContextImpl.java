@@ -26,12 +26,15 @@ import net.jcip.annotations.ThreadSafe;
 import org.andstatus.app.ClassInApplicationPackage;
 import org.andstatus.app.FirstActivity;
 import org.andstatus.app.account.MyAccounts;
+import org.andstatus.app.data.OidCache;
 import org.andstatus.app.data.converter.DatabaseConverterController;
 import org.andstatus.app.database.DatabaseHolder;
 import org.andstatus.app.graphics.ImageCaches;
 import org.andstatus.app.notification.NotificationData;
 import org.andstatus.app.notification.Notifier;
 import org.andstatus.app.origin.PersistentOrigins;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.service.ConnectionState;
 import org.andstatus.app.timeline.meta.PersistentTimelines;
 import org.andstatus.app.timeline.meta.Timeline;
@@ -41,8 +44,11 @@ import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.Permissions;
 import org.andstatus.app.util.RelativeTime;
 import org.andstatus.app.util.SharedPreferencesUtil;
+import org.andstatus.app.util.StopWatch;
 import org.andstatus.app.util.UriUtils;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Supplier;
 
 import androidx.annotation.NonNull;
@@ -145,16 +151,27 @@ public class MyContextImpl implements MyContext {
 
         switch (state) {
             case DATABASE_READY:
+                StopWatch stopWatch = StopWatch.createStarted();
                 if (!origins.initialize()) {
                     state = MyContextState.DATABASE_UNAVAILABLE;
                 } else if (MyContextHolder.isOnRestore()) {
                     state = MyContextState.RESTORING;
                 } else {
-                    users.initialize();
-                    accounts.initialize();
-                    timelines.initialize();
-                    ImageCaches.initialize(context());
+                    long originsMs = stopWatch.getTime();
+                    // Image caches don't depend on the database, so they are initialized in parallel
+                    CompletableFuture<Long> imageCachesMs = initializeImageCachesAsync();
+                    // Friends of my actors are loaded in the background, see CachedUsersAndActors#friendsOfMyActors
+                    long usersMs = millisOf(users::initialize);
+                    long accountsMs = millisOf(accounts::initialize);
+                    long timelinesMs = millisOf(timelines::initialize);
+                    long imagesMs = imageCachesMs.join();
                     state = MyContextState.READY;
+                    MyLog.i(this, "Caches initialized in " + stopWatch.getTime() + " ms"
+                            + "; origins:" + originsMs
+                            + ", my users:" + usersMs
+                            + ", accounts:" + accountsMs
+                            + ", timelines:" + timelinesMs
+                            + ", image caches (in parallel):" + imagesMs);
                 }
                 break;
             default:
@@ -166,6 +183,21 @@ public class MyContextImpl implements MyContext {
         return this;
     }
 
+    private CompletableFuture<Long> initializeImageCachesAsync() {
+        try {
+            return CompletableFuture.supplyAsync(() -> millisOf(() -> ImageCaches.initialize(context())),
+                    AsyncTaskLauncher.getPoolExecutor(MyAsyncTask.PoolEnum.BACKGROUND));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(millisOf(() -> ImageCaches.initialize(context())));
+        }
+    }
+
+    private static long millisOf(Runnable runnable) {
+        StopWatch stopWatch = StopWatch.createStarted();
+        runnable.run();
+        return stopWatch.getTime();
+    }
+
     private void initializeDatabase(boolean createApplicationData) {
         final String method = "initializeDatabase";
         DatabaseHolder newDb = new DatabaseHolder(context, createApplicationData);
@@ -181,6 +213,7 @@ public class MyContextImpl implements MyContext {
             db = null;
         }
         if (state() == MyContextState.DATABASE_READY) {
+            OidCache.clear();
             db = newDb;
 
           /* For testing:
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import androidx.annotation.NonNull;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.database.table.ActorTable;
+import org.andstatus.app.net.social.AActivity;
+import org.andstatus.app.net.social.Actor;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.MyStringBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Finds ids of all actors of activities (actors, authors, audience, authors of "in reply to" notes...)
+ * by a couple of queries per origin, instead of a query for each actor by {@link Actor#lookupActorId()}.
+ * Found ids are set to the actors, so their further lookup is not needed.
+ * The same rules are used as in {@link Actor#lookupActorId()}: oid first, then WebFinger ID,
+ * preferring an actor with a real oid.
+ * Actors, which were not found here, are looked up one by one later, as before
+ * @author yvolk@yurivolkov.com
+ */
+class ActorIdsResolver {
+    private static final int MAX_RECURSING = 4;
+    private static final int IN_VALUES_MAX = 500;
+    private static final String REAL_OID = "real_oid";
+
+    private final MyContext myContext;
+    private final Map<Long, List<Actor>> originToActors = new HashMap<>();
+    private long foundCount = 0;
+
+    ActorIdsResolver(MyContext myContext) {
+        this.myContext = myContext;
+    }
+
+    ActorIdsResolver resolve(@NonNull Collection<AActivity> activities) {
+        activities.forEach(activity -> addActorsOf(activity, 0));
+        originToActors.forEach((originId, actors) -> {
+            resolveByColumn(originId, actors.stream().filter(Actor::isOidReal), actor -> actor.oid,
+                    ActorTable.ACTOR_OID);
+            resolveByColumn(originId, actors.stream().filter(Actor::isWebFingerIdValid), Actor::getWebFingerId,
+                    ActorTable.WEBFINGER_ID);
+        });
+        return this;
+    }
+
+    private void addActorsOf(AActivity activity, int recursing) {
+        if (activity.isEmpty() || recursing > MAX_RECURSING) return;
+
+        addActor(activity.accountActor);
+        addActor(activity.getActor());
+        addActor(activity.getAuthor());
+        addActor(activity.getObjActor());
+        activity.getNote().audience().getActors().forEach(this::addActor);
+        addActorsOf(activity.getNote().getInReplyTo(), recursing + 1);
+        addActorsOf(activity.getActivity(), recursing + 1);
+    }
+
+    private void addActor(Actor actor) {
+        if (actor.actorId != 0 || actor.isConstant() || !actor.origin.isValid()) return;
+
+        originToActors.computeIfAbsent(actor.origin.getId(), id -> new ArrayList<>()).add(actor);
+    }
+
+    private void resolveByColumn(long originId, Stream<Actor> candidates,
+                                 Function<Actor, String> valueOf, String columnName) {
+        Map<String, List<Actor>> valueToActors = candidates
+                .filter(actor -> actor.actorId == 0)
+                .collect(Collectors.groupingBy(valueOf));
+        if (valueToActors.isEmpty()) return;
+
+        List<String> values = new ArrayList<>(valueToActors.keySet());
+        for (int from = 0; from < values.size(); from += IN_VALUES_MAX) {
+            Map<String, Long> found = findIds(originId, columnName,
+                    values.subList(from, Integer.min(from + IN_VALUES_MAX, values.size())));
+            found.forEach((value, id) -> valueToActors.getOrDefault(value, Collections.emptyList())
+                    .forEach(actor -> {
+                        if (actor.actorId == 0) {
+                            actor.actorId = id;
+                            foundCount++;
+                            if (columnName.equals(ActorTable.ACTOR_OID)) {
+                                OidCache.put(OidEnum.ACTOR_OID, originId, value, id);
+                            }
+                        }
+                    }));
+        }
+    }
+
+    /** The same as {@link MyQuery#webFingerIdToId} with "checkOid=true", but for many values at once */
+    private Map<String, Long> findIds(long originId, String columnName, List<String> values) {
+        String sql = "SELECT " + ActorTable._ID + ", " + columnName + ", " +
+                ActorTable.ACTOR_OID + " NOT LIKE('andstatustemp:%') AS " + REAL_OID +
+                " FROM " + ActorTable.TABLE_NAME +
+                " WHERE " + ActorTable.ORIGIN_ID + "=" + originId +
+                " AND " + columnName + " IN (" +
+                    values.stream().map(MyQuery::quoteIfNotQuoted).collect(Collectors.joining(",")) + ")" +
+                " ORDER BY " + ActorTable._ID;
+        Map<String, Long> withRealOid = new HashMap<>();
+        Map<String, Long> any = new HashMap<>();
+        Set<String> requested = new HashSet<>(values);
+        MyQuery.foldLeft(myContext, sql, any, map -> cursor -> {
+            String value = DbUtils.getString(cursor, columnName);
+            if (requested.contains(value)) {
+                long id = DbUtils.getLong(cursor, ActorTable._ID);
+                map.putIfAbsent(value, id);
+                if (DbUtils.getLong(cursor, REAL_OID) != 0) withRealOid.putIfAbsent(value, id);
+            }
+            return map;
+        });
+        any.putAll(withRealOid);
+        return any;
+    }
+
+    @Override
+    public String toString() {
+        return MyStringBuilder.formatKeyValue(this, "origins:" + originToActors.size()
+                + ", actors:" + originToActors.values().stream().mapToInt(List::size).sum()
+                + ", found:" + foundCount);
+    }
+
+    static void resolveActorIds(MyContext myContext, Collection<AActivity> activities) {
+        ActorIdsResolver resolver = new ActorIdsResolver(myContext).resolve(activities);
+        MyLog.v(ActorIdsResolver.class, resolver::toString);
+    }
+}
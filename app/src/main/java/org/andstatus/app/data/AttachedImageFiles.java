@@ -27,8 +27,11 @@ import org.andstatus.app.util.IsEmpty;
 import org.andstatus.app.util.MyStringBuilder;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -50,18 +53,38 @@ public class AttachedImageFiles implements IsEmpty {
     }
 
     public static AttachedImageFiles load(MyContext myContext, long noteId) {
-        final String sql = "SELECT *" +
-                " FROM " + DownloadTable.TABLE_NAME + 
-                " WHERE " + DownloadTable.NOTE_ID + "=" + noteId +
-                " AND " + DownloadTable.DOWNLOAD_TYPE + "=" + DownloadType.ATTACHMENT.save() + 
-                " AND " + DownloadTable.CONTENT_TYPE +
-                " IN(" + MyContentType.IMAGE.save() + ", " + MyContentType.VIDEO.save() + ")" +
-                " ORDER BY " + DownloadTable.DOWNLOAD_NUMBER;
-        List<AttachedImageFile> imageFiles1 = MyQuery.getList(myContext, sql, AttachedImageFile::fromCursor);
+        List<AttachedImageFile> imageFiles1 = MyQuery.getList(myContext, sqlOfNotes(SqlIds.fromId(noteId)),
+                AttachedImageFile::fromCursor);
         List<AttachedImageFile> imageFiles2 = foldPreviews(imageFiles1);
         return new AttachedImageFiles(imageFiles2);
     }
 
+    /** Attached images of several notes, loaded by one query
+     * @return Attached images by note ids. Notes without images are absent */
+    public static Map<Long, AttachedImageFiles> load(MyContext myContext, Collection<Long> noteIds) {
+        Map<Long, AttachedImageFiles> out = new HashMap<>();
+        if (noteIds.isEmpty()) return out;
+
+        Map<Long, List<AttachedImageFile>> imageFiles = new HashMap<>();
+        MyQuery.foldLeft(myContext, sqlOfNotes(SqlIds.fromIds(noteIds)), imageFiles, map -> cursor -> {
+            map.computeIfAbsent(DbUtils.getLong(cursor, DownloadTable.NOTE_ID), id -> new ArrayList<>())
+                    .add(AttachedImageFile.fromCursor(cursor));
+            return map;
+        });
+        imageFiles.forEach((noteId, list) -> out.put(noteId, new AttachedImageFiles(foldPreviews(list))));
+        return out;
+    }
+
+    private static String sqlOfNotes(SqlIds noteIds) {
+        return "SELECT *" +
+                " FROM " + DownloadTable.TABLE_NAME +
+                " WHERE " + DownloadTable.NOTE_ID + noteIds.getSql() +
+                " AND " + DownloadTable.DOWNLOAD_TYPE + "=" + DownloadType.ATTACHMENT.save() +
+                " AND " + DownloadTable.CONTENT_TYPE +
+                " IN(" + MyContentType.IMAGE.save() + ", " + MyContentType.VIDEO.save() + ")" +
+                " ORDER BY " + DownloadTable.NOTE_ID + ", " + DownloadTable.DOWNLOAD_NUMBER;
+    }
+
     private static List<AttachedImageFile> foldPreviews(List<AttachedImageFile> imageFiles) {
         List<AttachedImageFile> out = new ArrayList<>();
         List<Long> toSkip = imageFiles.stream().map(i -> i.previewOfDownloadId).filter(i -> i != 0)
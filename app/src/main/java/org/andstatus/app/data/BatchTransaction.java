@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.StopWatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps writes of one batch (e.g. of one downloaded timeline page) into a single database transaction,
+ * so we have one commit per page instead of one commit per row.
+ * The batch is committed only if it was marked successful (see {@link #setSuccessful()}),
+ * otherwise changes of all its items are rolled back.
+ * Nested batches of the same thread join the outer transaction.
+ * A batch may begin its transaction on its first item only (see {@link #beginOnFirstItem(MyContext, String)}),
+ * so a batch without items doesn't begin a transaction.
+ * Changes of in-memory state, which reflect changes of the batch, are applied after its commit only,
+ * see {@link #afterCommit(Runnable)}
+ * @author yvolk@yurivolkov.com
+ */
+public class BatchTransaction {
+    private static final String TAG = BatchTransaction.class.getSimpleName();
+    private static final BatchTransaction EMPTY = new BatchTransaction(null, null, "empty", false);
+
+    private static final AtomicLong commitsCount = new AtomicLong();
+    private static final AtomicLong rowsCommitted = new AtomicLong();
+    private static final AtomicLong rollbacksCount = new AtomicLong();
+    /** The outermost batch of the thread, which has begun its transaction */
+    private static final ThreadLocal<BatchTransaction> outerBatch = new ThreadLocal<>();
+
+    /** The context of a batch, which didn't begin its transaction yet */
+    private MyContext myContext;
+    private SQLiteDatabase db;
+    private final String name;
+    private boolean isOuter;
+    private final StopWatch stopWatch = StopWatch.createStarted();
+    private long changesAtStart;
+    private int itemsCount = 0;
+    private boolean successful = false;
+    private final List<Runnable> afterCommitActions = new ArrayList<>();
+
+    private BatchTransaction(MyContext myContext, SQLiteDatabase db, String name, boolean isOuter) {
+        this.myContext = myContext;
+        this.db = db;
+        this.name = name;
+        this.isOuter = isOuter;
+        changesAtStart = isOuter ? totalChanges(db) : 0;
+    }
+
+    @NonNull
+    public static BatchTransaction begin(@NonNull MyContext myContext, String name) {
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            MyLog.databaseIsNull(() -> "Begin batch " + name);
+            return EMPTY;
+        }
+        if (db.inTransaction()) {
+            return new BatchTransaction(null, db, name, false);
+        }
+        db.beginTransactionNonExclusive();
+        BatchTransaction batch = new BatchTransaction(null, db, name, true);
+        outerBatch.set(batch);
+        OidCache.onTransactionBegun();
+        return batch;
+    }
+
+    /** The batch, which begins its transaction on the first item, see {@link #execute(Runnable)} */
+    @NonNull
+    public static BatchTransaction beginOnFirstItem(@NonNull MyContext myContext, String name) {
+        return new BatchTransaction(myContext, null, name, false);
+    }
+
+    private void beginIfNotBegun() {
+        if (myContext == null) return;
+
+        BatchTransaction begun = begin(myContext, name);
+        myContext = null;
+        db = begun.db;
+        isOuter = begun.isOuter;
+        changesAtStart = begun.changesAtStart;
+        if (isOuter) outerBatch.set(this);
+    }
+
+    /** Runs the action after the commit of the outermost batch of this thread,
+     * or immediately, if this thread has no batch with a begun transaction.
+     * The action is dropped, if the batch is rolled back */
+    public static void afterCommit(@NonNull Runnable action) {
+        BatchTransaction batch = outerBatch.get();
+        if (batch == null) {
+            action.run();
+        } else {
+            batch.afterCommitActions.add(action);
+        }
+    }
+
+    /** Executes one item of the batch. An exception of the item is not caught,
+     * so the batch is not marked successful and it is rolled back by {@link #end()} */
+    public void execute(@NonNull Runnable item) {
+        beginIfNotBegun();
+        itemsCount++;
+        item.run();
+    }
+
+    /** Marks all items of the batch as executed, so the batch will be committed by {@link #end()} */
+    public void setSuccessful() {
+        successful = true;
+    }
+
+    /** Commits the successful batch or rolls it back,
+     * if this is the outermost batch of the thread and its transaction has begun */
+    public void end() {
+        myContext = null;
+        if (db == null || !isOuter) return;
+
+        outerBatch.remove();
+        long rows = totalChanges(db) - changesAtStart;
+        boolean committed = false;
+        try {
+            try {
+                if (successful) db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            committed = successful;
+        } finally {
+            OidCache.onTransactionEnded(committed);
+        }
+        if (!committed) {
+            rollbacksCount.incrementAndGet();
+            MyLog.w(TAG, name + "; rolled back " + rows + " rows of " + itemsCount + " items");
+            afterCommitActions.clear();
+            return;
+        }
+        afterCommitActions.forEach(Runnable::run);
+        afterCommitActions.clear();
+        long commits = commitsCount.incrementAndGet();
+        long rowsTotal = rowsCommitted.addAndGet(rows);
+        if (!MyLog.isDebugEnabled()) return;
+
+        MyLog.d(TAG, name + "; committed " + rows + " rows of " + itemsCount + " items in "
+                + stopWatch.getTime() + " ms. Total: " + commits + " commits, "
+                + String.format("%.1f", ((double) rowsTotal) / commits) + " rows per commit, "
+                + rollbacksCount.get() + " rollbacks");
+    }
+
+    private static long totalChanges(SQLiteDatabase db) {
+        return db == null ? 0 : DatabaseUtils.longForQuery(db, "SELECT total_changes()", null);
+    }
+
+    public static long getCommitsCount() {
+        return commitsCount.get();
+    }
+
+    public static long getRowsCommitted() {
+        return rowsCommitted.get();
+    }
+
+    public static long getRollbacksCount() {
+        return rollbacksCount.get();
+    }
+}
@@ -16,7 +16,6 @@
 
 package org.andstatus.app.data;
 
-import android.content.ContentResolver;
 import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
@@ -37,15 +36,17 @@ import org.andstatus.app.timeline.meta.DisplayedInSelector;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
-import org.andstatus.app.util.SelectionAndArgs;
 import org.andstatus.app.util.SharedPreferencesUtil;
+import org.andstatus.app.util.StopWatch;
 
 import java.io.File;
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Clean database from outdated information
@@ -57,7 +58,6 @@ public class DataPruner {
     @NonNull
     private final MyContext myContext;
     private final SQLiteDatabase db;
-    private final ContentResolver mContentResolver;
     private boolean pruneNow = false;
     private ProgressLogger logger = ProgressLogger.getEmpty(TAG);
     private long mDeleted = 0;
@@ -65,13 +65,14 @@ public class DataPruner {
     static final long MAX_DAYS_UNUSED_TIMELINES_TO_KEEP = 31;
     private static final long PRUNE_MIN_PERIOD_DAYS = 1;
     private static final double ATTACHMENTS_SIZE_PART = 0.90;
+    static final int ACTIVITIES_CHUNK_SIZE = 500;
+    private static final int PAUSE_BETWEEN_CHUNKS_MS = 50;
 
     private long latestTimestamp;
 
     public DataPruner(@NonNull MyContext myContext) {
         this.myContext = myContext;
         this.db = myContext.getDatabase();
-        mContentResolver = myContext.context().getContentResolver();
     }
 
     public DataPruner setPruneNow() {
@@ -101,6 +102,7 @@ public class DataPruner {
 
         if (mDeleted > 0) {
             pruneParentlessAttachments();
+            myContext.getNotifier().recount();
         }
         deleteTempFiles();
         pruneMedia();
@@ -119,16 +121,10 @@ public class DataPruner {
 
         boolean pruned = false;
         mDeleted = 0;
-        int nDeletedTime = 0;
+        long nDeletedTime = 0;
         // We're using global preferences here
         SharedPreferences sp = SharedPreferencesUtil.getDefaultSharedPreferences();
 
-        // Don't delete my activities
-        final SqlIds myActorIds = SqlIds.myActorsIds();
-        String sqlNotMyActivity = ActivityTable.TABLE_NAME + "." + ActivityTable.ACTOR_ID + myActorIds.getNotSql();
-        String sqlNotLatestActivityByActor = ActivityTable.TABLE_NAME + "." + ActivityTable._ID + " NOT IN("
-                + " SELECT " + ActorTable.ACTOR_ACTIVITY_ID + " FROM " + ActorTable.TABLE_NAME + ")";
-
         long maxDays = Integer.parseInt(sp.getString(MyPreferences.KEY_HISTORY_TIME, "3"));
         latestTimestamp = getLatestTimestamp(maxDays);
 
@@ -137,44 +133,27 @@ public class DataPruner {
         long nDeletedSize = 0;
         long maxSize = Integer.parseInt(sp.getString(MyPreferences.KEY_HISTORY_SIZE, "2000"));
         long latestTimestampSize = 0;
-        Cursor cursor = null;
         try {
             if (maxDays > 0) {
-                SelectionAndArgs sa = new SelectionAndArgs();
-                sa.addSelection(ActivityTable.TABLE_NAME + "." + ActivityTable.INS_DATE + " <  ?",
-                        Long.toString(latestTimestamp));
-                sa.addSelection(sqlNotMyActivity);
-                sa.addSelection(sqlNotLatestActivityByActor);
-                nDeletedTime = MyProvider.deleteActivities(myContext.getDatabase(), sa.selection, sa.selectionArgs, false);
+                nDeletedTime = deleteActivitiesInChunks(latestTimestamp - 1);
             }
 
-            if (maxSize > 0) {
+            if (maxSize > 0 && !logger.isCancelled()) {
                 nActivities = MyQuery.getCountOfActivities("");
                 nToDeleteSize = nActivities - maxSize;
                 if (nToDeleteSize > 0) {
-                    // Find INS_DATE of the most recent tweet to delete
-                    cursor = mContentResolver.query(MatchedUri.ACTIVITY_CONTENT_URI, new String[] {
-                            ActivityTable.INS_DATE
-                    }, null, null, ActivityTable.INS_DATE + " ASC LIMIT 0," + nToDeleteSize);
-                    if (cursor.moveToLast()) {
-                        latestTimestampSize = cursor.getLong(0);
-                    }
-                    cursor.close();
+                    // Find INS_DATE of the most recent activity to delete, using the index by INS_DATE
+                    latestTimestampSize = MyQuery.sqlToLong(db, method, "SELECT " + ActivityTable.INS_DATE
+                            + " FROM " + ActivityTable.TABLE_NAME
+                            + " ORDER BY " + ActivityTable.INS_DATE + " ASC LIMIT 1 OFFSET " + (nToDeleteSize - 1));
                     if (latestTimestampSize > 0) {
-                        SelectionAndArgs sa = new SelectionAndArgs();
-                        sa.addSelection(ActivityTable.TABLE_NAME + "." + ActivityTable.INS_DATE + " <=  ?",
-                                Long.toString(latestTimestampSize));
-                        sa.addSelection(sqlNotMyActivity);
-                        sa.addSelection(sqlNotLatestActivityByActor);
-                        nDeletedSize = MyProvider.deleteActivities(myContext.getDatabase(), sa.selection, sa.selectionArgs, false);
+                        nDeletedSize = deleteActivitiesInChunks(latestTimestampSize);
                     }
                 }
             }
-            pruned = true;
+            pruned = !logger.isCancelled();
         } catch (Exception e) {
             MyLog.i(logger.logTag, method + " failed", e);
-        } finally {
-            DbUtils.closeSilently(cursor);
         }
         mDeleted = nDeletedTime + nDeletedSize;
         logger.logProgressAndPause(
@@ -185,12 +164,70 @@ public class DataPruner {
         return pruned;
     }
 
+    /**
+     * Deletes activities, inserted not later than the date, in chunks of {@link #ACTIVITIES_CHUNK_SIZE},
+     * going from older to newer ones. Each chunk is deleted in a separate short transaction,
+     * so synchronization, which runs in parallel, isn't blocked for long.
+     * My activities and latest activities of actors are not deleted.
+     * @return number of deleted rows
+     */
+    private long deleteActivitiesInChunks(long maxInsDate) {
+        final String method = "deleteActivitiesInChunks";
+        final SqlIds myActorIds = SqlIds.myActorsIds();
+        StopWatch stopWatch = StopWatch.createStarted();
+        long deleted = 0;
+        long chunks = 0;
+        long prevInsDate = Long.MIN_VALUE;
+        long prevId = 0;
+        while (!logger.isCancelled()) {
+            // Keyset (INS_DATE, _ID) of the previous chunk, so we don't rescan kept activities
+            String sql = "SELECT " + ActivityTable._ID + ", " + ActivityTable.INS_DATE
+                    + " FROM " + ActivityTable.TABLE_NAME + " AS act"
+                    + " WHERE act." + ActivityTable.INS_DATE + "<=" + maxInsDate
+                    + " AND (act." + ActivityTable.INS_DATE + ">" + prevInsDate
+                    + " OR (act." + ActivityTable.INS_DATE + "=" + prevInsDate
+                    + " AND act." + ActivityTable._ID + ">" + prevId + "))"
+                    + " AND act." + ActivityTable.ACTOR_ID + myActorIds.getNotSql()
+                    + " AND NOT EXISTS (SELECT * FROM " + ActorTable.TABLE_NAME
+                    + " WHERE " + ActorTable.ACTOR_ACTIVITY_ID + "=act." + ActivityTable._ID + ")"
+                    + " ORDER BY act." + ActivityTable.INS_DATE + ", act." + ActivityTable._ID
+                    + " LIMIT " + ACTIVITIES_CHUNK_SIZE;
+            List<long[]> chunk = MyQuery.getList(myContext, sql, cursor -> new long[]{
+                    DbUtils.getLong(cursor, ActivityTable._ID), DbUtils.getLong(cursor, ActivityTable.INS_DATE)});
+            if (chunk.isEmpty()) break;
+
+            deleted += MyProvider.deleteActivities(db,
+                    chunk.stream().map(idAndDate -> idAndDate[0]).collect(Collectors.toList()));
+            chunks++;
+            long[] last = chunk.get(chunk.size() - 1);
+            prevId = last[0];
+            prevInsDate = last[1];
+            if (chunk.size() < ACTIVITIES_CHUNK_SIZE) break;
+
+            if (logger.loggedMoreSecondsAgoThan(ProgressLogger.PROGRESS_REPORT_PERIOD_SECONDS)) {
+                logger.logProgress(method + "; deleted " + deleted + " rows in " + chunks + " chunks, "
+                        + rowsPerSecond(deleted, stopWatch) + " rows/sec, up to " + new Date(prevInsDate).toString());
+            }
+            // Let other threads, e.g. MyService syncing, write to the database between our transactions
+            DbUtils.waitMs(method, PAUSE_BETWEEN_CHUNKS_MS);
+        }
+        if (chunks > 0) {
+            logger.logProgress(method + "; deleted " + deleted + " rows in " + chunks + " chunks, "
+                    + rowsPerSecond(deleted, stopWatch) + " rows/sec, " + stopWatch.getTime() + " ms");
+        }
+        return deleted;
+    }
+
+    private static long rowsPerSecond(long rows, StopWatch stopWatch) {
+        return rows * 1000 / Long.max(stopWatch.getTime(), 1);
+    }
+
     private void deleteTempFiles() {
         MyStorage.getMediaFiles().filter(MyStorage::isTempFile).forEach(File::delete);
     }
 
     long pruneMedia() {
-        long dirSize = MyStorage.getMediaFilesSize();
+        long dirSize = MediaFilesSize.getTotal(myContext);
         long maxSize = MyPreferences.getMaximumSizeOfCachedMediaBytes();
         final long bytesToPrune = dirSize - maxSize;
         long bytesToPruneMin = ATTACHMENTS_TO_STORE_MIN * MyPreferences.getMaximumSizeOfAttachmentBytes();
@@ -35,6 +35,7 @@ import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.net.social.Note;
 import org.andstatus.app.net.social.TimelinePosition;
 import org.andstatus.app.note.KeywordsFilter;
+import org.andstatus.app.notification.NotificationEventType;
 import org.andstatus.app.service.CommandData;
 import org.andstatus.app.service.CommandEnum;
 import org.andstatus.app.service.CommandExecutionContext;
@@ -44,6 +45,7 @@ import org.andstatus.app.util.SharedPreferencesUtil;
 import org.andstatus.app.util.StringUtils;
 import org.andstatus.app.util.TriState;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -65,10 +67,21 @@ public class DataUpdater {
     private KeywordsFilter keywordsFilter = new KeywordsFilter(
             SharedPreferencesUtil.getString(MyPreferences.KEY_FILTER_HIDE_NOTES_BASED_ON_KEYWORDS, ""));
 
+    /** Stores activities in one {@link BatchTransaction} */
     public static void onActivities(CommandExecutionContext execContext, List<AActivity> activities) {
+        if (activities.isEmpty()) return;
+
         DataUpdater dataUpdater = new DataUpdater(execContext);
-        for (AActivity mbActivity : activities) {
-            dataUpdater.onActivity(mbActivity);
+        BatchTransaction batch = BatchTransaction.begin(execContext.getMyContext(), "onActivities");
+        try {
+            ActorIdsResolver.resolveActorIds(execContext.getMyContext(), activities);
+            for (AActivity mbActivity : activities) {
+                batch.execute(() -> dataUpdater.onActivityInternal(mbActivity, false, 0));
+            }
+            dataUpdater.saveLum();
+            batch.setSuccessful();
+        } finally {
+            batch.end();
         }
     }
 
@@ -90,6 +103,9 @@ public class DataUpdater {
     }
 
     public AActivity onActivity(AActivity activity, boolean saveLum) {
+        if (activity != null && activity.nonEmpty()) {
+            ActorIdsResolver.resolveActorIds(execContext.getMyContext(), Collections.singletonList(activity));
+        }
         return onActivityInternal(activity, saveLum, 0);
     }
 
@@ -135,7 +151,8 @@ public class DataUpdater {
         if ( !activity.isAuthorActor()) {
             lum.onNewActorActivity(new ActorActivity(activity.getAuthor().actorId, activity.getId(), activity.getUpdatedDate()));
         }
-        execContext.getResult().onNotificationEvent(activity.getNewNotificationEventType());
+        NotificationEventType event = activity.getNewNotificationEventType();
+        BatchTransaction.afterCommit(() -> execContext.getResult().onNotificationEvent(event));
     }
 
     public void saveLum() {
@@ -293,8 +310,10 @@ public class DataUpdater {
                     activity.setNotified(TriState.FALSE);
                 } else {
                     if (note.getStatus() == DownloadStatus.LOADED) {
-                        execContext.getResult().incrementDownloadedCount();
-                        execContext.getResult().incrementNewCount();
+                        BatchTransaction.afterCommit(() -> {
+                            execContext.getResult().incrementDownloadedCount();
+                            execContext.getResult().incrementNewCount();
+                        });
                     }
                 }
             }
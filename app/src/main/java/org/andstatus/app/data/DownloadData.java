@@ -25,7 +25,9 @@ import org.andstatus.app.util.UriUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import androidx.annotation.NonNull;
@@ -231,6 +233,22 @@ public class DownloadData implements IsEmpty {
                 + "." + getExtension());
     }
 
+    /** Names the downloaded file by its content, so identical downloads, e.g. the same image
+     * reblogged in different origins, share one file and one {@link org.andstatus.app.graphics.ImageCache} entry
+     * @return the file to keep the content. It may already exist, if it is used by another download */
+    @NonNull
+    public DownloadFile onContentHash(@NonNull String contentHash) {
+        if (StringUtils.nonEmpty(contentHash)) {
+            fileNew = new DownloadFile(downloadType.filePrefix + "_" + contentHash + "." + getExtension());
+        }
+        return fileNew;
+    }
+
+    /** The content was not modified, so the stored file is kept as it is */
+    public void keepStoredFile() {
+        fileNew = fileStored;
+    }
+
     public void onDownloaded() {
         fileNew = new DownloadFile(fileNew.getFilename());
         if (isError() || !fileNew.existed) {
@@ -275,6 +293,30 @@ public class DownloadData implements IsEmpty {
         return previewOfDownloadId;
     }
 
+    /** The file may be shared with other downloads (see {@link #onContentHash(String)}), so the file is stored
+     * and this download is saved to the database in one transaction. Usages of files are counted and unused
+     * files are deleted in transactions also (see {@link #deleteIfNotUsed(SQLiteDatabase, String)}),
+     * so the database serializes these operations, and a file is not deleted, while a download starts to use it
+     * @param storeFile moves the downloaded file to its place or shares the existing file */
+    public void saveWithFile(@NonNull Runnable storeFile) {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            MyLog.databaseIsNull(() -> "saveWithFile");
+            storeFile.run();
+            onDownloaded();
+            return;
+        }
+        db.beginTransactionNonExclusive();
+        try {
+            storeFile.run();
+            onDownloaded();
+            saveToDatabase();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
     public void saveToDatabase() {
         if (hardError) {
             status = DownloadStatus.HARD_ERROR;
@@ -323,7 +365,7 @@ public class DownloadData implements IsEmpty {
         boolean filenameChanged = !isError() && fileNew.existsNow()
                 && !fileStored.getFilename().equals(fileNew.getFilename());
         if (filenameChanged) {
-            fileStored.delete();
+            deleteIfNotUsed(MyContextHolder.get().getDatabase(), fileStored.getFilename());
         }
     }
 
@@ -414,16 +456,24 @@ public class DownloadData implements IsEmpty {
                 MyLog.databaseIsNull(() -> TAG);
                 return;
             }
+            // The transaction of a caller, e.g. of deleted notes, serializes this with downloads already
+            boolean inTransaction = db.inTransaction();
+            if (!inTransaction) db.beginTransactionNonExclusive();
             try (Cursor cursor = db.rawQuery(sql, null)) {
+                Set<String> filenames = new HashSet<>();
                 while (cursor.moveToNext()) {
                     long rowIdOld = DbUtils.getLong(cursor, DownloadTable._ID);
-                    new DownloadFile(DbUtils.getString(cursor, DownloadTable.FILE_NAME)).delete();
+                    filenames.add(DbUtils.getString(cursor, DownloadTable.FILE_NAME));
                     rowsDeleted += db.delete(DownloadTable.TABLE_NAME, DownloadTable._ID
                             + "=" + rowIdOld, null);
                 }
+                filenames.forEach(filename -> deleteIfNotUsed(db, filename));
+                if (!inTransaction) db.setTransactionSuccessful();
                 done = true;
             } catch (SQLiteException e) {
                 MyLog.i(DownloadData.class, method + ", Database error, pass=" + pass + "; sql='" + sql + "'", e);
+            } finally {
+                if (!inTransaction) db.endTransaction();
             }
             if (done) break;
             DbUtils.waitMs(method, 500);
@@ -434,15 +484,51 @@ public class DownloadData implements IsEmpty {
         }
     }
 
+    /** Number of downloads, which share the file, except for the excluded one */
+    private static long countUsages(SQLiteDatabase db, String filename, long excludedDownloadId) {
+        return MyQuery.sqlToLong(db, "countUsages", "SELECT COUNT(*) FROM " + DownloadTable.TABLE_NAME
+                + " WHERE " + DownloadTable.FILE_NAME + "=" + MyQuery.quoteIfNotQuoted(filename)
+                + (excludedDownloadId == 0 ? "" : " AND " + DownloadTable._ID + "<>" + excludedDownloadId));
+    }
+
+    /** Deletes the file, if no downloads refer to it.
+     * Should be called inside a transaction, see {@link #saveWithFile(Runnable)} */
+    private static void deleteIfNotUsed(SQLiteDatabase db, String filename) {
+        if (StringUtils.isEmpty(filename)) return;
+
+        long usages = countUsages(db, filename, 0);
+        if (usages == 0) {
+            new DownloadFile(filename).delete();
+        } else {
+            MyLog.v(TAG, () -> "Keeping file " + filename + " used by " + usages + " downloads");
+        }
+    }
+
+    /** If the file is shared with other downloads, this download only stops using it */
     public void deleteFile() {
-        if (fileStored.existed) {
-            fileStored.delete();
-            if (fileStored.existsNow()) return;
+        if (!fileStored.existed) return;
+
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            MyLog.databaseIsNull(() -> "deleteFile");
+            return;
+        }
+        db.beginTransactionNonExclusive();
+        try {
+            if (countUsages(db, fileStored.getFilename(), downloadId) > 0) {
+                fileNew = DownloadFile.EMPTY;
+            } else {
+                fileStored.delete();
+                if (fileStored.existsNow()) return;
+            }
 
             hardError = false;
             softError = false;
             onNoFile();
             saveToDatabase();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
     }
 
@@ -552,32 +638,61 @@ public class DownloadData implements IsEmpty {
     }
 
     static ConsumedSummary pruneFiles(MyContext myContext, DownloadType downloadType, long bytesToKeep) {
-        return consumeOldest(myContext, downloadType, bytesToKeep, DownloadData::deleteFile);
+        return consumeOldest(myContext, downloadType, bytesToKeep,
+                filename -> deleteFileOfDownloads(myContext.getDatabase(), filename));
     }
 
+    /** Files are selected by the database only: existence and sizes of files are not checked */
     private static ConsumedSummary consumeOldest(MyContext myContext, DownloadType downloadType, long totalSizeToSkip,
-                                                 Consumer<DownloadData> consumer) {
-        final String sql = "SELECT *"
+                                                 Consumer<String> fileConsumer) {
+        final String sql = "SELECT " + DownloadTable.FILE_NAME + ", " + DownloadTable.FILE_SIZE
                 + " FROM " + DownloadTable.TABLE_NAME
                 + " WHERE " + DownloadTable.DOWNLOAD_TYPE + "='" + downloadType.save() + "'"
                 + " AND " + DownloadTable.DOWNLOAD_STATUS + "=" + DownloadStatus.LOADED.save()
                 + " ORDER BY " + DownloadTable.DOWNLOADED_DATE + " DESC";
-        return MyQuery.foldLeft(myContext, sql,
+        ConsumedSummary summary = MyQuery.foldLeft(myContext, sql,
                 new ConsumedSummary(),
-                summary -> cursor -> {
-                        DownloadData data = DownloadData.fromCursor(cursor);
-                        if (data.fileStored.existed) {
-                            if (summary.skippedSize < totalSizeToSkip) {
-                                summary.skippedSize += data.fileSize;
+                summary1 -> cursor -> {
+                        String filename = DbUtils.getString(cursor, DownloadTable.FILE_NAME);
+                        long fileSize = DbUtils.getLong(cursor, DownloadTable.FILE_SIZE);
+                        if (StringUtils.nonEmpty(filename) && fileSize > 0
+                                && !summary1.skippedFiles.contains(filename)
+                                && !summary1.consumedFiles.contains(filename)) {
+                            // The newest download of the file decides, whether the file is kept
+                            if (summary1.skippedSize < totalSizeToSkip) {
+                                summary1.skippedFiles.add(filename);
+                                summary1.skippedSize += fileSize;
                             } else {
-                                summary.consumedCount += 1;
-                                summary.consumedSize += data.fileSize;
-                                consumer.accept(data);
+                                summary1.consumedFiles.add(filename);
+                                summary1.consumedCount += 1;
+                                summary1.consumedSize += fileSize;
                             }
                         }
-                    return summary;
+                    return summary1;
                 }
             );
+        summary.consumedFiles.forEach(fileConsumer);
+        return summary;
+    }
+
+    /** Deletes the file and marks all downloads, which shared it, as absent */
+    private static void deleteFileOfDownloads(SQLiteDatabase db, String filename) {
+        if (db == null) {
+            MyLog.databaseIsNull(() -> TAG);
+            return;
+        }
+        DownloadFile file = new DownloadFile(filename);
+        file.delete();
+        if (file.existsNow()) return;
+
+        ContentValues values = new ContentValues();
+        values.put(DownloadTable.DOWNLOAD_STATUS, DownloadStatus.ABSENT.save());
+        values.put(DownloadTable.FILE_NAME, "");
+        values.put(DownloadTable.FILE_SIZE, 0);
+        MediaMetadata.EMPTY.toContentValues(values);
+        values.put(DownloadTable.DOWNLOADED_DATE, RelativeTime.DATETIME_MILLIS_NEVER);
+        db.update(DownloadTable.TABLE_NAME, values,
+                DownloadTable.FILE_NAME + "=" + MyQuery.quoteIfNotQuoted(filename), null);
     }
 
     public long getDownloadedDate() {
@@ -596,6 +711,9 @@ public class DownloadData implements IsEmpty {
         long skippedSize = 0;
         long consumedCount = 0;
         long consumedSize = 0;
+        /** Each of the files, which may be shared by several downloads, is counted once */
+        final Set<String> skippedFiles = new HashSet<>();
+        final Set<String> consumedFiles = new HashSet<>();
     }
 
 }
@@ -24,10 +24,16 @@ import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtils;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Objects;
 
 public class DownloadFile implements IsEmpty {
     public static final DownloadFile EMPTY = new DownloadFile("");
+    private static final int BUFFER_LENGTH = 8192;
 
     private final String filename;
     private final File file;
@@ -71,6 +77,30 @@ public class DownloadFile implements IsEmpty {
         return filename;
     }
 
+    /** SHA-256 of the file content as a hex string, so identical downloads may share one file.
+     * Empty if the file doesn't exist or couldn't be read */
+    @NonNull
+    public String contentHash() {
+        if (!existsNow()) return "";
+
+        try (InputStream in = new FileInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[BUFFER_LENGTH];
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, length);
+            }
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest.digest()) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            MyLog.w(this, "Couldn't calculate hash of " + file, e);
+            return "";
+        }
+    }
+
     /** returns true if the file existed and was deleted */
     public boolean delete() {
         return deleteFileLogged(file);
@@ -79,8 +109,10 @@ public class DownloadFile implements IsEmpty {
     private boolean deleteFileLogged(File file) {
         boolean deleted = false;
         if(existsNow()) {
+            long size = file.length();
             deleted = file.delete();
             if (deleted) {
+                MediaFilesSize.add(filename, -size);
                 MyLog.v(this, () -> "Deleted file " + file);
             } else {
                 MyLog.e(this, "Couldn't delete file " + file);
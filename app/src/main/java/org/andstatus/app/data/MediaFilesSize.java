@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.database.table.DownloadTable;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SharedPreferencesUtil;
+import org.andstatus.app.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Running total of sizes of downloaded media files per {@link DownloadType}, persisted in SharedPreferences.
+ * It is updated, when a downloaded file is stored or deleted, so we don't need to walk the media folder
+ * to know its size. The total, which is not known yet, is recounted from {@link DownloadTable}
+ * @author yvolk@yurivolkov.com
+ */
+public class MediaFilesSize {
+    private static final String TAG = MediaFilesSize.class.getSimpleName();
+    private static final String KEY_PREFIX = "media_files_size_";
+    private static final long UNKNOWN = -1;
+
+    private MediaFilesSize() {
+        // Empty
+    }
+
+    /** Total size of downloaded media files of all types */
+    public static long getTotal(@NonNull MyContext myContext) {
+        return Arrays.stream(DownloadType.values())
+                .filter(downloadType -> downloadType != DownloadType.UNKNOWN)
+                .mapToLong(downloadType -> get(myContext, downloadType))
+                .sum();
+    }
+
+    public static synchronized long get(@NonNull MyContext myContext, @NonNull DownloadType downloadType) {
+        long size = SharedPreferencesUtil.getLong(toKey(downloadType), UNKNOWN);
+        if (size < 0) {
+            size = recount(myContext.getDatabase(), downloadType);
+            SharedPreferencesUtil.putLong(toKey(downloadType), size);
+        }
+        return size;
+    }
+
+    /** A file of this type with the size was added (positive size) or deleted (negative size) */
+    static synchronized void add(@NonNull DownloadType downloadType, long size) {
+        if (downloadType == DownloadType.UNKNOWN || size == 0) return;
+
+        long stored = SharedPreferencesUtil.getLong(toKey(downloadType), UNKNOWN);
+        if (stored < 0) return;
+
+        SharedPreferencesUtil.putLong(toKey(downloadType), Long.max(0, stored + size));
+    }
+
+    /** The same as {@link #add(DownloadType, long)} for a file, named by {@link DownloadData} */
+    public static void add(@NonNull String filename, long size) {
+        downloadTypeOf(filename).ifPresent(downloadType -> add(downloadType, size));
+    }
+
+    /** Forget the totals, so they will be recounted on next request */
+    public static synchronized void reset() {
+        Arrays.stream(DownloadType.values()).forEach(downloadType ->
+                SharedPreferencesUtil.removeKey(toKey(downloadType)));
+    }
+
+    private static long recount(SQLiteDatabase db, @NonNull DownloadType downloadType) {
+        if (db == null) {
+            MyLog.databaseIsNull(() -> TAG);
+            return 0;
+        }
+        // Each file, shared by several downloads, is counted once
+        long size = MyQuery.sqlToLong(db, TAG, "SELECT SUM(file_size) FROM (SELECT MAX("
+                + DownloadTable.FILE_SIZE + ") AS file_size"
+                + " FROM " + DownloadTable.TABLE_NAME
+                + " WHERE " + DownloadTable.DOWNLOAD_TYPE + "=" + downloadType.save()
+                + " AND " + DownloadTable.DOWNLOAD_STATUS + "=" + DownloadStatus.LOADED.save()
+                + " AND " + DownloadTable.FILE_NAME + "!=''"
+                + " GROUP BY " + DownloadTable.FILE_NAME + ")");
+        MyLog.v(TAG, () -> "Recounted " + downloadType + ": " + size + " bytes");
+        return size;
+    }
+
+    private static Optional<DownloadType> downloadTypeOf(String filename) {
+        if (StringUtils.isEmpty(filename)) return Optional.empty();
+
+        return Arrays.stream(DownloadType.values())
+                .filter(downloadType -> downloadType != DownloadType.UNKNOWN)
+                .filter(downloadType -> filename.startsWith(downloadType.filePrefix + "_"))
+                .findAny();
+    }
+
+    private static String toKey(@NonNull DownloadType downloadType) {
+        return KEY_PREFIX + downloadType.filePrefix;
+    }
+}
@@ -48,6 +48,7 @@ import org.andstatus.app.util.TriState;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -90,7 +91,14 @@ public class MyProvider extends ContentProvider {
     /** @return Number of deleted activities of this note */
     public static int deleteNoteAndItsActivities(MyContext context, long noteId) {
         if (context == null || noteId == 0) return 0;
-        return deleteActivities(context.getDatabase(), ActivityTable.NOTE_ID + "=" + noteId, null, true);
+        int count = deleteActivities(context.getDatabase(), ActivityTable.NOTE_ID + "=" + noteId, null, true);
+        if (count > 0) recountNotifications(context);
+        return count;
+    }
+
+    /** Deleted activities may have had new notification events */
+    private static void recountNotifications(@NonNull MyContext myContext) {
+        BatchTransaction.afterCommit(() -> myContext.getNotifier().recount());
     }
 
     public static int deleteActivities(SQLiteDatabase db, String selection, String[] selectionArgs, boolean inTransaction) {
@@ -131,6 +139,8 @@ public class MyProvider extends ContentProvider {
                     "=" + NoteTable.TABLE_NAME + "." + NoteTable._ID + "))";
             sqlDesc = selectionG + descSuffix;
             count += db.delete(NoteTable.TABLE_NAME, selectionG, new String[]{});
+            NoteSearchIndex.delete(db, noteIds);
+            OidCache.clear();
 
             if (!inTransaction) {
                 db.setTransactionSuccessful();
@@ -145,6 +155,61 @@ public class MyProvider extends ContentProvider {
         return count;
     }
 
+    /**
+     * Deletes the activities in one short transaction, together with their notes, which are left without activities.
+     * Unlike {@link #deleteActivities(SQLiteDatabase, String, String[], boolean)} only notes of these activities
+     * are checked for being orphaned, so the cost of the transaction is bounded by the number of activities
+     * @return number of deleted rows
+     */
+    public static int deleteActivities(@NonNull SQLiteDatabase db, @NonNull Collection<Long> activityIds) {
+        if (activityIds.isEmpty()) return 0;
+
+        int count = 0;
+        String sqlDesc = "";
+        final SqlIds sqlActivityIds = SqlIds.fromIds(activityIds);
+        db.beginTransaction();
+        try {
+            sqlDesc = "SELECT DISTINCT " + ActivityTable.NOTE_ID + " FROM " + ActivityTable.TABLE_NAME
+                    + " WHERE " + ActivityTable._ID + sqlActivityIds.getSql()
+                    + " AND " + ActivityTable.NOTE_ID + "!=0";
+            final Set<Long> noteIdsOfActivities = MyQuery.getLongs(sqlDesc);
+
+            sqlDesc = ActivityTable._ID + sqlActivityIds.getSql();
+            count += db.delete(ActivityTable.TABLE_NAME, sqlDesc, null);
+
+            // Anti-join by the index of activity's note id
+            sqlDesc = "SELECT msgA." + NoteTable._ID + " FROM " + NoteTable.TABLE_NAME + " AS msgA" +
+                    " WHERE msgA." + NoteTable._ID + SqlIds.fromIds(noteIdsOfActivities).getSql() +
+                    " AND NOT EXISTS" +
+                    " (SELECT * FROM " + ActivityTable.TABLE_NAME +
+                    " WHERE " + ActivityTable.NOTE_ID + "=msgA." + NoteTable._ID + ")";
+            final Set<Long> noteIds = noteIdsOfActivities.isEmpty()
+                    ? Collections.emptySet()
+                    : MyQuery.getLongs(sqlDesc);
+            if (!noteIds.isEmpty()) {
+                final SqlIds sqlNoteIds = SqlIds.fromIds(noteIds);
+                sqlDesc = AudienceTable.NOTE_ID + sqlNoteIds.getSql();
+                count += db.delete(AudienceTable.TABLE_NAME, sqlDesc, null);
+
+                for (long noteId : noteIds) {
+                    DownloadData.deleteAllOfThisNote(db, noteId);
+                }
+
+                sqlDesc = NoteTable._ID + sqlNoteIds.getSql();
+                count += db.delete(NoteTable.TABLE_NAME, sqlDesc, null);
+                NoteSearchIndex.delete(db, noteIds);
+                noteIds.forEach(noteId -> OidCache.onIdDeleted(OidEnum.NOTE_OID, noteId));
+            }
+            activityIds.forEach(activityId -> OidCache.onIdDeleted(OidEnum.ACTIVITY_OID, activityId));
+            db.setTransactionSuccessful();
+        } catch(Exception e) {
+            MyLog.d(TAG, "; SQL='" + sqlDesc + "'", e);
+        } finally {
+            db.endTransaction();
+        }
+        return count;
+    }
+
     public static void deleteActor(MyContext myContext, long actorIdToDelete) {
         deleteActor(myContext, actorIdToDelete, 0);
     }
@@ -167,6 +232,7 @@ public class MyProvider extends ContentProvider {
         DownloadData.deleteAllOfThisActor(myContext, actorId);
         delete(myContext, ActorEndpointTable.TABLE_NAME, ActorEndpointTable.ACTOR_ID, actorId);
         delete(myContext, ActorTable.TABLE_NAME, ActorTable._ID, actorId);
+        OidCache.onIdDeleted(OidEnum.ACTOR_OID, actorId);
     }
 
     public static void delete(@NonNull MyContext myContext, @NonNull String tableName, @NonNull String column, Object value) {
@@ -209,9 +275,11 @@ public class MyProvider extends ContentProvider {
         } else {
             // Delete this activity only
             count = db.delete(ActivityTable.TABLE_NAME, BaseColumns._ID + "=" + activityId, null);
+            OidCache.onIdDeleted(OidEnum.ACTIVITY_OID, activityId);
             updateNoteFavorited(myContext, origin, noteId);
             updateNoteReblogged(myContext, origin, noteId);
         }
+        if (count > 0) recountNotifications(myContext);
         return count;
     }
 
@@ -347,12 +415,17 @@ public class MyProvider extends ContentProvider {
 
             switch (uriParser.matched()) {
                 case NOTE_ITEM:
+                    OidCache.put(OidEnum.NOTE_OID, values, NoteTable.ORIGIN_ID, NoteTable.NOTE_OID, rowId);
+                    if (values.containsKey(NoteTable.CONTENT_TO_SEARCH)) {
+                        NoteSearchIndex.update(db, rowId, values.getAsString(NoteTable.CONTENT_TO_SEARCH));
+                    }
                     newUri = MatchedUri.getMsgUri(accountActorId, rowId);
                     break;
                 case ORIGIN_ITEM:
                     newUri = MatchedUri.getOriginUri(rowId);
                     break;
                 case ACTOR_ITEM:
+                    OidCache.put(OidEnum.ACTOR_OID, values, ActorTable.ORIGIN_ID, ActorTable.ACTOR_OID, rowId);
                     newUri = MatchedUri.getActorUri(accountActorId, rowId);
                     break;
                 default:
@@ -409,7 +482,9 @@ public class MyProvider extends ContentProvider {
                 String rawQuery = uriParser.getSearchQuery();
                 if (StringUtils.nonEmpty(rawQuery)) {
                     KeywordsFilter searchQuery  = new KeywordsFilter(rawQuery);
-                    selection = "(" + searchQuery.getSqlSelection(NoteTable.CONTENT_TO_SEARCH) + ")" +
+                    selection = "(" + searchQuery.getSqlSelection(
+                            ProjectionMap.ACTIVITY_TABLE_ALIAS + "." + ActivityTable.NOTE_ID,
+                            NoteTable.CONTENT_TO_SEARCH) + ")" +
                             (StringUtils.nonEmpty(selectionIn)
                                 ? " AND (" + selectionIn + ")"
                                 : "");
@@ -579,6 +654,13 @@ public class MyProvider extends ContentProvider {
                     count = db.update(NoteTable.TABLE_NAME, values, BaseColumns._ID + "=" + rowId
                             + (StringUtils.nonEmpty(selection) ? " AND (" + selection + ')' : ""),
                             selectionArgs);
+                    if (count > 0 && values.containsKey(NoteTable.NOTE_OID) && values.containsKey(NoteTable.ORIGIN_ID)) {
+                        OidCache.onOidUpdated(OidEnum.NOTE_OID, values.getAsLong(NoteTable.ORIGIN_ID),
+                                values.getAsString(NoteTable.NOTE_OID), rowId);
+                    }
+                    if (count > 0 && values.containsKey(NoteTable.CONTENT_TO_SEARCH)) {
+                        NoteSearchIndex.update(db, rowId, values.getAsString(NoteTable.CONTENT_TO_SEARCH));
+                    }
                 }
                 break;
 
@@ -592,6 +674,11 @@ public class MyProvider extends ContentProvider {
                     count = db.update(ActorTable.TABLE_NAME, values, BaseColumns._ID + "=" + selectedActorId
                                     + (StringUtils.nonEmpty(selection) ? " AND (" + selection + ')' : ""),
                             selectionArgs);
+                    if (count > 0 && values.containsKey(ActorTable.ACTOR_OID)) {
+                        OidCache.onOidUpdated(OidEnum.ACTOR_OID,
+                                MyQuery.actorIdToLongColumnValue(ActorTable.ORIGIN_ID, selectedActorId),
+                                values.getAsString(ActorTable.ACTOR_OID), selectedActorId);
+                    }
                 }
                 break;
 
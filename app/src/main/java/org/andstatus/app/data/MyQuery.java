@@ -42,9 +42,13 @@ import org.andstatus.app.util.MyStringBuilder;
 import org.andstatus.app.util.StringUtils;
 import org.andstatus.app.util.TriState;
 
+import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 
@@ -88,6 +92,9 @@ public class MyQuery {
         if (StringUtils.isEmpty(oid)) {
             return 0;
         }
+        long cachedId = OidCache.get(oidEnum, originId, oid);
+        if (cachedId != 0) return cachedId;
+
         String msgLog = "oidToId; " + oidEnum + ", origin=" + originId + ", oid=" + oid;
         String sql;
         switch (oidEnum) {
@@ -109,7 +116,9 @@ public class MyQuery {
             default:
                 throw new IllegalArgumentException(msgLog + "; Unknown oidEnum");
         }
-        return sqlToLong(myContext.getDatabase(), msgLog, sql);
+        long id = sqlToLong(myContext.getDatabase(), msgLog, sql);
+        OidCache.put(oidEnum, originId, oid, id);
+        return id;
     }
 
     public static long sqlToLong(SQLiteDatabase databaseIn, String msgLogIn, String sql) {
@@ -144,6 +153,38 @@ public class MyQuery {
         return value;
     }
 
+    /**
+     * Similar to {@link #sqlToLong(SQLiteDatabase, String, String)}, but the SQL doesn't change with the argument,
+     * so its prepared statement is reused from the statement cache of the database connection
+     * @param sql with one "?" parameter
+     * @param arg the parameter's value
+     */
+    static long sqlToLong(SQLiteDatabase databaseIn, String msgLogIn, String sql, long arg) {
+        String msgLog = StringUtils.notNull(msgLogIn);
+        SQLiteDatabase db = databaseIn == null ? MyContextHolder.get().getDatabase() : databaseIn;
+        if (db == null) {
+            MyLog.databaseIsNull(() -> msgLog);
+            return 0;
+        }
+        long value = 0;
+        try {
+            try (SQLiteStatement statement = db.compileStatement(sql)) {
+                statement.bindLong(1, arg);
+                value = statement.simpleQueryForLong();
+            }
+        } catch (SQLiteDoneException e) {
+            MyLog.ignored(TAG, e);
+            value = 0;
+        } catch (Exception e) {
+            MyLog.e(TAG, msgLog + "; sql='" + sql + "', arg=" + arg, e);
+            value = 0;
+        }
+        if (MyLog.isVerboseEnabled()) {
+            MyLog.v(TAG, msgLog + "; sql='" + sql + "', arg=" + arg + " -> " + value);
+        }
+        return value;
+    }
+
     /**
      * @return two single quotes for empty/null strings (Use single quotes!)
      */
@@ -298,35 +339,57 @@ public class MyQuery {
         return noteIdToActors(db, origin, noteId, ActivityType.ANNOUNCE, ActivityType.UNDO_ANNOUNCE);
     }
 
+    /** Rebloggers of several notes, loaded by one query
+     * @param noteOrigins Origins of the notes by note ids
+     * @return Rebloggers by note ids. Notes without rebloggers are absent */
+    @NonNull
+    public static Map<Long, List<Actor>> getRebloggers(SQLiteDatabase db, @NonNull Map<Long, Origin> noteOrigins) {
+        return noteIdsToActors(db, noteOrigins, ActivityType.ANNOUNCE, ActivityType.UNDO_ANNOUNCE);
+    }
+
     /** @return for each actor (actorId is a key): ID of the last type1 or type2 activity
      *  and the type of the activity */
     @NonNull
     public static List<Actor> noteIdToActors(
             SQLiteDatabase db, @NonNull Origin origin, long noteId, ActivityType typeToReturn, ActivityType undoType) {
-        String method = "noteIdToActors";
-        final List<Long> foundActors = new ArrayList<>();
-        final List<Actor> actors = new ArrayList<>();
-        if (db == null || !origin.isValid() || noteId == 0) {
+        if (noteId == 0) return new ArrayList<>();
+
+        List<Actor> actors = noteIdsToActors(db, Collections.singletonMap(noteId, origin), typeToReturn, undoType)
+                .get(noteId);
+        return actors == null ? new ArrayList<>() : actors;
+    }
+
+    @NonNull
+    private static Map<Long, List<Actor>> noteIdsToActors(SQLiteDatabase db, @NonNull Map<Long, Origin> noteOrigins,
+                                                          ActivityType typeToReturn, ActivityType undoType) {
+        String method = "noteIdsToActors";
+        final Map<Long, Set<Long>> foundActors = new HashMap<>();
+        final Map<Long, List<Actor>> actors = new HashMap<>();
+        if (db == null || noteOrigins.isEmpty()) {
             return actors;
         }
-        String sql = "SELECT " + ActivityTable.ACTIVITY_TYPE + ", " + ActivityTable.ACTOR_ID + ", "
+        String sql = "SELECT " + ActivityTable.NOTE_ID + ", " + ActivityTable.ACTIVITY_TYPE + ", "
+                + ActivityTable.ACTOR_ID + ", "
                 + ActorTable.WEBFINGER_ID + ", " + TimelineSql.usernameField() + " AS " + ActorTable.ACTIVITY_ACTOR_NAME
                 + " FROM " + ActivityTable.TABLE_NAME + " INNER JOIN " + ActorTable.TABLE_NAME
                 + " ON " + ActivityTable.ACTOR_ID + "=" + ActorTable.TABLE_NAME + "." + ActorTable._ID
-                + " WHERE " + ActivityTable.NOTE_ID + "=" + noteId + " AND "
+                + " WHERE " + ActivityTable.NOTE_ID + SqlIds.fromIds(noteOrigins.keySet()).getSql() + " AND "
                 + ActivityTable.ACTIVITY_TYPE + " IN(" + typeToReturn.id + "," + undoType.id + ")"
                 + " ORDER BY " + ActivityTable.UPDATED_DATE + " DESC";
         try (Cursor cursor = db.rawQuery(sql, null)) {
             while(cursor.moveToNext()) {
+                long noteId = DbUtils.getLong(cursor, ActivityTable.NOTE_ID);
+                Origin origin = noteOrigins.get(noteId);
+                if (origin == null || !origin.isValid()) continue;
+
                 long actorId = DbUtils.getLong(cursor, ActivityTable.ACTOR_ID);
-                if (!foundActors.contains(actorId)) {
-                    foundActors.add(actorId);
+                if (foundActors.computeIfAbsent(noteId, id -> new HashSet<>()).add(actorId)) {
                     ActivityType activityType = ActivityType.fromId(DbUtils.getLong(cursor, ActivityTable.ACTIVITY_TYPE));
                     if (activityType.equals(typeToReturn)) {
                         Actor actor = Actor.fromId(origin, actorId);
                         actor.setRealName(DbUtils.getString(cursor, ActorTable.ACTIVITY_ACTOR_NAME));
                         actor.setWebFingerId(DbUtils.getString(cursor, ActorTable.WEBFINGER_ID));
-                        actors.add(actor);
+                        actors.computeIfAbsent(noteId, id -> new ArrayList<>()).add(actor);
                     }
                 }
             }
@@ -450,7 +513,7 @@ public class MyQuery {
         if (systemId == 0) {
             return 0;
         } else {
-            return conditionToLongColumnValue(databaseIn, null, tableName, columnName, "t._id=" + systemId);
+            return sqlToLong(databaseIn, null, sqlForColumnValue(tableName, columnName, "t._id=?"), systemId);
         }
     }
 
@@ -467,18 +530,19 @@ public class MyQuery {
 
     public static long conditionToLongColumnValue(SQLiteDatabase databaseIn, String msgLog,
                                                   String tableName, String columnName, String condition) {
+        return sqlToLong(databaseIn, msgLog, sqlForColumnValue(tableName, columnName, condition));
+    }
+
+    private static String sqlForColumnValue(String tableName, String columnName, String condition) {
         String sql = "SELECT t." + columnName +
                 " FROM " + tableName + " AS t" +
                 (StringUtils.isEmpty(condition) ? "" : " WHERE " + condition);
-        long columnValue = 0;
         if (StringUtils.isEmpty(tableName)) {
             throw new IllegalArgumentException("tableName is empty: " + sql);
         } else if (StringUtils.isEmpty(columnName)) {
             throw new IllegalArgumentException("columnName is empty: " + sql);
-        } else {
-            columnValue = sqlToLong(databaseIn, msgLog, sql);
         }
-        return columnValue;
+        return sql;
     }
 
     @NonNull
@@ -502,35 +566,49 @@ public class MyQuery {
      */
     @NonNull
     public static String idToStringColumnValue(SQLiteDatabase db, String tableName, String columnName, long systemId) {
-        return (systemId == 0) ? "" : conditionToStringColumnValue(db, tableName, columnName, "_id=" + systemId);
+        // The column may be an expression, so no table alias here
+        return (systemId == 0) ? "" : conditionToStringColumnValue(db, tableName, columnName, "_id=?", systemId);
     }
 
     @NonNull
     public static String conditionToStringColumnValue(SQLiteDatabase dbIn, String tableName, String columnName, String condition) {
+        return conditionToStringColumnValue(dbIn, tableName, columnName, condition, new long[0]);
+    }
+
+    /**
+     * Similar to {@link #conditionToStringColumnValue(SQLiteDatabase, String, String, String)}, but the condition
+     * has "?" parameters, so the SQL doesn't change with their values,
+     * and its prepared statement is reused from the statement cache of the database connection
+     * @param args values of the parameters
+     */
+    @NonNull
+    public static String conditionToStringColumnValue(SQLiteDatabase dbIn, String tableName, String columnName,
+                                                      String condition, long... args) {
         String method = "cond2str";
         SQLiteDatabase db = dbIn == null ? MyContextHolder.get().getDatabase() : dbIn;
         if (db == null) {
             MyLog.databaseIsNull(() -> method);
             return "";
         }
-        String sql = "SELECT " + columnName + " FROM " + tableName + " WHERE " + condition;
-        String columnValue = "";
         if (StringUtils.isEmpty(tableName) || StringUtils.isEmpty(columnName)) {
             throw new IllegalArgumentException(method + " tableName or columnName are empty");
-        } else if (StringUtils.isEmpty(columnName)) {
-            throw new IllegalArgumentException("columnName is empty: " + sql);
-        } else {
-            try (SQLiteStatement prog = db.compileStatement(sql)) {
-                columnValue = prog.simpleQueryForString();
-            } catch (SQLiteDoneException e) {
-                MyLog.ignored(TAG, e);
-            } catch (Exception e) {
-                MyLog.e(TAG, method + " table='" + tableName + "', column='" + columnName + "'", e);
-                return "";
-            }
-            if (MyLog.isVerboseEnabled()) {
-                MyLog.v(TAG, method + "; '" + sql + "' -> " + columnValue );
+        }
+        String sql = "SELECT " + columnName + " FROM " + tableName + " WHERE " + condition;
+        String columnValue = "";
+        try (SQLiteStatement prog = db.compileStatement(sql)) {
+            for (int i = 0; i < args.length; i++) {
+                prog.bindLong(i + 1, args[i]);
             }
+            columnValue = prog.simpleQueryForString();
+        } catch (SQLiteDoneException e) {
+            MyLog.ignored(TAG, e);
+        } catch (Exception e) {
+            MyLog.e(TAG, method + " table='" + tableName + "', column='" + columnName + "'", e);
+            return "";
+        }
+        if (MyLog.isVerboseEnabled()) {
+            MyLog.v(TAG, method + "; '" + sql + "'" + (args.length == 0 ? "" : ", args=" + Arrays.toString(args))
+                    + " -> " + columnValue );
         }
         return StringUtils.isEmpty(columnValue) ? "" : columnValue;
     }
@@ -624,9 +702,9 @@ public class MyQuery {
             default:
                 throw new IllegalArgumentException( method + "; Illegal column '" + columnNameIn + "'");
         }
-        return MyQuery.conditionToLongColumnValue(databaseIn, method, ActivityTable.TABLE_NAME, columnName,
-                ActivityTable.NOTE_ID + "=" + noteId +  " AND " + condition
-                        + " ORDER BY " + ActivityTable.UPDATED_DATE + " DESC LIMIT 1");
+        return sqlToLong(databaseIn, method, sqlForColumnValue(ActivityTable.TABLE_NAME, columnName,
+                ActivityTable.NOTE_ID + "=? AND " + condition
+                        + " ORDER BY " + ActivityTable.UPDATED_DATE + " DESC LIMIT 1"), noteId);
     }
 
     public static long webFingerIdToId(MyContext myContext, long originId, String webFingerId, boolean checkOid) {
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+
+import org.andstatus.app.database.table.NoteSearchTable;
+import org.andstatus.app.database.table.NoteTable;
+import org.andstatus.app.util.StringUtils;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps {@link NoteSearchTable} in sync with {@link NoteTable#CONTENT_TO_SEARCH}
+ * @author yvolk@yurivolkov.com
+ */
+public class NoteSearchIndex {
+
+    private NoteSearchIndex() {
+        // Empty
+    }
+
+    /** SQL to select ids of notes, which match the full text search query */
+    public static String sqlNoteIdsMatching() {
+        return "SELECT " + NoteSearchTable.DOCID + " FROM " + NoteSearchTable.TABLE_NAME
+                + " WHERE " + NoteSearchTable.TABLE_NAME + " MATCH ?";
+    }
+
+    public static void update(@NonNull SQLiteDatabase db, long noteId, String contentToSearch) {
+        if (noteId == 0) return;
+
+        db.execSQL("DELETE FROM " + NoteSearchTable.TABLE_NAME + " WHERE " + NoteSearchTable.DOCID + "=" + noteId);
+        if (StringUtils.nonEmpty(contentToSearch)) {
+            db.execSQL("INSERT INTO " + NoteSearchTable.TABLE_NAME + " ("
+                    + NoteSearchTable.DOCID + ", " + NoteSearchTable.CONTENT_TO_SEARCH + ") VALUES (?, ?)",
+                    new Object[]{noteId, contentToSearch});
+        }
+    }
+
+    public static void delete(@NonNull SQLiteDatabase db, @NonNull Collection<Long> noteIds) {
+        if (noteIds.isEmpty()) return;
+
+        db.execSQL("DELETE FROM " + NoteSearchTable.TABLE_NAME + " WHERE " + NoteSearchTable.DOCID + " IN ("
+                + noteIds.stream().map(String::valueOf).collect(Collectors.joining(",")) + ")");
+    }
+
+    /** Removes rows of deleted notes and adds rows of notes, which are not indexed yet
+     * @return number of rows to change */
+    public static long fixMissingAndOrphaned(@NonNull SQLiteDatabase db, boolean countOnly) {
+        String sqlNotIndexed = " FROM " + NoteTable.TABLE_NAME + " WHERE " + NoteTable.CONTENT_TO_SEARCH + " IS NOT NULL"
+                + " AND " + NoteTable.CONTENT_TO_SEARCH + "!=''"
+                + " AND " + NoteTable._ID + " NOT IN (SELECT " + NoteSearchTable.DOCID
+                + " FROM " + NoteSearchTable.TABLE_NAME + ")";
+        String sqlOrphaned = " FROM " + NoteSearchTable.TABLE_NAME + " WHERE " + NoteSearchTable.DOCID
+                + " NOT IN (SELECT " + NoteTable._ID + " FROM " + NoteTable.TABLE_NAME + ")";
+        long count = MyQuery.sqlToLong(db, "notIndexed", "SELECT COUNT(*)" + sqlNotIndexed)
+                + MyQuery.sqlToLong(db, "orphaned", "SELECT COUNT(*)" + sqlOrphaned);
+        if (count > 0 && !countOnly) {
+            db.execSQL("DELETE" + sqlOrphaned);
+            db.execSQL("INSERT INTO " + NoteSearchTable.TABLE_NAME + " ("
+                    + NoteSearchTable.DOCID + ", " + NoteSearchTable.CONTENT_TO_SEARCH + ")"
+                    + " SELECT " + NoteTable._ID + ", " + NoteTable.CONTENT_TO_SEARCH + sqlNotIndexed);
+        }
+        return count;
+    }
+}
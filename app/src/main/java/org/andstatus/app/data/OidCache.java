@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.content.ContentValues;
+
+import org.andstatus.app.util.StringUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-through cache for {@link MyQuery#oidToId(OidEnum, long, String)}:
+ * (originId, oid) -> id of Notes, Actors and Activities.
+ * Only found (non-zero) ids are cached. Inserts and updates of oids populate the cache,
+ * deletions invalidate it.
+ * Entries, put inside a {@link BatchTransaction}, are seen by the thread of the transaction only,
+ * they are published on its commit and forgotten on its rollback
+ * @author yvolk@yurivolkov.com
+ */
+public final class OidCache {
+    private static final int MAX_SIZE_PER_ORIGIN = 3000;
+    private static final Map<Long, OriginOids> origins = new ConcurrentHashMap<>();
+    /** originId -> (key -> id) of the uncommitted transaction of this thread. Its size is bounded by the batch */
+    private static final ThreadLocal<Map<Long, Map<String, Long>>> uncommitted = new ThreadLocal<>();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private static class OriginOids extends LinkedHashMap<String, Long> {
+        /** Reverse index: key of the id (see {@link #idKey(String, long)}) -> keys of its oids */
+        private final Map<String, Set<String>> keysOfIds = new HashMap<>();
+
+        OriginOids() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Entry<String, Long> eldest) {
+            if (size() <= MAX_SIZE_PER_ORIGIN) return false;
+
+            unindex(eldest.getKey(), eldest.getValue());
+            return true;
+        }
+
+        void putOid(String key, long id) {
+            Long previous = put(key, id);
+            if (previous != null && previous != id) unindex(key, previous);
+            keysOfIds.computeIfAbsent(idKey(key, id), k -> new HashSet<>()).add(key);
+        }
+
+        void removeId(OidEnum oidEnum, long id) {
+            Set<String> keys = keysOfIds.remove(idKey(key(oidEnum, ""), id));
+            if (keys != null) keys.forEach(this::remove);
+        }
+
+        private void unindex(String key, long id) {
+            String idKey = idKey(key, id);
+            Set<String> keys = keysOfIds.get(idKey);
+            if (keys == null) return;
+
+            keys.remove(key);
+            if (keys.isEmpty()) keysOfIds.remove(idKey);
+        }
+
+        /** The same prefix of the {@link OidEnum} as in the key of oid */
+        private static String idKey(String key, long id) {
+            return key.substring(0, key.indexOf(':') + 1) + id;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            keysOfIds.clear();
+        }
+    }
+
+    private OidCache() {
+        // Empty
+    }
+
+    /** @return 0 if not cached */
+    static long get(OidEnum oidEnum, long originId, String oid) {
+        if (!isCached(oidEnum, oid)) return 0;
+
+        Long id = peek(originId, key(oidEnum, oid));
+        if (id == null) {
+            misses.incrementAndGet();
+            return 0;
+        }
+        hits.incrementAndGet();
+        return id;
+    }
+
+    private static Long peek(long originId, String key) {
+        Long id = uncommittedOids(originId).get(key);
+        if (id != null) return id;
+
+        OriginOids oids = origins.get(originId);
+        if (oids == null) return null;
+
+        synchronized (oids) {
+            return oids.get(key);
+        }
+    }
+
+    static void put(OidEnum oidEnum, long originId, String oid, long id) {
+        if (!isCached(oidEnum, oid) || id == 0) return;
+
+        String key = key(oidEnum, oid);
+        Map<Long, Map<String, Long>> inTransaction = uncommitted.get();
+        if (inTransaction == null) {
+            putCommitted(originId, key, id);
+        } else {
+            inTransaction.computeIfAbsent(originId, k -> new HashMap<>()).put(key, id);
+        }
+    }
+
+    private static void putCommitted(long originId, String key, long id) {
+        OriginOids oids = origins.computeIfAbsent(originId, k -> new OriginOids());
+        synchronized (oids) {
+            oids.putOid(key, id);
+        }
+    }
+
+    /** Populates the cache with a newly inserted row */
+    static void put(OidEnum oidEnum, ContentValues values, String originIdColumn, String oidColumn, long id) {
+        Long originId = values.getAsLong(originIdColumn);
+        if (originId != null) {
+            put(oidEnum, originId, values.getAsString(oidColumn), id);
+        }
+    }
+
+    /** The row may have had another oid (e.g. a temporary one), so previous entries of this id are removed */
+    public static void onOidUpdated(OidEnum oidEnum, long originId, String oid, long id) {
+        if (!isCached(oidEnum, oid) || id == 0) return;
+
+        Long stored = peek(originId, key(oidEnum, oid));
+        if (stored != null && stored == id) return;
+
+        onIdDeleted(oidEnum, id);
+        put(oidEnum, originId, oid, id);
+    }
+
+    static void onIdDeleted(OidEnum oidEnum, long id) {
+        for (OriginOids oids : origins.values()) {
+            synchronized (oids) {
+                oids.removeId(oidEnum, id);
+            }
+        }
+        Map<Long, Map<String, Long>> inTransaction = uncommitted.get();
+        if (inTransaction == null) return;
+
+        String prefix = key(oidEnum, "");
+        for (Map<String, Long> oids : inTransaction.values()) {
+            oids.entrySet().removeIf(entry -> entry.getValue() == id && entry.getKey().startsWith(prefix));
+        }
+    }
+
+    private static Map<String, Long> uncommittedOids(long originId) {
+        Map<Long, Map<String, Long>> inTransaction = uncommitted.get();
+        if (inTransaction == null) return Collections.emptyMap();
+
+        return inTransaction.getOrDefault(originId, Collections.emptyMap());
+    }
+
+    /** Called by the outermost {@link BatchTransaction} of this thread, when it begins its transaction */
+    static void onTransactionBegun() {
+        uncommitted.set(new HashMap<>());
+    }
+
+    /** Entries of the committed transaction are published, entries of the rolled back one are forgotten */
+    static void onTransactionEnded(boolean committed) {
+        Map<Long, Map<String, Long>> inTransaction = uncommitted.get();
+        uncommitted.remove();
+        if (inTransaction == null || !committed) return;
+
+        inTransaction.forEach((originId, oids) -> oids.forEach((key, id) -> putCommitted(originId, key, id)));
+    }
+
+    /** Used after bulk deletions, when we don't know which rows were affected */
+    public static void clear() {
+        origins.clear();
+        Map<Long, Map<String, Long>> inTransaction = uncommitted.get();
+        if (inTransaction != null) inTransaction.clear();
+    }
+
+    private static boolean isCached(OidEnum oidEnum, String oid) {
+        if (StringUtils.isEmpty(oid)) return false;
+
+        switch (oidEnum) {
+            case NOTE_OID:
+            case ACTOR_OID:
+            case ACTIVITY_OID:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String key(OidEnum oidEnum, String oid) {
+        return oidEnum.ordinal() + ":" + oid;
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    public static String toSummary() {
+        long hitsCount = hits.get();
+        long total = hitsCount + misses.get();
+        int size = 0;
+        for (OriginOids oids : origins.values()) {
+            synchronized (oids) {
+                size += oids.size();
+            }
+        }
+        return "OidCache: " + size + " entries, hits: " + hitsCount + " of " + total
+                + (total > 0 ? String.format(" (%d%%)", hitsCount * 100 / total) : "");
+    }
+}
@@ -46,6 +46,7 @@ class CheckAudience extends DataChecker {
     private static class FixSummary {
         long rowsCount = 0;
         int toFixCount = 0;
+        long lastNoteId = 0;
     }
 
     private int fixOneOrigin(Origin origin, boolean countOnly) {
@@ -55,22 +56,40 @@ class CheckAudience extends DataChecker {
         if (ma.isEmpty()) return 0;
 
         DataUpdater dataUpdater = new DataUpdater(ma);
-
-        String sql = "SELECT " + NoteTable._ID + ", " +
-                NoteTable.INS_DATE + ", " +
-                NoteTable.PUBLIC + ", " +
-                NoteTable.CONTENT + ", " +
-                NoteTable.ORIGIN_ID + ", " +
-                NoteTable.AUTHOR_ID + ", " +
-                NoteTable.IN_REPLY_TO_ACTOR_ID +
-                " FROM " + NoteTable.TABLE_NAME +
-                " WHERE " + NoteTable.ORIGIN_ID + "=" + origin.getId() +
-                " AND " + NoteTable.NOTE_STATUS + "=" + DownloadStatus.LOADED.save() +
-                " ORDER BY " + NoteTable._ID + " DESC" +
-                (includeLong ? "" : " LIMIT 0, 500");
-
-        FixSummary summary = MyQuery.foldLeft(myContext, sql, new FixSummary(),
-                s -> cursor -> foldOneNote(ma, dataUpdater, countOnly, s, cursor));
+        final String checkpointPart = Long.toString(origin.getId());
+        final long rowsMax = includeLong ? Long.MAX_VALUE : 500;
+        FixSummary summary = new FixSummary();
+        summary.lastNoteId = getCheckpoint(checkpointPart);
+        boolean completed = false;
+        // Keyset pages by descending id. The position is persisted, so an interrupted check continues from it
+        while (!logger.isCancelled() && summary.rowsCount < rowsMax) {
+            long rowsBefore = summary.rowsCount;
+            long limit = Long.min(PAGE_SIZE, rowsMax - summary.rowsCount);
+            String sql = "SELECT " + NoteTable._ID + ", " +
+                    NoteTable.INS_DATE + ", " +
+                    NoteTable.PUBLIC + ", " +
+                    NoteTable.CONTENT + ", " +
+                    NoteTable.ORIGIN_ID + ", " +
+                    NoteTable.AUTHOR_ID + ", " +
+                    NoteTable.IN_REPLY_TO_ACTOR_ID +
+                    " FROM " + NoteTable.TABLE_NAME +
+                    " WHERE " + NoteTable.ORIGIN_ID + "=" + origin.getId() +
+                    " AND " + NoteTable.NOTE_STATUS + "=" + DownloadStatus.LOADED.save() +
+                    (summary.lastNoteId == 0 ? "" : " AND " + NoteTable._ID + "<" + summary.lastNoteId) +
+                    " ORDER BY " + NoteTable._ID + " DESC" +
+                    " LIMIT " + limit;
+
+            MyQuery.foldLeft(myContext, sql, summary,
+                    s -> cursor -> foldOneNote(ma, dataUpdater, countOnly, s, cursor));
+            if (logger.isCancelled()) break;
+
+            if (summary.rowsCount - rowsBefore < limit || summary.rowsCount >= rowsMax) {
+                completed = true;
+                break;
+            }
+            saveCheckpoint(checkpointPart, summary.lastNoteId);
+        }
+        if (completed) clearCheckpoint(checkpointPart);
 
         logger.logProgress(origin.getName() + ": " +
                 (summary.toFixCount == 0
@@ -86,7 +105,9 @@ class CheckAudience extends DataChecker {
 
         Origin origin = ma.getOrigin();
         s.rowsCount++;
+        rowsScanned.incrementAndGet();
         long noteId = DbUtils.getLong(cursor, NoteTable._ID);
+        s.lastNoteId = noteId;
         long insDate = DbUtils.getLong(cursor, NoteTable.INS_DATE);
         TriState isPublic = DbUtils.getTriState(cursor, NoteTable.PUBLIC);
         String content = DbUtils.getString(cursor, NoteTable.CONTENT);
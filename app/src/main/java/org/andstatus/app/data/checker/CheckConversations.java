@@ -28,20 +28,37 @@ import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtils;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Notes are checked by pages of conversations: notes without a conversation are paged by their ids,
+ * other notes by ranges of {@link NoteTable#CONVERSATION_ID}, so a conversation is loaded at once.
+ * Notes of other pages, which are linked to notes of the page, are loaded when needed.
+ * Changes are saved after each page, so the next pages see them
  * @author yvolk@yurivolkov.com
  */
 public class CheckConversations extends DataChecker {
+    private static final String CHECKPOINT_NO_CONVERSATION = "noConversation";
+    private static final String CHECKPOINT_CONVERSATION = "conversation";
+    private static final String SELECT_NOTES = "SELECT " + NoteTable._ID
+            + ", " + NoteTable.ORIGIN_ID
+            + ", " + NoteTable.IN_REPLY_TO_NOTE_ID
+            + ", " + NoteTable.CONVERSATION_ID
+            + ", " + NoteTable.CONVERSATION_OID
+            + " FROM " + NoteTable.TABLE_NAME;
+    /** Notes of the current page and the notes, linked to them */
     private Map<Long, NoteItem> items = new TreeMap<>();
-    private Map<Long, List<NoteItem>> replies = new TreeMap<>();
+    /** Replies of notes, loaded when a conversation of their parent changes */
+    private Map<Long, List<NoteItem>> replies = new HashMap<>();
+    /** The first (with the lowest id) note of each conversation OID of an origin */
+    private Map<Long, Map<String, NoteItem>> firstConversationMembers = new HashMap<>();
     private Set<Long> noteIdsOfOneConversation = new HashSet<>();
 
     private class NoteItem {
@@ -102,64 +119,138 @@ public class CheckConversations extends DataChecker {
 
     @Override
     long fixInternal() {
-        loadNotes();
         if (noteIdsOfOneConversation.isEmpty()) {
-            fixConversationsUsingReplies();
-            fixConversationsUsingConversationOid();
-        } else {
-            fixOneConversation();
+            long changedCount = fixNotesWithoutConversation() + fixConversations();
+            logger.logProgress(rowsScanned.get() + " notes checked");
+            return changedCount;
         }
+        loadPage(" WHERE " + NoteTable.CONVERSATION_ID + " IN ("
+                + "SELECT DISTINCT " + NoteTable.CONVERSATION_ID
+                + " FROM " + NoteTable.TABLE_NAME + " WHERE "
+                + NoteTable._ID + SqlIds.fromIds(noteIdsOfOneConversation).getSql()
+                + ")");
+        fixOneConversation();
         return saveChanges(countOnly);
     }
 
-    private void loadNotes() {
+    /** Keyset pages by descending id. The position is persisted, so an interrupted check continues from it */
+    private long fixNotesWithoutConversation() {
+        long changedCount = 0;
+        long lastNoteId = getCheckpoint(CHECKPOINT_NO_CONVERSATION);
+        while (!logger.isCancelled()) {
+            List<NoteItem> page = loadPage(" WHERE " + NoteTable.CONVERSATION_ID + "=0"
+                    + (lastNoteId == 0 ? "" : " AND " + NoteTable._ID + "<" + lastNoteId)
+                    + " ORDER BY " + NoteTable._ID + " DESC LIMIT " + PAGE_SIZE);
+            changedCount += fixPage(page);
+            if (logger.isCancelled()) break;
+
+            if (page.size() < PAGE_SIZE) {
+                clearCheckpoint(CHECKPOINT_NO_CONVERSATION);
+                break;
+            }
+            lastNoteId = page.get(0).id;
+            saveCheckpoint(CHECKPOINT_NO_CONVERSATION, lastNoteId);
+        }
+        return changedCount;
+    }
+
+    /** Pages of whole conversations, by descending conversation ids, of about {@link #PAGE_SIZE} notes each */
+    private long fixConversations() {
+        long changedCount = 0;
+        long lastConversationId = getCheckpoint(CHECKPOINT_CONVERSATION);
+        while (!logger.isCancelled()) {
+            String where = " WHERE " + NoteTable.CONVERSATION_ID + "!=0"
+                    + (lastConversationId == 0 ? "" : " AND " + NoteTable.CONVERSATION_ID + "<" + lastConversationId);
+            long minConversationId = MyQuery.sqlToLong(myContext.getDatabase(), "minConversationId",
+                    "SELECT " + NoteTable.CONVERSATION_ID + " FROM " + NoteTable.TABLE_NAME + where
+                    + " ORDER BY " + NoteTable.CONVERSATION_ID + " DESC LIMIT 1 OFFSET " + (PAGE_SIZE - 1));
+            List<NoteItem> page = loadPage(where + (minConversationId == 0
+                    ? ""
+                    : " AND " + NoteTable.CONVERSATION_ID + ">=" + minConversationId));
+            changedCount += fixPage(page);
+            if (logger.isCancelled()) break;
+
+            if (minConversationId == 0) {
+                clearCheckpoint(CHECKPOINT_CONVERSATION);
+                break;
+            }
+            lastConversationId = minConversationId;
+            saveCheckpoint(CHECKPOINT_CONVERSATION, lastConversationId);
+        }
+        return changedCount;
+    }
+
+    private int fixPage(List<NoteItem> page) {
+        fixConversationsUsingReplies(page);
+        fixConversationsUsingConversationOid(page);
+        logger.logProgressIfLongProcess(() -> "Checked " + rowsScanned.get() + " notes");
+        return saveChanges(countOnly);
+    }
+
+    /** @return notes of the new page, sorted by ids, as notes were checked before paging */
+    private List<NoteItem> loadPage(String where) {
         items.clear();
         replies.clear();
-        String sql = "SELECT " + NoteTable._ID
-                + ", " + NoteTable.ORIGIN_ID
-                + ", " + NoteTable.IN_REPLY_TO_NOTE_ID
-                + ", " + NoteTable.CONVERSATION_ID
-                + ", " + NoteTable.CONVERSATION_OID
-                + " FROM " + NoteTable.TABLE_NAME
-                ;
-        if (noteIdsOfOneConversation.size() > 0) {
-            sql += " WHERE " + NoteTable.CONVERSATION_ID + " IN ("
-                    + "SELECT DISTINCT " + NoteTable.CONVERSATION_ID
-                    + " FROM " + NoteTable.TABLE_NAME + " WHERE "
-                    + NoteTable._ID + SqlIds.fromIds(noteIdsOfOneConversation).getSql()
-            + ")";
-        }
+        firstConversationMembers.clear();
+        List<NoteItem> page = loadItems(where);
+        page.sort(Comparator.comparingLong(item -> item.id));
+        return page;
+    }
 
-        Cursor cursor = null;
-        long rowsCount = 0;
-        try {
-            cursor = myContext.getDatabase().rawQuery(sql, null);
-            while (cursor.moveToNext()) {
-                rowsCount++;
+    /** Notes, which are loaded already, are not loaded again, so their changes are kept */
+    private List<NoteItem> loadItems(String where) {
+        return MyQuery.foldLeft(myContext, SELECT_NOTES + where, new ArrayList<>(), list -> cursor -> {
+            rowsScanned.incrementAndGet();
+            list.add(items.computeIfAbsent(DbUtils.getLong(cursor, NoteTable._ID), id -> {
                 NoteItem item = new NoteItem();
-                item.id = DbUtils.getLong(cursor, NoteTable._ID);
+                item.id = id;
                 item.originId = DbUtils.getLong(cursor, NoteTable.ORIGIN_ID);
                 item.inReplyToId = DbUtils.getLong(cursor, NoteTable.IN_REPLY_TO_NOTE_ID);
                 item.inReplyToId_initial = item.inReplyToId;
                 item.conversationId = DbUtils.getLong(cursor, NoteTable.CONVERSATION_ID);
                 item.conversationId_initial = item.conversationId;
                 item.conversationOid = DbUtils.getString(cursor, NoteTable.CONVERSATION_OID);
-                items.put(item.id, item);
-                if (item.inReplyToId != 0) {
-                    replies.computeIfAbsent(item.inReplyToId, k -> new ArrayList<>()).add(item);
-                }
-            }
-        } finally {
-            DbUtils.closeSilently(cursor);
+                return item;
+            }));
+            return list;
+        });
+    }
+
+    /** @return null if the note doesn't exist */
+    private NoteItem getItem(long noteId) {
+        NoteItem item = items.get(noteId);
+        if (item != null) return item;
+
+        List<NoteItem> loaded = loadItems(" WHERE " + NoteTable._ID + "=" + noteId);
+        return loaded.isEmpty() ? null : loaded.get(0);
+    }
+
+    private List<NoteItem> repliesOf(NoteItem parent) {
+        return replies.computeIfAbsent(parent.id,
+                id -> loadItems(" WHERE " + NoteTable.IN_REPLY_TO_NOTE_ID + "=" + id));
+    }
+
+    /** @return null if not found */
+    private NoteItem firstConversationMember(NoteItem item) {
+        Map<String, NoteItem> members = firstConversationMembers.computeIfAbsent(item.originId, k -> new HashMap<>());
+        if (members.containsKey(item.conversationOid)) return members.get(item.conversationOid);
+
+        long firstId = 0;
+        try (Cursor cursor = myContext.getDatabase().rawQuery("SELECT MIN(" + NoteTable._ID + ")"
+                + " FROM " + NoteTable.TABLE_NAME
+                + " WHERE " + NoteTable.ORIGIN_ID + "=" + item.originId
+                + " AND " + NoteTable.CONVERSATION_OID + "=?", new String[]{item.conversationOid})) {
+            if (cursor.moveToNext()) firstId = cursor.getLong(0);
         }
-        logger.logProgress(Long.toString(rowsCount) + " notes loaded");
+        NoteItem first = firstId == 0 ? null : getItem(firstId);
+        members.put(item.conversationOid, first);
+        return first;
     }
 
-    private void fixConversationsUsingReplies() {
-        AtomicInteger counter = new AtomicInteger();
-        for (NoteItem item : items.values()) {
+    private void fixConversationsUsingReplies(List<NoteItem> page) {
+        for (NoteItem item : page) {
             if (item.inReplyToId != 0) {
-                NoteItem parent = items.get(item.inReplyToId);
+                NoteItem parent = getItem(item.inReplyToId);
                 if (parent == null) {
                     item.fixInReplyToId(0);
                 } else {
@@ -171,42 +262,29 @@ public class CheckConversations extends DataChecker {
                     }
                 }
             }
-            counter.incrementAndGet();
-            logger.logProgressIfLongProcess(() -> "Checked replies for " + counter.get() + " notes of " + items.size());
         }
     }
 
-    private void fixConversationsUsingConversationOid() {
-        AtomicInteger counter = new AtomicInteger();
-        Map<Long, Map<String, NoteItem>> origins = new ConcurrentHashMap<>();
-        for (NoteItem item : items.values()) {
+    private void fixConversationsUsingConversationOid(List<NoteItem> page) {
+        for (NoteItem item : page) {
             if (!StringUtils.isEmpty(item.conversationOid)) {
-                Map<String, NoteItem> firstConversationMembers = origins.get(item.originId);
-                if (firstConversationMembers == null) {
-                    firstConversationMembers = new ConcurrentHashMap<>();
-                    origins.put(item.originId, firstConversationMembers);
-                }
-                NoteItem parent = firstConversationMembers.get(item.conversationOid);
-                if (parent == null) {
+                NoteItem parent = firstConversationMember(item);
+                if (parent == null || parent == item) {
                     item.fixConversationId(item.conversationId == 0 ? item.id : item.conversationId);
-                    firstConversationMembers.put(item.conversationOid, item);
                 } else {
+                    if (parent.conversationId == 0) {
+                        parent.fixConversationId(parent.id);
+                    }
                     if (item.fixConversationId(parent.conversationId)) {
                         changeConversationOfReplies(item, 200);
                     }
                 }
             }
-            counter.incrementAndGet();
-            logger.logProgressIfLongProcess(() -> "Checked conversations for " + counter + " notes of " + items.size());
         }
     }
 
     private void changeConversationOfReplies(NoteItem parent, int level) {
-        List<NoteItem> replies1 = replies.get(parent.id);
-        if (replies1 == null) {
-            return;
-        }
-        for (NoteItem item : replies1) {
+        for (NoteItem item : repliesOf(parent)) {
             if (item.fixConversationId(parent.conversationId)) {
                 if (level > 0) {
                     changeConversationOfReplies(item, level - 1);
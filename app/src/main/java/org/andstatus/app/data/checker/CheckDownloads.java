@@ -68,6 +68,7 @@ class CheckDownloads extends DataChecker {
 
             DownloadData dd = DownloadData.fromCursor(cursor);
             results.totalCount++;
+            rowsScanned.incrementAndGet();
             if (!dd.getFile().existsNow()) {
                 results.toFix.add(new Result(dd.getDownloadId()));
             }
@@ -45,6 +45,7 @@ class CheckTimelines extends DataChecker {
             MyQuery.get(myContext, "SELECT * FROM " + TimelineTable.TABLE_NAME,
                     cursor -> Timeline.fromCursor(myContext, cursor)
             ).forEach(timeline -> {
+                rowsScanned.incrementAndGet();
                 if (!timeline.isValid()) {
                     logger.logProgress("Invalid timeline: " + timeline);
                     DbUtils.waitMs(this, 1000);
@@ -124,6 +124,7 @@ class CheckUsers extends DataChecker {
             Set<Actor> actors = new HashSet<>();
             while (c.moveToNext()) {
                 rowsCount++;
+                rowsScanned.incrementAndGet();
                 final Actor actor = Actor.fromCursor(myContext, c, false);
                 final String webFingerId = DbUtils.getString(c, ActorTable.WEBFINGER_ID);
                 if (actor.isWebFingerIdValid() && !actor.getWebFingerId().equals(webFingerId)) {
@@ -24,21 +24,31 @@ import org.andstatus.app.os.AsyncTaskLauncher;
 import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.service.MyServiceManager;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SharedPreferencesUtil;
 import org.andstatus.app.util.StopWatch;
+import org.andstatus.app.util.StringUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
  * @author yvolk@yurivolkov.com
  */
 public abstract class DataChecker {
+    static final int PAGE_SIZE = 500;
+    private static final String CHECKPOINT_KEY_PREFIX = "data_checker_checkpoint_";
     MyContext myContext;
     ProgressLogger logger = ProgressLogger.getEmpty("DataChecker");
     boolean includeLong = false;
     boolean countOnly = false;
+    final AtomicLong rowsScanned = new AtomicLong();
 
     static String getSomeOfTotal(long some, long total) {
         return (some == 0
@@ -96,28 +106,43 @@ public abstract class DataChecker {
         StopWatch stopWatch = StopWatch.createStarted();
         try {
             MyLog.i(DataChecker.class, "fixData started" + (includeLong ? ", including long tasks" : ""));
-            List<DataChecker> allCheckers = Arrays.asList(
-                    new CheckTimelines(),
-                    new CheckDownloads(),
-                    new MergeActors(),
-                    new CheckUsers(),
-                    new CheckConversations(),
-                    new CheckAudience(),
-                    new SearchIndexUpdate());
+            // Checkers of the same group depend on each other, so they are executed sequentially.
+            // Independent groups are executed in parallel.
+            // Downloads of actors are deleted by MergeActors, so CheckDownloads runs after it
+            List<List<DataChecker>> allGroups = Arrays.asList(
+                    Arrays.asList(
+                        new MergeActors(),
+                        new CheckUsers(),
+                        new CheckConversations(),
+                        new CheckAudience(),
+                        new CheckDownloads()),
+                    Arrays.asList(
+                        new CheckTimelines(),
+                        new SearchIndexUpdate()));
 
             // TODO: define scope in parameters
             String scope = "All";
-            List<DataChecker> selectedCheckers = allCheckers.stream()
-                    .filter(c -> scope.contains("All") || scope.contains(c.getClass().getSimpleName()))
+            List<List<DataChecker>> selectedGroups = allGroups.stream()
+                    .map(group -> group.stream()
+                            .filter(c -> scope.contains("All") || scope.contains(c.getClass().getSimpleName()))
+                            .collect(Collectors.toList()))
+                    .filter(group -> !group.isEmpty())
                     .collect(Collectors.toList());
 
-            for(DataChecker checker : selectedCheckers) {
-                if (logger.isCancelled()) break;
-
-                MyServiceManager.setServiceUnavailable();
-                counter += checker.setMyContext(myContext).setIncludeLong(includeLong).setLogger(logger)
-                        .setCountOnly(countOnly)
-                        .fix();
+            List<CompletableFuture<Long>> futures = new ArrayList<>();
+            for (List<DataChecker> group : selectedGroups) {
+                futures.add(fixGroupAsync(myContext, group, logger, includeLong, countOnly));
+            }
+            for (CompletableFuture<Long> future : futures) {
+                try {
+                    counter += future.get();
+                } catch (ExecutionException e) {
+                    MyLog.w(DataChecker.class, "fixData failed", e.getCause());
+                } catch (InterruptedException e) {
+                    MyLog.w(DataChecker.class, "fixData interrupted", e);
+                    Thread.currentThread().interrupt();
+                    break;
+                }
             }
         } finally {
             MyServiceManager.setServiceAvailable();
@@ -126,6 +151,32 @@ public abstract class DataChecker {
         return counter;
     }
 
+    /** The group is executed in the current thread, if the pool is busy */
+    private static CompletableFuture<Long> fixGroupAsync(MyContext myContext, List<DataChecker> group,
+                                                         ProgressLogger logger, boolean includeLong, boolean countOnly) {
+        try {
+            return CompletableFuture.supplyAsync(() -> fixGroup(myContext, group, logger, includeLong, countOnly),
+                    AsyncTaskLauncher.getPoolExecutor(MyAsyncTask.PoolEnum.DATA_CHECK));
+        } catch (RejectedExecutionException e) {
+            MyLog.v(DataChecker.class, "Pool is busy, checking in the current thread");
+            return CompletableFuture.completedFuture(fixGroup(myContext, group, logger, includeLong, countOnly));
+        }
+    }
+
+    private static long fixGroup(MyContext myContext, List<DataChecker> group, ProgressLogger logger,
+                                 boolean includeLong, boolean countOnly) {
+        long counter = 0;
+        for(DataChecker checker : group) {
+            if (logger.isCancelled()) break;
+
+            MyServiceManager.setServiceUnavailable();
+            counter += checker.setMyContext(myContext).setIncludeLong(includeLong).setLogger(logger)
+                    .setCountOnly(countOnly)
+                    .fix();
+        }
+        return counter;
+    }
+
     private DataChecker setIncludeLong(boolean includeLong) {
         this.includeLong = includeLong;
         return this;
@@ -146,8 +197,11 @@ public abstract class DataChecker {
     public long fix() {
         StopWatch stopWatch = StopWatch.createStarted();
         logger.logProgress(checkerName() + " checker started");
+        rowsScanned.set(0);
         long changedCount = fixInternal();
         logger.logProgress(checkerName() + " checker ended in " + stopWatch.getTime(TimeUnit.SECONDS) + " sec, " +
+            "scanned " + rowsScanned.get() + " rows, " +
+                rowsScanned.get() * 1000 / Long.max(stopWatch.getTime(), 1) + " rows/sec, " +
             (changedCount > 0
                 ? (countOnly ? "need to change " : "changed ") + changedCount + " items"
                 : " no changes were needed"));
@@ -155,5 +209,25 @@ public abstract class DataChecker {
         return changedCount;
     }
 
+    /** @return id, below which rows were not checked yet by the previous interrupted run of the same mode
+     *     (with or without long checks), 0 to start from the newest row */
+    long getCheckpoint(String part) {
+        return countOnly ? 0 : SharedPreferencesUtil.getLong(checkpointKey(part));
+    }
+
+    /** Rows down to this id (exclusive) are checked and fixed, so the next run may continue from it */
+    void saveCheckpoint(String part, long id) {
+        if (!countOnly) SharedPreferencesUtil.putLong(checkpointKey(part), id);
+    }
+
+    void clearCheckpoint(String part) {
+        if (!countOnly) SharedPreferencesUtil.removeKey(checkpointKey(part));
+    }
+
+    private String checkpointKey(String part) {
+        return CHECKPOINT_KEY_PREFIX + checkerName() + (StringUtils.isEmpty(part) ? "" : "_" + part)
+                + (includeLong ? "_long" : "");
+    }
+
     abstract long fixInternal();
 }
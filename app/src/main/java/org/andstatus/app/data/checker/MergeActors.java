@@ -56,6 +56,10 @@ class MergeActors extends DataChecker {
             }
             changedCount++;
         }
+        if (changedCount > 0 && !countOnly) {
+            // Activities of merged actors may have had new notification events
+            myContext.getNotifier().recount();
+        }
         return changedCount;
     }
 
@@ -76,6 +80,7 @@ class MergeActors extends DataChecker {
             Actor prev = null;
             while (c.moveToNext()) {
                 rowsCount++;
+                rowsScanned.incrementAndGet();
                 Actor actor = Actor.fromOid(myContext.origins().fromId(c.getLong(1)),
                         c.getString(2));
                 actor.actorId = c.getLong(0);
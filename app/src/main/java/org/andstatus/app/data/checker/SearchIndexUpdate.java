@@ -19,6 +19,7 @@ package org.andstatus.app.data.checker;
 import android.database.Cursor;
 
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.NoteSearchIndex;
 import org.andstatus.app.database.table.NoteTable;
 import org.andstatus.app.net.social.Note;
 import org.andstatus.app.service.MyServiceManager;
@@ -27,7 +28,6 @@ import org.andstatus.app.util.MyLog;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.andstatus.app.data.MyQuery.quoteIfNotQuoted;
 
@@ -38,24 +38,54 @@ class SearchIndexUpdate extends DataChecker {
 
     @Override
     long fixInternal() {
-        String sql = Note.getSqlToLoadContent(0) +
-                " ORDER BY " + NoteTable._ID + " DESC" +
-                (includeLong ? "" : " LIMIT 0, 10000");
+        final long rowsMax = includeLong ? Long.MAX_VALUE : 10000;
+        long fromId = getCheckpoint("");
+        if (fromId != 0) logger.logProgress("Continuing from noteId=" + fromId);
         List<Note> notesToFix = new ArrayList<>();
-        AtomicInteger counter = new AtomicInteger();
-        try (Cursor cursor = myContext.getDatabase().rawQuery(sql, null)) {
-            while (cursor.moveToNext()) {
+        long fixedCount = 0;
+        long rowsCount = 0;
+        String sql = "";
+        try {
+            // Keyset pages by descending id, so we don't hold all notes to fix in memory
+            while (!logger.isCancelled() && rowsCount < rowsMax) {
+                sql = Note.getSqlToLoadContent(0) +
+                        (fromId == 0 ? "" : " WHERE " + NoteTable._ID + "<" + fromId) +
+                        " ORDER BY " + NoteTable._ID + " DESC" +
+                        " LIMIT " + Long.min(PAGE_SIZE, rowsMax - rowsCount);
+                long rowsInPage = 0;
+                try (Cursor cursor = myContext.getDatabase().rawQuery(sql, null)) {
+                    while (cursor.moveToNext()) {
+                        if (logger.isCancelled()) break;
+
+                        rowsInPage++;
+                        rowsScanned.incrementAndGet();
+                        Note note = Note.contentFromCursor(myContext, cursor);
+                        fromId = note.noteId;
+                        String contentToSearchStored = DbUtils.getString(cursor, NoteTable.CONTENT_TO_SEARCH);
+                        if (!contentToSearchStored.equals(note.getContentToSearch())) {
+                            notesToFix.add(note);
+                            final long fixed = fixedCount + notesToFix.size();
+                            final long counter = rowsCount + rowsInPage;
+                            logger.logProgressIfLongProcess(() -> "Need to fix " + fixed + " of " + counter + " notes, "
+                                    + ", id=" + note.noteId + "; "
+                                    + I18n.trimTextAt(note.getContentToSearch(), 120));
+                        }
+                    }
+                }
+                if (!countOnly) notesToFix.forEach(this::fixOneNote);
+                fixedCount += notesToFix.size();
+                notesToFix.clear();
+                rowsCount += rowsInPage;
                 if (logger.isCancelled()) break;
 
-                counter.incrementAndGet();
-                Note note = Note.contentFromCursor(myContext, cursor);
-                String contentToSearchStored = DbUtils.getString(cursor, NoteTable.CONTENT_TO_SEARCH);
-                if (!contentToSearchStored.equals(note.getContentToSearch())) {
-                    notesToFix.add(note);
-                    logger.logProgressIfLongProcess(() -> "Need to fix " + notesToFix.size() + " of " + counter.get() + " notes, "
-                            + ", id=" + note.noteId + "; "
-                            + I18n.trimTextAt(note.getContentToSearch(), 120));
+                if (rowsInPage < PAGE_SIZE) {
+                    fromId = 0;
+                    break;
                 }
+                saveCheckpoint("", fromId);
+            }
+            if (fromId == 0 || rowsCount >= rowsMax) {
+                clearCheckpoint("");
             }
         } catch (Exception e) {
             String logMsg = "Error: " + e.getMessage() + ", SQL:" + sql;
@@ -63,12 +93,26 @@ class SearchIndexUpdate extends DataChecker {
             MyLog.e(this, logMsg, e);
         }
 
-        if (!countOnly) notesToFix.forEach(this::fixOneNote);
+        long fixedInIndex = fixFullTextIndex();
+
+        logger.logProgress(fixedCount == 0 && fixedInIndex == 0
+                ? "No changes to search index were needed. " + rowsCount + " notes"
+                : "Updated search index for " + fixedCount + " of " + rowsCount + " notes"
+                    + (fixedInIndex > 0 ? ", full text index: " + fixedInIndex + " notes" : ""));
+        return fixedCount + fixedInIndex;
+    }
 
-        logger.logProgress(notesToFix.isEmpty()
-                ? "No changes to search index were needed. " + counter + " notes"
-                : "Updated search index for " + notesToFix.size() + " of " + counter + " notes");
-        return notesToFix.size();
+    private long fixFullTextIndex() {
+        if (logger.isCancelled()) return 0;
+
+        try {
+            return NoteSearchIndex.fixMissingAndOrphaned(myContext.getDatabase(), countOnly);
+        } catch (Exception e) {
+            String logMsg = "Error: " + e.getMessage() + ", fixing full text index";
+            logger.logProgress(logMsg);
+            MyLog.e(this, logMsg, e);
+            return 0;
+        }
     }
 
     private void fixOneNote(Note note) {
@@ -81,6 +125,7 @@ class SearchIndexUpdate extends DataChecker {
                     + NoteTable.CONTENT_TO_SEARCH + "=" + quoteIfNotQuoted(note.getContentToSearch())
                     + " WHERE " + NoteTable._ID + "=" + note.noteId;
             myContext.getDatabase().execSQL(sql);
+            NoteSearchIndex.update(myContext.getDatabase(), note.noteId, note.getContentToSearch());
             logger.logProgressIfLongProcess(() -> "Updating search index for " +
                     I18n.trimTextAt(note.getContentToSearch(), 120) +
                     " id=" + note.noteId
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data.converter;
+
+import org.andstatus.app.data.DbUtils;
+
+class Convert51 extends ConvertOneStep {
+    Convert51() {
+        versionTo = 52;
+    }
+
+    @Override
+    protected void execute2() {
+        progressLogger.logProgress(stepTitle + ": Creating full text search index of notes");
+        sql = "CREATE VIRTUAL TABLE note_fts USING fts4(content_to_search, tokenize=unicode61 \"remove_diacritics=0\")";
+        DbUtils.execSQL(db, sql);
+        sql = "INSERT INTO note_fts (docid, content_to_search)" +
+                " SELECT _id, content_to_search FROM note WHERE content_to_search IS NOT NULL AND content_to_search!=''";
+        DbUtils.execSQL(db, sql);
+    }
+}
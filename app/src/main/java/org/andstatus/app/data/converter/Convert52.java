@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data.converter;
+
+import org.andstatus.app.data.DbUtils;
+
+class Convert52 extends ConvertOneStep {
+    Convert52() {
+        versionTo = 53;
+    }
+
+    @Override
+    protected void execute2() {
+        progressLogger.logProgress(stepTitle + ": Adding validators of HTTP responses");
+        sql = "CREATE TABLE http_validator (account_name TEXT NOT NULL,url TEXT NOT NULL,origin_id INTEGER NOT NULL DEFAULT 0," +
+                "etag TEXT,last_modified TEXT,response_size INTEGER NOT NULL DEFAULT 0,response TEXT,validated_date INTEGER NOT NULL DEFAULT 0," +
+                " CONSTRAINT pk_http_validator PRIMARY KEY (account_name ASC, url ASC))";
+        DbUtils.execSQL(db, sql);
+    }
+}
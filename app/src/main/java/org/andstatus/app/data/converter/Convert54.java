@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data.converter;
+
+import org.andstatus.app.data.DbUtils;
+
+class Convert54 extends ConvertOneStep {
+    Convert54() {
+        versionTo = 55;
+    }
+
+    @Override
+    protected void execute2() {
+        progressLogger.logProgress(stepTitle + ": Adding indexes for pruning of activities");
+        sql = "CREATE INDEX idx_activity_ins_date ON activity (activity_ins_date)";
+        DbUtils.execSQL(db, sql);
+
+        sql = "CREATE INDEX idx_actor_activity ON actor (actor_activity_id)";
+        DbUtils.execSQL(db, sql);
+    }
+}
@@ -27,6 +27,8 @@ import org.andstatus.app.database.table.AudienceTable;
 import org.andstatus.app.database.table.CommandTable;
 import org.andstatus.app.database.table.DownloadTable;
 import org.andstatus.app.database.table.GroupMembersTable;
+import org.andstatus.app.database.table.HttpValidatorTable;
+import org.andstatus.app.database.table.NoteSearchTable;
 import org.andstatus.app.database.table.NoteTable;
 import org.andstatus.app.database.table.OriginTable;
 import org.andstatus.app.database.table.TimelineTable;
@@ -41,6 +43,10 @@ public class DatabaseCreator {
      * Current database scheme version, defined by AndStatus developers.
      * This is used to check (and upgrade if necessary) existing database after application update.
      *
+     * v.55 2019-10-27 Indexes for chunked pruning of activities.
+     * v.54 2019-10-26 Downloaded files are named by their content hash and may be shared by downloads.
+     * v.53 2019-10-19 HttpValidatorTable added: validators of responses for conditional HTTP GET requests.
+     * v.52 2019-10-12 NoteSearchTable added: full text search index of notes.
      * v.51 2019-07-23 ActorTable holds Groups also. GroupMembersTable instead of FriendshipTable
      * v.50 2019-05-26 Summary and "Sensitive" properties added. https://github.com/andstatus/andstatus/issues/507
      * v.48 2019-04-21 Accounts renamed to: username@hostName/originTypeOrOriginName
@@ -76,7 +82,7 @@ public class DatabaseCreator {
      *      All messages are in the same table.
      *      Allows to have multiple User Accounts in different Originating systems (twitter.com etc. )
      */
-    public static final int DATABASE_VERSION = 51;
+    public static final int DATABASE_VERSION = 55;
     public static final long ORIGIN_ID_TWITTER =  1L;
 
     private final SQLiteDatabase db;
@@ -93,6 +99,7 @@ public class DatabaseCreator {
         MyLog.i(this, "Creating tables");
         OriginTable.create(db);
         NoteTable.create(db);
+        NoteSearchTable.create(db);
         UserTable.create(db);
         ActorTable.create(db);
         AudienceTable.create(db);
@@ -102,6 +109,7 @@ public class DatabaseCreator {
         ActivityTable.create(db);
         CommandTable.create(db);
         ActorEndpointTable.create(db);
+        HttpValidatorTable.create(db);
         return this;
     }
 
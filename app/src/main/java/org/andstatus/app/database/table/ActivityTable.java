@@ -129,6 +129,11 @@ public final class ActivityTable implements BaseColumns {
                 + ")"
         );
 
+        DbUtils.execSQL(db, "CREATE INDEX idx_activity_ins_date ON " + TABLE_NAME + " ("
+                + INS_DATE
+                + ")"
+        );
+
         DbUtils.execSQL(db, "CREATE INDEX idx_activity_actor_timeline ON " + TABLE_NAME + " ("
                 + ACTOR_ID + ", "
                 + UPDATED_DATE
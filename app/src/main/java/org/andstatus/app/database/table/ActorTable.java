@@ -155,5 +155,9 @@ public final class ActorTable implements BaseColumns {
         DbUtils.execSQL(db, "CREATE INDEX idx_actor_webfinger ON " + TABLE_NAME + " ("
                 + WEBFINGER_ID
                 + ")");
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_actor_activity ON " + TABLE_NAME + " ("
+                + ACTOR_ACTIVITY_ID
+                + ")");
     }
 }
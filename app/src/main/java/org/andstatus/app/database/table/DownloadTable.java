@@ -49,6 +49,8 @@ public final class DownloadTable implements BaseColumns {
     public static final String WIDTH = "width";
     public static final String HEIGHT = "height";
     public static final String DURATION = "duration";
+    /** Name of a file in the media folder. Downloaded files are named by their content hash,
+     * so one file may be shared by several downloads. The file is deleted, when no rows refer to it */
     public static final String FILE_NAME = "file_name";
     public static final String FILE_SIZE = "file_size";
     public static final String DOWNLOADED_DATE = "downloaded_date";
@@ -97,5 +99,9 @@ public final class DownloadTable implements BaseColumns {
         DbUtils.execSQL(db, "CREATE INDEX idx_download_downloaded_date ON " + TABLE_NAME + " ("
                 + DOWNLOADED_DATE
                 + ")");
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_download_file_name ON " + TABLE_NAME + " ("
+                + FILE_NAME
+                + ")");
     }
 }
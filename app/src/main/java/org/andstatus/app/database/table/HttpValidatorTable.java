@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.database.table;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.data.DbUtils;
+
+/** Validators (ETag, Last-Modified) of HTTP GET responses, used to send conditional requests
+ * See {@link org.andstatus.app.net.http.HttpValidators} */
+public final class HttpValidatorTable {
+    public static final String TABLE_NAME = "http_validator";
+
+    private HttpValidatorTable() {
+    }
+
+    /** Empty for requests without an account */
+    public static final String ACCOUNT_NAME = "account_name";
+    public static final String URL = "url";
+    public static final String ORIGIN_ID = OriginTable.ORIGIN_ID;
+    public static final String ETAG = "etag";
+    public static final String LAST_MODIFIED = "last_modified";
+    /** Size of the {@link #RESPONSE} in UTF-8 bytes, used to limit the total size of stored responses */
+    public static final String RESPONSE_SIZE = "response_size";
+    /** Body of the response to reuse when the server replies "304 Not Modified".
+     * Null for downloaded files, because they are stored in files */
+    public static final String RESPONSE = "response";
+    public static final String VALIDATED_DATE = "validated_date";
+
+    public static void create(SQLiteDatabase db) {
+        DbUtils.execSQL(db, "CREATE TABLE " + TABLE_NAME + " ("
+                + ACCOUNT_NAME + " TEXT NOT NULL,"
+                + URL + " TEXT NOT NULL,"
+                + ORIGIN_ID + " INTEGER NOT NULL DEFAULT 0,"
+                + ETAG + " TEXT,"
+                + LAST_MODIFIED + " TEXT,"
+                + RESPONSE_SIZE + " INTEGER NOT NULL DEFAULT 0,"
+                + RESPONSE + " TEXT,"
+                + VALIDATED_DATE + " INTEGER NOT NULL DEFAULT 0,"
+                + " CONSTRAINT pk_" + TABLE_NAME + " PRIMARY KEY (" + ACCOUNT_NAME + " ASC, " + URL + " ASC)"
+                + ")");
+    }
+}
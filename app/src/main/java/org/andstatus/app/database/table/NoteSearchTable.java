@@ -0,0 +1,30 @@
+package org.andstatus.app.database.table;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.data.DbUtils;
+
+/**
+ * Full text search index of Notes, see <a href="https://www.sqlite.org/fts3.html">SQLite FTS3 and FTS4 Extensions</a>
+ * {@link #DOCID} of a row is {@link NoteTable#_ID} of the indexed note.
+ * We index {@link NoteTable#CONTENT_TO_SEARCH}, so search by this index gives the same results
+ * as the "LIKE" search over that column, except for substrings (see "contains:" keywords)
+ */
+public final class NoteSearchTable {
+    public static final String TABLE_NAME = "note_fts";
+
+    private NoteSearchTable() {
+    }
+
+    /** Implicit column of a FTS table, the same as "rowid" */
+    public static final String DOCID = "docid";
+    public static final String CONTENT_TO_SEARCH = NoteTable.CONTENT_TO_SEARCH;
+
+    public static void create(SQLiteDatabase db) {
+        // Diacritics are not removed, because the "LIKE" search didn't remove them either
+        DbUtils.execSQL(db, "CREATE VIRTUAL TABLE " + TABLE_NAME + " USING fts4("
+                + CONTENT_TO_SEARCH + ","
+                + " tokenize=unicode61 \"remove_diacritics=0\""
+                + ")");
+    }
+}
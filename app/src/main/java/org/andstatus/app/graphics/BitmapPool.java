@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.Nullable;
+
+import org.andstatus.app.util.MyLog;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Free bitmaps of an {@link ImageCache}, which are reused to decode (see {@link android.graphics.BitmapFactory.Options#inBitmap})
+ * or to draw images. Bitmaps are allocated on demand only.
+ * Bitmaps are kept in buckets by their allocation size, a bucket has bitmaps with size from 2^n to 2^(n+1) bytes,
+ * so a small image doesn't take a bitmap of the maximum size. A reused bitmap is reconfigured to the requested size.
+ * Bitmaps of evicted images may still be attached to views, so the pool never recycles bitmaps
+ * (see {@link Bitmap#recycle()}): extra bitmaps are dropped and left to the garbage collector.
+ * @author yvolk@yurivolkov.com
+ */
+class BitmapPool {
+    private static final int BUCKETS_TO_LOOK_UP = 2;
+
+    private final int maxFreeCount;
+    private final Map<Integer, Queue<Bitmap>> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger freeCount = new AtomicInteger();
+    final AtomicLong allocations = new AtomicLong();
+    final AtomicLong reuses = new AtomicLong();
+    final AtomicLong drops = new AtomicLong();
+
+    BitmapPool(int maxFreeCount) {
+        this.maxFreeCount = maxFreeCount;
+    }
+
+    /** @return a mutable bitmap of exactly this size or null, if there is no memory for it */
+    @Nullable
+    Bitmap get(int width, int height) {
+        if (width < 1 || height < 1) return null;
+
+        long bytesNeeded = bytesOf(width, height);
+        int bucket = bucketOf(bytesNeeded);
+        if (bytesNeeded > 1L << bucket) bucket++;
+        for (int index = bucket; index < bucket + BUCKETS_TO_LOOK_UP; index++) {
+            Queue<Bitmap> queue = buckets.get(index);
+            Bitmap bitmap = queue == null ? null : queue.poll();
+            if (bitmap != null) {
+                freeCount.decrementAndGet();
+                if (bitmap.getAllocationByteCount() >= bytesNeeded) {
+                    bitmap.reconfigure(width, height, CachedImage.BITMAP_CONFIG);
+                    reuses.incrementAndGet();
+                    return bitmap;
+                }
+                put(bitmap);
+            }
+        }
+        try {
+            // Allocated size is rounded up to the bucket size, so the bitmap may be reused for any image of the bucket
+            Bitmap bitmap = Bitmap.createBitmap(width,
+                    (int) ((1L << bucket) / bytesOf(width, 1) + 1), CachedImage.BITMAP_CONFIG);
+            bitmap.reconfigure(width, height, CachedImage.BITMAP_CONFIG);
+            allocations.incrementAndGet();
+            return bitmap;
+        } catch (OutOfMemoryError e) {
+            MyLog.w(this, "Failed to allocate " + width + "x" + height + " bitmap. " + this, e);
+            clear();
+            return null;
+        }
+    }
+
+    void put(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) return;
+
+        if (!bitmap.isMutable() || freeCount.get() >= maxFreeCount) {
+            drops.incrementAndGet();
+            return;
+        }
+        buckets.computeIfAbsent(bucketOf(bitmap.getAllocationByteCount()), key -> new ConcurrentLinkedQueue<>())
+                .add(bitmap);
+        freeCount.incrementAndGet();
+    }
+
+    /** Drops free bitmaps */
+    void clear() {
+        buckets.values().forEach(queue -> {
+            while (queue.poll() != null) {
+                freeCount.decrementAndGet();
+                drops.incrementAndGet();
+            }
+        });
+    }
+
+    int freeCount() {
+        return freeCount.get();
+    }
+
+    private static long bytesOf(int width, int height) {
+        return (long) width * height * ImageCache.BYTES_PER_PIXEL;
+    }
+
+    /** @return n, where 2^n <= bytes < 2^(n+1) */
+    private static int bucketOf(long bytes) {
+        return 63 - Long.numberOfLeadingZeros(Math.max(1, bytes));
+    }
+
+    @Override
+    public String toString() {
+        return "free:" + freeCount.get() + " in " + buckets.size() + " buckets"
+                + ", allocated:" + allocations.get() + ", reused:" + reuses.get() + ", dropped:" + drops.get();
+    }
+}
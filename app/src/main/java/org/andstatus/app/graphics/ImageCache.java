@@ -43,9 +43,7 @@ import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtils;
 
 import java.io.File;
-import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -64,7 +62,7 @@ public class ImageCache extends LruCache<String, CachedImage> {
     final AtomicLong hits = new AtomicLong();
     final AtomicLong misses = new AtomicLong();
     final Set<String> brokenBitmaps = new ConcurrentSkipListSet<>();
-    final Queue<Bitmap> recycledBitmaps;
+    final BitmapPool bitmapPool;
     final DisplayMetrics displayMetrics;
     volatile boolean rounded = false;
 
@@ -81,24 +79,17 @@ public class ImageCache extends LruCache<String, CachedImage> {
         this.setMaxBounds(maxBitmapHeightWidth, maxBitmapHeightWidth);
         this.requestedCacheSize = requestedCacheSizeIn;
         this.currentCacheSize = this.requestedCacheSize;
-        recycledBitmaps = new ConcurrentLinkedQueue<>();
-        try {
-            for (int i = 0; i < currentCacheSize + 2; i++) {
-                recycledBitmaps.add(newBlankBitmap());
-            }
-        } catch (OutOfMemoryError e) {
-            MyLog.w(this, getInfo(), e);
-            currentCacheSize = recycledBitmaps.size() - 2;
-            if (currentCacheSize < 0) {
-                currentCacheSize = 0;
-            }
-            super.resize(currentCacheSize);
-        }
+        bitmapPool = new BitmapPool(currentCacheSize / 4 + 2);
     }
 
-    private Bitmap newBlankBitmap() {
-        return Bitmap.createBitmap(displayMetrics, maxBitmapWidth,
-                maxBitmapHeight, CachedImage.BITMAP_CONFIG);
+    /** Frees memory on {@link android.content.ComponentCallbacks2#onTrimMemory(int)}:
+     * free bitmaps are dropped, and on low memory cached images are evicted also */
+    void onTrimMemory(boolean lowMemory) {
+        if (lowMemory) {
+            trimToSize(size() / 2);
+        }
+        bitmapPool.clear();
+        MyLog.v(this, () -> "onTrimMemory" + (lowMemory ? " low memory" : "") + "; " + getInfo());
     }
 
     @Nullable
@@ -115,7 +106,7 @@ public class ImageCache extends LruCache<String, CachedImage> {
     protected void entryRemoved(boolean evicted, String key, CachedImage oldValue, CachedImage newValue) {
         if (oldValue.isBitmapRecyclable()) {
             oldValue.makeExpired();
-            recycledBitmaps.add(oldValue.getBitmap());
+            bitmapPool.put(oldValue.getBitmap());
         }
     }
 
@@ -153,8 +144,13 @@ public class ImageCache extends LruCache<String, CachedImage> {
             return null;
         }
         Rect srcRect = new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight());
-        Bitmap background = getSuitableRecycledBitmap(srcRect);
+        if (!rounded && bitmap.isMutable()) {
+            // Decoded into a bitmap of the pool, so it may be cached as it is
+            return new CachedImage(imageFile.getId(), bitmap, srcRect);
+        }
+        Bitmap background = bitmapPool.get(srcRect.width(), srcRect.height());
         if (background == null) {
+            bitmapPool.put(bitmap);
             MyLog.w(imageFile, "No suitable bitmap found to cache "
                     + srcRect.width() + "x" + srcRect.height() + " '" + imageFile.getPath() + "'");
             return null ;
@@ -166,7 +162,7 @@ public class ImageCache extends LruCache<String, CachedImage> {
         } else {
             canvas.drawBitmap(bitmap, 0 , 0, null);
         }
-        bitmap.recycle();
+        bitmapPool.put(bitmap);
         return new CachedImage(imageFile.getId(), background, srcRect);
     }
 
@@ -183,10 +179,6 @@ public class ImageCache extends LruCache<String, CachedImage> {
         canvas.drawOval(rectF, paint);
     }
 
-    private Bitmap getSuitableRecycledBitmap(Rect srcRect) {
-        return recycledBitmaps.poll();
-    }
-
     @Nullable
     private Bitmap loadBitmap(ImageFile imageFile) {
         switch (MyContentType.fromPathOfSavedFile(imageFile.getPath())) {
@@ -204,14 +196,17 @@ public class ImageCache extends LruCache<String, CachedImage> {
         try {
             final Bitmap bitmap;
             final BitmapFactory.Options options = calculateScaling(imageFile, imageFile.getSize());
+            setBitmapToReuse(options, imageFile.getSize());
             if (MyPreferences.isShowDebuggingInfoInUi()) {
-                bitmap = BitmapFactory.decodeFile(imageFile.getPath(), options);
+                bitmap = decodeFile(imageFile, options);
             } else {
                 try {
-                    bitmap = BitmapFactory.decodeFile(imageFile.getPath(), options);
+                    bitmap = decodeFile(imageFile, options);
                 } catch (OutOfMemoryError e) {
                     MyLog.w(imageFile, getInfo(), e);
+                    bitmapPool.put(options.inBitmap);
                     evictAll();
+                    bitmapPool.clear();
                     return null;
                 }
             }
@@ -225,6 +220,33 @@ public class ImageCache extends LruCache<String, CachedImage> {
         }
     }
 
+    /** Decodes the image into a free bitmap of the pool, if the image size is known */
+    private void setBitmapToReuse(BitmapFactory.Options options, Point imageSize) {
+        options.inMutable = true;
+        if (imageSize.x < 1 || imageSize.y < 1) return;
+
+        options.inBitmap = bitmapPool.get(
+                (imageSize.x + options.inSampleSize - 1) / options.inSampleSize,
+                (imageSize.y + options.inSampleSize - 1) / options.inSampleSize);
+    }
+
+    @Nullable
+    private Bitmap decodeFile(ImageFile imageFile, BitmapFactory.Options options) {
+        Bitmap reused = options.inBitmap;
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeFile(imageFile.getPath(), options);
+        } catch (IllegalArgumentException e) {
+            MyLog.v(imageFile, "Couldn't reuse bitmap for '" + imageFile.getPath() + "'", e);
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeFile(imageFile.getPath(), options);
+        }
+        if (reused != null && reused != bitmap) {
+            bitmapPool.put(reused);
+        }
+        return bitmap;
+    }
+
     @Nullable
     private Bitmap videoPathToBitmap(ImageFile imageFile) {
         try {
@@ -272,7 +294,7 @@ public class ImageCache extends LruCache<String, CachedImage> {
         if (requestedCacheSize != currentCacheSize) {
             builder.append(" (initially capacity was " + requestedCacheSize + ")");
         }
-        builder.append(", free: " + recycledBitmaps.size());
+        builder.append(", bitmaps: " + bitmapPool);
         if (!brokenBitmaps.isEmpty()) {
             builder.append(", broken: " + brokenBitmaps.size());
         }
@@ -17,6 +17,7 @@
 package org.andstatus.app.graphics;
 
 import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.graphics.Point;
 import androidx.annotation.NonNull;
@@ -106,6 +107,14 @@ public class ImageCaches {
         avatarsCache.rounded = SharedPreferencesUtil.getBoolean(MyPreferences.KEY_ROUNDED_AVATARS, true);
     }
 
+    /** See {@link android.content.ComponentCallbacks2#onTrimMemory(int)} */
+    public static void onTrimMemory(int level) {
+        boolean lowMemory = level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                && level != ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+        if (avatarsCache != null) avatarsCache.onTrimMemory(lowMemory);
+        if (attachedImagesCache != null) attachedImagesCache.onTrimMemory(lowMemory);
+    }
+
     private static int calcCacheSize(Context context, int imageSize, float partOfAvailableMemory) {
         return Math.round(partOfAvailableMemory * getTotalAppMemory(context)
                 / imageSize / imageSize / ImageCache.BYTES_PER_PIXEL);
@@ -39,6 +39,8 @@ public class ConnectionException extends IOException {
         NO_CREDENTIALS_FOR_HOST, 
         UNAUTHORIZED, 
         FORBIDDEN, INTERNAL_SERVER_ERROR, BAD_GATEWAY, SERVICE_UNAVAILABLE, MOVED,
+        /** Response to a conditional request, see {@link HttpValidators} */
+        NOT_MODIFIED,
         REQUEST_ENTITY_TOO_LARGE,
         LENGTH_REQUIRED,
         CLIENT_ERROR,
@@ -48,8 +50,9 @@ public class ConnectionException extends IOException {
             switch (responseCode) {
 	            case 200:
                 case 201:
-	            case 304:
 	            	return OK;
+                case 304:
+                    return NOT_MODIFIED;
                 case 301:
                 case 302:
                 case 303:
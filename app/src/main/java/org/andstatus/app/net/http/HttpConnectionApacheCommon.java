@@ -81,6 +81,7 @@ public class HttpConnectionApacheCommon {
             do {
                 HttpGet httpGet = newHttpGet(result.getUrl());
                 data.getContentType().ifPresent(value -> httpGet.addHeader("Accept", value));
+                result.getConditionalHeaders().forEach(httpGet::addHeader);
                 if (result.authenticate) {
                     specific.httpApacheSetAuthorization(httpGet);
                 }
@@ -96,6 +97,10 @@ public class HttpConnectionApacheCommon {
                         }
                         stop = true;
                         break;
+                    case NOT_MODIFIED:
+                        DbUtils.closeSilently(httpResponse);
+                        stop = true;
+                        break;
                     case MOVED:
                         stop = specific.onMoved(result);
                         break;
@@ -108,6 +108,7 @@ public interface HttpConnectionInterface {
         MyLog.v(this, () -> "getRequest; URL='" + uri + "'");
         HttpReadResult result = new HttpReadResult(uri, new JSONObject());
         result.authenticate = authenticated;
+        result.validators = HttpValidators.load(getData(), uri, false);
         getRequest(result);
         result.logResponse(getData().getLogName());
         result.parseAndThrow();
@@ -122,10 +123,20 @@ public interface HttpConnectionInterface {
         return getRequestCommon(uri, true).getJsonArray(parentKey);
     }
 
-    default void downloadFile(ConnectionRequired connectionRequired, Uri uri, File file) throws ConnectionException {
+    /**
+     * @param ifModified true to download the file only if it was modified since its previous download,
+     *                   i.e. if the caller still has the file previously downloaded from this URL
+     * @return false if the file was not modified, so it was not downloaded
+     */
+    default boolean downloadFile(ConnectionRequired connectionRequired, Uri uri, File file, boolean ifModified)
+            throws ConnectionException {
         HttpReadResult result = new HttpReadResult(getData().getMyContext(), connectionRequired, uri, file, new JSONObject());
+        result.validators = ifModified
+                ? HttpValidators.load(getData(), uri, true)
+                : HttpValidators.unconditional(getData(), uri, true);
         getRequest(result);
         result.parseAndThrow();
+        return !result.isNotModified();
     }
     
     default void getRequest(HttpReadResult result) throws ConnectionException {
@@ -162,6 +162,7 @@ public class HttpConnectionOAuth2JavaNet extends HttpConnectionOAuthJavaNet {
             do {
                 OAuthRequest request = new OAuthRequest(Verb.GET, result.getUrlObj().toString());
                 data.getContentType().ifPresent(value -> request.addHeader("Accept", value));
+                result.getConditionalHeaders().forEach(request::addHeader);
                 if (result.authenticate) {
                     signRequest(request, service, redirected);
                 }
@@ -172,6 +173,9 @@ public class HttpConnectionOAuth2JavaNet extends HttpConnectionOAuthJavaNet {
                         HttpConnectionUtils.readStream(result, response.getStream());
                         stop = true;
                         break;
+                    case NOT_MODIFIED:
+                        stop = true;
+                        break;
                     case MOVED:
                         redirected = true;
                         stop = onMoved(result);
@@ -207,6 +207,7 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
             do {
                 HttpURLConnection conn = (HttpURLConnection) result.getUrlObj().openConnection();
                 data.getContentType().ifPresent(value -> conn.addRequestProperty("Accept", value));
+                result.getConditionalHeaders().forEach(conn::addRequestProperty);
                 conn.setInstanceFollowRedirects(false);
                 if (result.authenticate) {
                     signConnection(conn, consumer, redirected);
@@ -218,6 +219,10 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
                         HttpConnectionUtils.readStream(result, conn.getInputStream());
                         stop = true;
                         break;
+                    case NOT_MODIFIED:
+                        stop = true;
+                        conn.disconnect();
+                        break;
                     case MOVED:
                         redirected = true;
                         stop = onMoved(result);
@@ -73,6 +73,8 @@ public class HttpReadResult {
     private StatusCode statusCode = StatusCode.UNKNOWN;
 
     boolean redirected = false;
+    /** Validators of the previous response to this request. Non-empty ones make the request conditional */
+    HttpValidators validators = null;
 
     public HttpReadResult(Uri uriIn, JSONObject formParams) {
         this (MyContextHolder.get(), ConnectionRequired.ANY, uriIn, null, formParams);
@@ -147,6 +149,16 @@ public class HttpReadResult {
     public StatusCode getStatusCode() {
         return statusCode;
     }
+
+    /** Headers, which make this request conditional, see {@link HttpValidators} */
+    Map<String, String> getConditionalHeaders() {
+        return validators == null ? Collections.emptyMap() : validators.requestHeaders();
+    }
+
+    /** The file or the response was not modified since the previous request, see {@link HttpValidators} */
+    public boolean isNotModified() {
+        return exception == null && statusCode == StatusCode.NOT_MODIFIED;
+    }
     
     public String getUrl() {
         return urlString;
@@ -297,6 +309,9 @@ public class HttpReadResult {
                           + Formatter.formatShortFileSize(MyContextHolder.get().context(), fileResult.length()),
                         null);
             }
+            if (validators != null) {
+                validators.onResponse(this);
+            }
             MyLog.v(this, this::toString);
         } else {
             if (!StringUtils.isEmpty(strResponse)) {
@@ -309,7 +324,8 @@ public class HttpReadResult {
     }
 
     private boolean isStatusOk() {
-        return exception == null && (statusCode == StatusCode.OK || statusCode == StatusCode.UNKNOWN);
+        return exception == null && (statusCode == StatusCode.OK || statusCode == StatusCode.UNKNOWN
+                || statusCode == StatusCode.NOT_MODIFIED);
     }
 
     boolean isLegacyHttpProtocol() {
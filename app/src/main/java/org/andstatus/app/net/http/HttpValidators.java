@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.database.table.HttpValidatorTable;
+import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.MyStringBuilder;
+import org.andstatus.app.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Validators ("ETag" and "Last-Modified" headers) of a previous response to the GET request of the account,
+ * persisted in {@link HttpValidatorTable}. They are sent as "If-None-Match" and "If-Modified-Since",
+ * and if the server replies "304 Not Modified", the stored response (or the previously downloaded file)
+ * is used instead of downloading the same content again.
+ * Validators and responses are stored only for requests, which may be repeated, i.e. not for pages of timelines
+ * at some position (see {@link #mayRepeat(Uri)}), as such a page is requested once only
+ * @author yvolk@yurivolkov.com
+ */
+public class HttpValidators {
+    private static final String TAG = HttpValidators.class.getSimpleName();
+    /** Larger responses (in UTF-8 bytes) are not stored, so they are always downloaded in full */
+    static final int MAX_RESPONSE_SIZE = 100000;
+    /** Total size of stored responses. Responses of the least recently validated rows are deleted above it */
+    static final int MAX_RESPONSES_SIZE = 1000000;
+    private static final int MAX_ROWS = 300;
+    private static final Map<Long, OriginStats> originStats = new ConcurrentHashMap<>();
+    /** Query parameters, which set a position in a timeline, e.g. "max_id" of Twitter and Mastodon,
+     * "before" of Pump.io */
+    private static final Set<String> POSITION_PARAMETERS = new HashSet<>(Arrays.asList(
+            "since_id", "max_id", "min_id", "since", "before", "after", "cursor", "offset"));
+
+    private final MyContext myContext;
+    private final String accountName;
+    private final String url;
+    private final long originId;
+    private final boolean isFile;
+    private final boolean isToStore;
+    final String etag;
+    final String lastModified;
+    private final String response;
+
+    private static class OriginStats {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong conditional = new AtomicLong();
+        final AtomicLong notModified = new AtomicLong();
+    }
+
+    private HttpValidators(MyContext myContext, String accountName, String url, long originId, boolean isFile,
+                           boolean isToStore, String etag, String lastModified, String response) {
+        this.myContext = myContext;
+        this.accountName = accountName;
+        this.url = url;
+        this.originId = originId;
+        this.isFile = isFile;
+        this.isToStore = isToStore;
+        this.etag = StringUtils.notNull(etag);
+        this.lastModified = StringUtils.notNull(lastModified);
+        this.response = response;
+    }
+
+    /** Validators, which are not sent with the request, but are updated from its response */
+    static HttpValidators unconditional(@NonNull HttpConnectionData data, Uri uri, boolean isFile) {
+        return new HttpValidators(data.getMyContext(), data.getAccountName().getName(), uri.toString(),
+                data.getAccountName().getOrigin().getId(), isFile, isFile || mayRepeat(uri), "", "", null);
+    }
+
+    /** @param isFile true if the response is saved to a file, which is kept by the caller */
+    static HttpValidators load(@NonNull HttpConnectionData data, Uri uri, boolean isFile) {
+        HttpValidators empty = unconditional(data, uri, isFile);
+        if (!empty.isToStore) return empty;
+
+        SQLiteDatabase db = empty.myContext.getDatabase();
+        if (db == null) {
+            MyLog.databaseIsNull(() -> TAG + " load");
+            return empty;
+        }
+        try (Cursor cursor = db.query(HttpValidatorTable.TABLE_NAME,
+                new String[]{HttpValidatorTable.ETAG, HttpValidatorTable.LAST_MODIFIED, HttpValidatorTable.RESPONSE},
+                HttpValidatorTable.ACCOUNT_NAME + "=? AND " + HttpValidatorTable.URL + "=?",
+                new String[]{empty.accountName, empty.url}, null, null, null)) {
+            if (cursor.moveToNext()) {
+                String response = cursor.isNull(2) ? null : cursor.getString(2);
+                if (isFile == (response == null)) {
+                    return new HttpValidators(empty.myContext, empty.accountName, empty.url, empty.originId,
+                            isFile, true, cursor.getString(0), cursor.getString(1), response);
+                }
+            }
+        } catch (Exception e) {
+            MyLog.w(TAG, "Failed to load validators of " + empty.url, e);
+        }
+        return empty;
+    }
+
+    /** @return false for a page of a timeline at some position: the same URL is not requested again */
+    static boolean mayRepeat(Uri uri) {
+        if (uri == null || !uri.isHierarchical()) return false;
+
+        for (String name : uri.getQueryParameterNames()) {
+            if (POSITION_PARAMETERS.contains(name)) return false;
+            if ("page".equals(name)) {
+                String page = StringUtils.notNull(uri.getQueryParameter(name));
+                if (page.matches("\\d+") && !"1".equals(page)) return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return etag.isEmpty() && lastModified.isEmpty();
+    }
+
+    /** Headers of a conditional request */
+    Map<String, String> requestHeaders() {
+        if (isEmpty()) return Collections.emptyMap();
+
+        Map<String, String> headers = new HashMap<>();
+        if (StringUtils.nonEmpty(etag)) headers.put("If-None-Match", etag);
+        if (StringUtils.nonEmpty(lastModified)) headers.put("If-Modified-Since", lastModified);
+        return headers;
+    }
+
+    /** Called after a successful response.
+     * If the content was not modified, the stored response is set to the result */
+    void onResponse(@NonNull HttpReadResult result) {
+        OriginStats stats = originStats.computeIfAbsent(originId, k -> new OriginStats());
+        stats.requests.incrementAndGet();
+        if (!isEmpty()) stats.conditional.incrementAndGet();
+
+        if (result.getStatusCode() == StatusCode.NOT_MODIFIED) {
+            stats.notModified.incrementAndGet();
+            if (!isFile) result.strResponse = StringUtils.notNull(response);
+            MyLog.v(TAG, () -> "Not modified: " + url);
+            touch();
+            return;
+        }
+        if (!isToStore) return;
+
+        String etagNew = headerValue(result, "ETag");
+        String lastModifiedNew = headerValue(result, "Last-Modified");
+        long responseSize = isFile ? 0 : responseSize(result.strResponse);
+        if ((etagNew.isEmpty() && lastModifiedNew.isEmpty()) || responseSize > MAX_RESPONSE_SIZE) {
+            if (!isEmpty()) delete();
+        } else if (!etagNew.equals(etag) || !lastModifiedNew.equals(lastModified) || !isFile) {
+            save(etagNew, lastModifiedNew, isFile ? null : result.strResponse, responseSize);
+        } else {
+            touch();
+        }
+    }
+
+    private static String headerValue(HttpReadResult result, String name) {
+        for (Map.Entry<String, List<String>> header : result.getHeaders().entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                return StringUtils.notNull(header.getValue().get(0));
+            }
+        }
+        return "";
+    }
+
+    /** @return size in UTF-8 bytes, or a value above {@link #MAX_RESPONSE_SIZE} for a longer response */
+    private static long responseSize(String response) {
+        if (response == null) return 0;
+        // A char takes at least one byte
+        if (response.length() > MAX_RESPONSE_SIZE) return response.length();
+
+        return response.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private void save(String etagNew, String lastModifiedNew, String responseNew, long responseSize) {
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            MyLog.databaseIsNull(() -> TAG + " save");
+            return;
+        }
+        ContentValues values = new ContentValues();
+        values.put(HttpValidatorTable.ACCOUNT_NAME, accountName);
+        values.put(HttpValidatorTable.URL, url);
+        values.put(HttpValidatorTable.ORIGIN_ID, originId);
+        values.put(HttpValidatorTable.ETAG, etagNew);
+        values.put(HttpValidatorTable.LAST_MODIFIED, lastModifiedNew);
+        if (responseNew == null) {
+            values.putNull(HttpValidatorTable.RESPONSE);
+        } else {
+            values.put(HttpValidatorTable.RESPONSE, responseNew);
+        }
+        values.put(HttpValidatorTable.RESPONSE_SIZE, responseSize);
+        values.put(HttpValidatorTable.VALIDATED_DATE, System.currentTimeMillis());
+        try {
+            db.insertWithOnConflict(HttpValidatorTable.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            prune(db);
+        } catch (Exception e) {
+            MyLog.w(TAG, "Failed to save validators of " + url, e);
+        }
+    }
+
+    /** Keeps recently validated rows only, so that their number and the total size of their responses
+     * are within limits */
+    static void prune(SQLiteDatabase db) {
+        DbUtils.execSQL(db, "DELETE FROM " + HttpValidatorTable.TABLE_NAME + " WHERE rowid NOT IN ("
+                + "SELECT rowid FROM " + HttpValidatorTable.TABLE_NAME
+                + " ORDER BY " + HttpValidatorTable.VALIDATED_DATE + " DESC LIMIT " + MAX_ROWS + ")");
+        if (MyQuery.sqlToLong(db, TAG + " responsesSize", "SELECT SUM(" + HttpValidatorTable.RESPONSE_SIZE + ")"
+                + " FROM " + HttpValidatorTable.TABLE_NAME) <= MAX_RESPONSES_SIZE) return;
+
+        List<Long> rowIds = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("SELECT rowid, " + HttpValidatorTable.RESPONSE_SIZE
+                + " FROM " + HttpValidatorTable.TABLE_NAME
+                + " WHERE " + HttpValidatorTable.RESPONSE_SIZE + ">0"
+                + " ORDER BY " + HttpValidatorTable.VALIDATED_DATE + " DESC", null)) {
+            long size = 0;
+            while (cursor.moveToNext()) {
+                size += cursor.getLong(1);
+                if (size > MAX_RESPONSES_SIZE) rowIds.add(cursor.getLong(0));
+            }
+        }
+        if (rowIds.isEmpty()) return;
+
+        DbUtils.execSQL(db, "DELETE FROM " + HttpValidatorTable.TABLE_NAME + " WHERE rowid IN ("
+                + rowIds.stream().map(String::valueOf).collect(Collectors.joining(",")) + ")");
+        MyLog.v(TAG, () -> "Pruned " + rowIds.size() + " responses");
+    }
+
+    private void touch() {
+        execSQL("UPDATE " + HttpValidatorTable.TABLE_NAME + " SET " + HttpValidatorTable.VALIDATED_DATE + "="
+                + System.currentTimeMillis() + whereThis(), "touch");
+    }
+
+    private void delete() {
+        execSQL("DELETE FROM " + HttpValidatorTable.TABLE_NAME + whereThis(), "delete");
+    }
+
+    private void execSQL(String sql, String method) {
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            MyLog.databaseIsNull(() -> TAG + " " + method);
+            return;
+        }
+        try {
+            db.execSQL(sql, new Object[]{accountName, url});
+        } catch (Exception e) {
+            MyLog.w(TAG, method + " failed for " + url, e);
+        }
+    }
+
+    private static String whereThis() {
+        return " WHERE " + HttpValidatorTable.ACCOUNT_NAME + "=? AND " + HttpValidatorTable.URL + "=?";
+    }
+
+    /** Hit ratio of conditional requests per origin */
+    public static String toSummary(MyContext myContext) {
+        MyStringBuilder builder = MyStringBuilder.of("HttpValidators:");
+        for (Map.Entry<Long, OriginStats> entry : originStats.entrySet()) {
+            OriginStats stats = entry.getValue();
+            long conditional = stats.conditional.get();
+            long notModified = stats.notModified.get();
+            builder.atNewLine(myContext.origins().fromId(entry.getKey()).getName(),
+                    "requests: " + stats.requests.get() + ", conditional: " + conditional
+                    + ", not modified: " + notModified
+                    + (conditional > 0 ? String.format(" (%d%%)", notModified * 100 / conditional) : ""));
+        }
+        return builder.toString();
+    }
+
+    public static long getNotModifiedCount(long originId) {
+        OriginStats stats = originStats.get(originId);
+        return stats == null ? 0 : stats.notModified.get();
+    }
+
+    @Override
+    public String toString() {
+        return TAG + "{" + accountName + ", url:'" + url + "'"
+                + (StringUtils.isEmpty(etag) ? "" : ", etag:" + etag)
+                + (StringUtils.isEmpty(lastModified) ? "" : ", lastModified:" + lastModified)
+                + (isFile ? ", file" : "")
+                + (isToStore ? "" : ", not stored")
+                + "}";
+    }
+}
@@ -25,6 +25,7 @@ import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.DownloadStatus;
 import org.andstatus.app.data.MyProvider;
 import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.data.OidCache;
 import org.andstatus.app.data.OidEnum;
 import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.notification.NotificationEventType;
@@ -393,13 +394,27 @@ public class AActivity extends AObject {
     public long save(MyContext myContext) {
         if (wontSave(myContext)) return id;
         if (updatedDate > SOME_TIME_AGO) calculateInteraction(myContext);
+        NotificationEventType storedEvent = NotificationEventType.EMPTY;
+        long storedNotifiedActorId = 0;
         if (getId() == 0) {
             id = DbUtils.addRowWithRetry(myContext, ActivityTable.TABLE_NAME, toContentValues(), 3);
             MyLog.v(this, () -> "Added " + this);
         } else {
+            if (newNotificationEventType.nonEmpty()) {
+                storedEvent = NotificationEventType.fromId(MyQuery.idToLongColumnValue(myContext.getDatabase(),
+                        ActivityTable.TABLE_NAME, ActivityTable.NEW_NOTIFICATION_EVENT, id));
+                storedNotifiedActorId = MyQuery.idToLongColumnValue(myContext.getDatabase(),
+                        ActivityTable.TABLE_NAME, ActivityTable.NOTIFIED_ACTOR_ID, id);
+            }
             DbUtils.updateRowWithRetry(myContext, ActivityTable.TABLE_NAME, getId(), toContentValues(), 3);
             MyLog.v(this, () -> "Updated " + this);
         }
+        if (newNotificationEventType.nonEmpty() && id != 0) {
+            myContext.getNotifier().onNotificationEventChanged(storedEvent, storedNotifiedActorId,
+                    newNotificationEventType, notifiedActor.nonEmpty() ? notifiedActor.actorId : storedNotifiedActorId,
+                    Math.max(insDate, updatedDate));
+        }
+        OidCache.onOidUpdated(OidEnum.ACTIVITY_OID, accountActor.origin.getId(), timelinePosition.getPosition(), id);
         afterSave(myContext);
         return id;
     }
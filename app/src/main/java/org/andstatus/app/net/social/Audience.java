@@ -16,8 +16,8 @@
 
 package org.andstatus.app.net.social;
 
-import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 
 import androidx.annotation.NonNull;
 
@@ -39,8 +39,10 @@ import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.TriState;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
@@ -72,22 +74,48 @@ public class Audience implements IsEmpty {
     public static Audience fromNoteId(@NonNull Origin origin, long noteId, TriState isPublic) {
         if (noteId == 0) return Audience.EMPTY;
 
-        String where = AudienceTable.NOTE_ID + "=" + noteId;
-        String sql = "SELECT " + ActorTable.GROUP_TYPE + "," +
+        Audience audience = new Audience(origin);
+        audience.actors.addAll(MyQuery.get(MyContextHolder.get(), sqlOfNotes(SqlIds.fromId(noteId)),
+                cursor -> actorFromCursor(origin, cursor)));
+        audience.setPublic(isPublic);
+        return audience;
+    }
+
+    /** Audiences of several notes, loaded by one query.
+     * Notes without audience are absent in the result, and "public" property of the audiences is not set
+     * @param noteOrigins Origins of the notes by note ids */
+    @NonNull
+    public static Map<Long, Audience> fromNoteIds(@NonNull MyContext myContext, @NonNull Map<Long, Origin> noteOrigins) {
+        Map<Long, Audience> audiences = new HashMap<>();
+        if (noteOrigins.isEmpty()) return audiences;
+
+        return MyQuery.foldLeft(myContext, sqlOfNotes(SqlIds.fromIds(noteOrigins.keySet())), audiences,
+                map -> cursor -> {
+                    long noteId = DbUtils.getLong(cursor, AudienceTable.NOTE_ID);
+                    Origin origin = noteOrigins.get(noteId);
+                    if (origin != null) {
+                        map.computeIfAbsent(noteId, id -> new Audience(origin)).actors
+                                .add(actorFromCursor(origin, cursor));
+                    }
+                    return map;
+                });
+    }
+
+    private static String sqlOfNotes(SqlIds noteIds) {
+        return "SELECT " + AudienceTable.TABLE_NAME + "." + AudienceTable.NOTE_ID + "," + ActorTable.GROUP_TYPE + "," +
                 AudienceTable.ACTOR_ID + "," + ActorTable.ACTOR_OID +
                 " FROM " + AudienceTable.TABLE_NAME +
                 " INNER JOIN " + ActorTable.TABLE_NAME + " ON " +
                 AudienceTable.TABLE_NAME + "." + AudienceTable.ACTOR_ID + "=" +
                 ActorTable.TABLE_NAME + "." + ActorTable._ID +
-                " WHERE " + where;
-        Audience audience = new Audience(origin);
-        final Function<Cursor, Actor> function = cursor -> Actor.fromTwoIds(origin,
+                " WHERE " + AudienceTable.TABLE_NAME + "." + AudienceTable.NOTE_ID + noteIds.getSql();
+    }
+
+    private static Actor actorFromCursor(@NonNull Origin origin, Cursor cursor) {
+        return Actor.fromTwoIds(origin,
                 GroupType.fromId(DbUtils.getLong(cursor, ActorTable.GROUP_TYPE)),
                 DbUtils.getLong(cursor, AudienceTable.ACTOR_ID),
                 DbUtils.getString(cursor, ActorTable.ACTOR_OID));
-        audience.actors.addAll(MyQuery.get(MyContextHolder.get(), sql, function));
-        audience.setPublic(isPublic);
-        return audience;
     }
 
     public static Audience loadIds(@NonNull Origin origin, long noteId, Optional<TriState> isPublic) {
@@ -221,21 +249,19 @@ public class Audience implements IsEmpty {
                 MyProvider.delete(myContext, AudienceTable.TABLE_NAME, AudienceTable.NOTE_ID + "=" + noteId
                         + " AND " + AudienceTable.ACTOR_ID + SqlIds.actorIdsOf(toDelete).getSql());
             }
-            toAdd.forEach(actor -> MyProvider.insert(myContext, AudienceTable.TABLE_NAME, toContentValues(noteId, actor)));
+            if (!toAdd.isEmpty()) {
+                SQLiteDatabase db = myContext.getDatabase();
+                if (db != null) DbUtils.execSQL(db, "INSERT INTO " + AudienceTable.TABLE_NAME +
+                        " (" + AudienceTable.NOTE_ID + ", " + AudienceTable.ACTOR_ID + ") VALUES " +
+                        toAdd.stream().map(actor -> "(" + noteId + ", " + actor.actorId + ")")
+                                .collect(Collectors.joining(", ")));
+            }
         } catch (Exception e) {
             MyLog.e(this, "save, noteId:" + noteId + "; " + actors, e);
         }
         return  !toDelete.isEmpty() || !toAdd.isEmpty();
     }
 
-    @NonNull
-    private ContentValues toContentValues(long noteId, Actor actor) {
-        ContentValues values = new ContentValues();
-        values.put(AudienceTable.NOTE_ID, noteId);
-        values.put(AudienceTable.ACTOR_ID, actor.actorId);
-        return values;
-    }
-
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
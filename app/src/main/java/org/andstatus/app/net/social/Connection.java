@@ -451,6 +451,24 @@ public abstract class Connection implements IsEmpty {
         return http.data.areOAuthClientKeysPresent();
     }
 
+    /**
+     * Requests of one connection are executed sequentially, so its state (e.g. of its {@link HttpConnection})
+     * is not shared between threads. A copy has its own instance of the HttpConnection,
+     * so it may execute requests in parallel with this connection
+     */
+    public Connection copyForParallelRequests() {
+        try {
+            Connection connection = getClass().newInstance();
+            connection.data = data;
+            connection.http = http.getNewInstance();
+            connection.http.setHttpConnectionData(http.data.copy());
+            return connection;
+        } catch (InstantiationException | IllegalAccessException e) {
+            MyLog.e("Failed to copy connection for " + data, e);
+            return ConnectionEmpty.EMPTY;
+        }
+    }
+
     public Connection setAccountConnectionData(AccountConnectionData connectionData) {
         data = connectionData;
         http = connectionData.newHttpConnection();
@@ -569,8 +587,10 @@ public abstract class Connection implements IsEmpty {
         return jArr;
     }
 
-    public void downloadFile(ConnectionRequired connectionRequired, Uri uri, File file) throws ConnectionException {
-        http.downloadFile(connectionRequired, uri, file);
+    /** See {@link HttpConnection#downloadFile(ConnectionRequired, Uri, File, boolean)} */
+    public boolean downloadFile(ConnectionRequired connectionRequired, Uri uri, File file, boolean ifModified)
+            throws ConnectionException {
+        return http.downloadFile(connectionRequired, uri, file, ifModified);
     }
 
     public HttpConnection getHttp() {
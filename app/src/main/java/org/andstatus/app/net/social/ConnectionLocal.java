@@ -35,12 +35,14 @@ import java.io.InputStream;
 public class ConnectionLocal extends ConnectionEmpty {
 
     @Override
-    public void downloadFile(ConnectionRequired connectionRequired, Uri uri, File file) throws ConnectionException {
+    public boolean downloadFile(ConnectionRequired connectionRequired, Uri uri, File file, boolean ifModified)
+            throws ConnectionException {
         try {
             HttpReadResult result = new HttpReadResult(MyContextHolder.get(), ConnectionRequired.ANY,
                     uri, file, new JSONObject());
             InputStream ins = MyContextHolder.get().context().getContentResolver().openInputStream(uri);
             HttpConnectionUtils.readStream(result, ins);
+            return true;
         } catch (IOException e) {
             throw ConnectionException.hardConnectionException("mediaUri='" + uri + "'", e);
         } catch (SecurityException e) {
@@ -201,6 +201,7 @@ public class ConnectionActivityPub extends Connection {
         }
     }
 
+    /** Notes and actors, which came by their ids only, are downloaded in parallel, see {@link ObjectsPrefetcher} */
     @NonNull
     @Override
     public List<AActivity> getTimeline(ApiRoutineEnum apiRoutine, TimelinePosition youngestPosition,
@@ -217,7 +218,7 @@ public class ConnectionActivityPub extends Connection {
 //            builder.appendQueryParameter("max_id", oldestPosition.getPosition());
 //        }
 //        builder.appendQueryParameter("count", strFixedDownloadLimit(limit, apiRoutine));
-        return getActivities(apiRoutine, conu.withUri(builder.build()));
+        return new ObjectsPrefetcher(this).prefetch(getActivities(apiRoutine, conu.withUri(builder.build())));
     }
 
     private List<AActivity> getActivities(ApiRoutineEnum apiRoutine, ConnectionAndUrl conu) throws ConnectionException {
@@ -21,6 +21,7 @@ import android.net.Uri;
 import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.HttpConnection;
 import org.andstatus.app.net.http.HttpConnectionData;
+import org.andstatus.app.net.http.OAuthClientKeys;
 import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.net.social.ActorEndpointType;
 import org.andstatus.app.net.social.Connection;
@@ -73,7 +74,7 @@ class ConnectionAndUrl {
             httpConnection.setHttpConnectionData(connectionData1);
         }
         if (!httpConnection.data.areOAuthClientKeysPresent()) {
-            httpConnection.registerClient();
+            registerClient(httpConnection);
             if (!httpConnection.getCredentialsPresent()) {
                 throw ConnectionException.fromStatusCodeAndHost(ConnectionException.StatusCode.NO_CREDENTIALS_FOR_HOST,
                         "No credentials", httpConnection.data.originUrl);
@@ -81,4 +82,16 @@ class ConnectionAndUrl {
         }
         return httpConnection;
     }
+
+    /** Parallel requests (see {@link ObjectsPrefetcher}) to a new host shouldn't register the client twice */
+    private static void registerClient(HttpConnection httpConnection) throws ConnectionException {
+        synchronized (ConnectionAndUrl.class) {
+            if (httpConnection.data.oauthClientKeys != null) {
+                // The client might have been registered by a parallel request
+                httpConnection.data.oauthClientKeys = OAuthClientKeys.fromConnectionData(httpConnection.data);
+                if (httpConnection.data.areOAuthClientKeysPresent()) return;
+            }
+            httpConnection.registerClient();
+        }
+    }
 }
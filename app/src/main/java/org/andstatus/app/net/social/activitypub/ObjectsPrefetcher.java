@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.social.activitypub;
+
+import androidx.annotation.NonNull;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.data.OidEnum;
+import org.andstatus.app.database.table.NoteTable;
+import org.andstatus.app.net.social.AActivity;
+import org.andstatus.app.net.social.ActivityType;
+import org.andstatus.app.net.social.Actor;
+import org.andstatus.app.net.social.Connection;
+import org.andstatus.app.net.social.Note;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask.PoolEnum;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.MyStringBuilder;
+import org.andstatus.app.util.StringUtils;
+import org.andstatus.app.util.UriUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Downloads notes and actors, which came in a timeline page by their ids only,
+ * in the {@link PoolEnum#PREFETCH} pool, before the page is passed to the {@link org.andstatus.app.data.DataUpdater}.
+ * Otherwise each of them would be downloaded later by a separate command.
+ * Each id (URL) is requested once per page. Objects, which are stored already, are not requested.
+ * Each request uses its own copy of the connection (see {@link Connection#copyForParallelRequests()}).
+ * If the pool is busy, or the download is not completed in time, the object is downloaded in the current thread.
+ * If a request fails, the partially defined object is left as it was.
+ * @author yvolk@yurivolkov.com
+ */
+class ObjectsPrefetcher {
+    private static final int OBJECTS_MAX = 100;
+
+    private final ConnectionActivityPub connection;
+    private final MyContext myContext;
+    private final Map<String, Download<AActivity>> notes = new ConcurrentHashMap<>();
+    private final Map<String, Download<Actor>> actors = new ConcurrentHashMap<>();
+
+    ObjectsPrefetcher(ConnectionActivityPub connection) {
+        this.connection = connection;
+        myContext = connection.getData().getOrigin().myContext;
+    }
+
+    @NonNull
+    List<AActivity> prefetch(@NonNull List<AActivity> activities) {
+        activities.forEach(this::requestObjectsOf);
+        if (notes.isEmpty() && actors.isEmpty()) return activities;
+
+        List<AActivity> prefetched = new ArrayList<>();
+        for (AActivity activity : activities) {
+            prefetched.add(setObjectsOf(activity));
+        }
+        MyLog.v(this, this::toString);
+        return prefetched;
+    }
+
+    private void requestObjectsOf(AActivity activity) {
+        requestActor(activity.getActor());
+        requestActor(activity.getObjActor());
+        requestNote(activity.getNote());
+        if (activity.getActivity().nonEmpty()) requestObjectsOf(activity.getActivity());
+    }
+
+    private void requestActor(Actor actor) {
+        if (!isToRequest(actor.oid) || !actor.isPartiallyDefined()) return;
+
+        long actorId = MyQuery.oidToId(myContext, OidEnum.ACTOR_OID, actor.origin.getId(), actor.oid);
+        if (actorId != 0 && !Actor.load(myContext, actorId).isPartiallyDefined()) return;
+
+        actors.computeIfAbsent(actor.oid, oid -> new Download<>("actor", oid,
+                connection -> connection.getActor2(actor), Actor.EMPTY));
+    }
+
+    private void requestNote(Note note) {
+        if (!isToRequest(note.oid) || note.getStatus() == DownloadStatus.LOADED) return;
+
+        long noteId = MyQuery.oidToId(myContext, OidEnum.NOTE_OID, connection.getData().getOrigin().getId(),
+                note.oid);
+        if (noteId != 0 && DownloadStatus.load(MyQuery.noteIdToLongColumnValue(NoteTable.NOTE_STATUS, noteId))
+                == DownloadStatus.LOADED) return;
+
+        notes.computeIfAbsent(note.oid, oid -> new Download<>("note", oid,
+                connection -> connection.getNote1(oid), AActivity.EMPTY));
+    }
+
+    private boolean isToRequest(String oid) {
+        return !StringUtils.isEmptyOrTemp(oid)
+                && notes.size() + actors.size() < OBJECTS_MAX
+                && !notes.containsKey(oid) && !actors.containsKey(oid)
+                && UriUtils.isDownloadable(UriUtils.fromString(oid));
+    }
+
+    private interface Downloader<T> {
+        T download(ConnectionActivityPub connection) throws Exception;
+    }
+
+    /** Download of one object, which is started in the pool, and is completed in the current thread,
+     * if the pool doesn't complete it in time */
+    private class Download<T> {
+        private final String objectName;
+        private final String oid;
+        private final Downloader<T> downloader;
+        private final T empty;
+        private final CompletableFuture<T> future;
+        private T result = null;
+
+        Download(String objectName, String oid, Downloader<T> downloader, T empty) {
+            this.objectName = objectName;
+            this.oid = oid;
+            this.downloader = downloader;
+            this.empty = empty;
+            future = downloadAsync();
+        }
+
+        /** @return null if the pool is busy */
+        private CompletableFuture<T> downloadAsync() {
+            try {
+                return CompletableFuture.supplyAsync(this::download,
+                        AsyncTaskLauncher.getPoolExecutor(PoolEnum.PREFETCH));
+            } catch (RejectedExecutionException e) {
+                MyLog.v(ObjectsPrefetcher.this, () -> "Pool is busy, " + this + " later");
+                return null;
+            }
+        }
+
+        synchronized T get() {
+            if (result == null) {
+                result = future == null ? download() : getOrDownload(future);
+            }
+            return result;
+        }
+
+        private T getOrDownload(@NonNull CompletableFuture<T> future) {
+            try {
+                return future.get(MyPreferences.getConnectionTimeoutMs(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // A download, which is not started yet, is not started after cancelling
+                if (!future.cancel(false)) return future.getNow(empty);
+
+                MyLog.v(ObjectsPrefetcher.this, () -> "Not completed in time, " + this + " now");
+                return download();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return empty;
+            } catch (ExecutionException | CancellationException e) {
+                return empty;
+            }
+        }
+
+        private T download() {
+            try {
+                Connection parallelConnection = connection.copyForParallelRequests();
+                if (!(parallelConnection instanceof ConnectionActivityPub)) return empty;
+
+                return downloader.download((ConnectionActivityPub) parallelConnection);
+            } catch (Exception e) {
+                MyLog.d(ObjectsPrefetcher.this, "Failed to download " + objectName + " " + oid, e);
+                return empty;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "downloading " + objectName + " " + oid;
+        }
+    }
+
+    /** @return the activity with downloaded objects or the downloaded activity itself */
+    private AActivity setObjectsOf(AActivity activity) {
+        if (isPartialNote(activity)) {
+            AActivity downloaded = getNote(activity.getNote().oid);
+            if (downloaded.nonEmpty()) {
+                if (StringUtils.isEmptyOrTemp(downloaded.getTimelinePosition().getPosition())) {
+                    downloaded.setTimelinePosition(activity.getTimelinePosition().getPosition());
+                }
+                return downloaded;
+            }
+        }
+        getActor(activity.getActor().oid).ifPresent(activity::setActor);
+        getActor(activity.getObjActor().oid).ifPresent(activity::setObjActor);
+        setNoteOf(activity);
+        if (activity.getActivity().nonEmpty()) setObjectsOf(activity.getActivity());
+        return activity;
+    }
+
+    /** See {@link AActivity#newPartialNote(Actor, Actor, String)} */
+    private static boolean isPartialNote(AActivity activity) {
+        return activity.type == ActivityType.UPDATE && activity.getActor().isEmpty()
+                && activity.getNote().getStatus() != DownloadStatus.LOADED;
+    }
+
+    private void setNoteOf(AActivity activity) {
+        Note note = activity.getNote();
+        AActivity downloaded = getNote(note.oid);
+        if (downloaded.isEmpty() || !downloaded.getNote().oid.equals(note.oid)
+                || downloaded.getNote().getStatus() != DownloadStatus.LOADED) return;
+
+        switch (activity.type) {
+            case UPDATE:
+            case CREATE:
+            case DELETE:
+                activity.setNote(downloaded.getNote());
+                break;
+            default:
+                // The same as for a note object inside an activity, see ConnectionActivityPub#noteFromJson
+                activity.setNote(Note.EMPTY);
+                activity.setActivity(downloaded);
+                break;
+        }
+    }
+
+    @NonNull
+    private AActivity getNote(String oid) {
+        Download<AActivity> download = StringUtils.isEmpty(oid) ? null : notes.get(oid);
+        return download == null ? AActivity.EMPTY : download.get();
+    }
+
+    @NonNull
+    private Optional<Actor> getActor(String oid) {
+        Download<Actor> download = StringUtils.isEmpty(oid) ? null : actors.get(oid);
+        return download == null ? Optional.empty() : Optional.of(download.get()).filter(Actor::nonEmpty);
+    }
+
+    @Override
+    public String toString() {
+        return MyStringBuilder.formatKeyValue(this, "notes:" + notes.size() + ", actors:" + actors.size());
+    }
+}
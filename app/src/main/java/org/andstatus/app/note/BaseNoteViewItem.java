@@ -30,7 +30,6 @@ import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.AttachedImageFiles;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.DownloadStatus;
-import org.andstatus.app.data.TextMediaType;
 import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.database.table.NoteTable;
 import org.andstatus.app.net.social.Actor;
@@ -96,7 +95,8 @@ public abstract class BaseNoteViewItem<T extends BaseNoteViewItem<T>> extends Vi
     boolean reblogged = false;
 
     final long attachmentsCount;
-    final AttachedImageFiles attachedImageFiles;
+    /** Loaded for all notes of a page by {@link NoteDetailsLoader} */
+    AttachedImageFiles attachedImageFiles = AttachedImageFiles.EMPTY;
 
     private MyAccount linkedMyAccount = MyAccount.EMPTY;
     public final StringBuilder detailsSuffix = new StringBuilder();
@@ -104,7 +104,6 @@ public abstract class BaseNoteViewItem<T extends BaseNoteViewItem<T>> extends Vi
     protected BaseNoteViewItem(boolean isEmpty, long updatedDate) {
         super(isEmpty, updatedDate);
         attachmentsCount = 0;
-        attachedImageFiles = AttachedImageFiles.EMPTY;
     }
 
     BaseNoteViewItem(MyContext myContext, Cursor cursor) {
@@ -115,15 +114,9 @@ public abstract class BaseNoteViewItem<T extends BaseNoteViewItem<T>> extends Vi
         isSensitive = DbUtils.getBoolean(cursor, NoteTable.SENSITIVE);
         this.myContext = myContext;
 
-        if (MyPreferences.getDownloadAndDisplayAttachedImages()) {
-            attachmentsCount = DbUtils.getLong(cursor, NoteTable.ATTACHMENTS_COUNT);
-            attachedImageFiles = (attachmentsCount) == 0
-                    ? AttachedImageFiles.EMPTY
-                    : AttachedImageFiles.load(myContext, noteId);
-        } else {
-            attachmentsCount = 0;
-            attachedImageFiles = AttachedImageFiles.EMPTY;
-        }
+        attachmentsCount = MyPreferences.getDownloadAndDisplayAttachedImages()
+                ? DbUtils.getLong(cursor, NoteTable.ATTACHMENTS_COUNT)
+                : 0;
     }
 
     @NonNull
@@ -209,7 +202,13 @@ public abstract class BaseNoteViewItem<T extends BaseNoteViewItem<T>> extends Vi
                 || isTooShortToCompare()
                 || other.isTooShortToCompare()
                 ) return DuplicationLink.NONE;
-        if (contentToSearch.equals(other.contentToSearch)) {
+        // Content of equal length may only be equal, and hash codes of Strings are cached,
+        // so most of the pairs are rejected without comparing their content
+        int lengthDiff = contentToSearch.length() - other.contentToSearch.length();
+        if (lengthDiff == 0) {
+            if (contentToSearch.hashCode() != other.contentToSearch.hashCode()
+                    || !contentToSearch.equals(other.contentToSearch)) return DuplicationLink.NONE;
+
             if (updatedDate == other.updatedDate) {
                 return duplicatesByFavoritedAndReblogged(preferredOrigin, other);
             } else if (updatedDate < other.updatedDate) {
@@ -217,12 +216,10 @@ public abstract class BaseNoteViewItem<T extends BaseNoteViewItem<T>> extends Vi
             } else {
                 return DUPLICATES;
             }
-        } else if (contentToSearch.contains(other.contentToSearch)) {
-            return DUPLICATES;
-        } else if (other.contentToSearch.contains(contentToSearch)) {
-            return IS_DUPLICATED;
+        } else if (lengthDiff > 0) {
+            return contentToSearch.contains(other.contentToSearch) ? DUPLICATES : DuplicationLink.NONE;
         }
-        return DuplicationLink.NONE;
+        return other.contentToSearch.contains(contentToSearch) ? IS_DUPLICATED : DuplicationLink.NONE;
     }
 
     boolean isTooShortToCompare() {
@@ -349,6 +346,16 @@ public abstract class BaseNoteViewItem<T extends BaseNoteViewItem<T>> extends Vi
         audience.getActors().forEach(loader::addActorToList);
     }
 
+    @Override
+    public void addNoteDetailsToLoad(NoteDetailsLoader loader) {
+        if (attachmentsCount > 0) loader.addAttachmentsOf(getNoteId());
+    }
+
+    @Override
+    public void setLoadedNoteDetails(NoteDetailsLoader loader) {
+        if (attachmentsCount > 0) attachedImageFiles = loader.getAttachedImageFiles(getNoteId());
+    }
+
     @Override
     public void setLoadedActors(ActorListLoader loader) {
         if (author.getActor().nonEmpty()) author = loader.getLoaded(author);
@@ -365,8 +372,10 @@ public abstract class BaseNoteViewItem<T extends BaseNoteViewItem<T>> extends Vi
         );
         audience = audienceNew;
         audienceToShow = audienceToShowNew;
-        name = SpanUtil.textToSpannable(nameString, TextMediaType.PLAIN, audience);
-        summary = SpanUtil.textToSpannable(summaryString, TextMediaType.PLAIN, audience);
-        content = SpanUtil.textToSpannable(contentString, TextMediaType.HTML, audience);
+        NoteContentCache.Parsed parsed = NoteContentCache.parse(noteId, updatedDate,
+                nameString, summaryString, contentString, audience);
+        name = parsed.name;
+        summary = parsed.summary;
+        content = parsed.content;
     }
 }
@@ -42,7 +42,9 @@ import org.andstatus.app.util.StringUtils;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -69,7 +71,8 @@ public abstract class ConversationLoader<T extends ConversationItem<T>> extends
     final Map<Long, T> cachedConversationItems = new ConcurrentHashMap<>();
     LoadableListActivity.ProgressPublisher mProgress;
 
-    final List<Long> idsOfItemsToFind = new ArrayList<>();
+    final Set<Long> idsOfItemsToFind = new HashSet<>();
+    private final Set<Long> idsOfItemsInList = new HashSet<>();
 
     public ConversationLoader(T emptyItem, MyContext myContext, Origin origin, long selectedNoteId, boolean sync) {
         this.emptyItem = emptyItem;
@@ -90,6 +93,7 @@ public abstract class ConversationLoader<T extends ConversationItem<T>> extends
                     .setMyContext(myContext).fix();
             load1();
         }
+        loadNoteDetails(items);
         loadActors(items);
         items.sort(replyLevelComparator);
         enumerateNotes();
@@ -99,6 +103,7 @@ public abstract class ConversationLoader<T extends ConversationItem<T>> extends
         conversationIds.clear();
         cachedConversationItems.clear();
         idsOfItemsToFind.clear();
+        idsOfItemsInList.clear();
         items.clear();
         if (sync) {
             requestConversationSync(selectedNoteId);
@@ -128,6 +133,15 @@ public abstract class ConversationLoader<T extends ConversationItem<T>> extends
         }
     }
 
+    private void loadNoteDetails(List<T> items) {
+        if (items.isEmpty()) return;
+        NoteDetailsLoader loader = new NoteDetailsLoader(myContext);
+        items.forEach(item -> item.addNoteDetailsToLoad(loader));
+        if (loader.isEmpty()) return;
+        loader.load();
+        items.forEach(item -> item.setLoadedNoteDetails(loader));
+    }
+
     private void loadActors(List<T> items) {
         if (items.isEmpty()) return;
         ActorListLoader loader = new ActorListLoader(myContext, ActorListType.ACTORS_AT_ORIGIN,
@@ -189,7 +203,7 @@ public abstract class ConversationLoader<T extends ConversationItem<T>> extends
 
     protected boolean addItemToList(T item) {
         boolean added = false;
-        if (items.contains(item)) {
+        if (!idsOfItemsInList.add(item.getNoteId())) {
             MyLog.v(this, () -> "Note id=" + item.getNoteId() + " is in the list already");
         } else {
             items.add(item);
@@ -265,17 +279,23 @@ public abstract class ConversationLoader<T extends ConversationItem<T>> extends
             item.mListOrder = 0;
             item.historyOrder = 0;
         }
+        Map<Long, List<ConversationItem>> replies = new HashMap<>();
+        for (int ind = items.size() - 1; ind >= 0; ind--) {
+            ConversationItem item = items.get(ind);
+            replies.computeIfAbsent(item.inReplyToNoteId, key -> new ArrayList<>()).add(item);
+        }
         OrderCounters order = new OrderCounters();
         for (int ind = items.size()-1; ind >= 0; ind--) {
             ConversationItem oMsg = items.get(ind);
             if (oMsg.mListOrder < 0 ) {
                 continue;
             }
-            enumerateBranch(oMsg, order, 0);
+            enumerateBranch(oMsg, replies, order, 0);
         }
     }
 
-    private void enumerateBranch(ConversationItem oMsg, OrderCounters order, int indent) {
+    private void enumerateBranch(ConversationItem oMsg, Map<Long, List<ConversationItem>> replies,
+                                 OrderCounters order, int indent) {
         if (!addNoteIdToFind(oMsg.getNoteId())) {
             return;
         }
@@ -287,12 +307,9 @@ public abstract class ConversationLoader<T extends ConversationItem<T>> extends
                 && indentNext < MAX_INDENT_LEVEL) {
             indentNext++;
         }
-        for (int ind = items.size() - 1; ind >= 0; ind--) {
-           ConversationItem reply = items.get(ind);
-           if (reply.inReplyToNoteId == oMsg.getNoteId()) {
-               reply.nParentReplies = oMsg.nReplies;
-               enumerateBranch(reply, order, indentNext);
-           }
+        for (ConversationItem reply : replies.getOrDefault(oMsg.getNoteId(), Collections.emptyList())) {
+            reply.nParentReplies = oMsg.nReplies;
+            enumerateBranch(reply, replies, order, indentNext);
         }
     }
 
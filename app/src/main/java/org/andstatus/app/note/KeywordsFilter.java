@@ -18,6 +18,7 @@ package org.andstatus.app.note;
 
 import androidx.annotation.NonNull;
 
+import org.andstatus.app.data.NoteSearchIndex;
 import org.andstatus.app.util.IsEmpty;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.StringUtils;
@@ -44,6 +45,21 @@ public class KeywordsFilter implements IsEmpty {
             nonEmpty = StringUtils.nonEmpty(value);
         }
 
+        /** Whole words may be found using the full text search index */
+        boolean isFullText() {
+            return nonEmpty && !contains && value.codePoints().anyMatch(Character::isLetterOrDigit);
+        }
+
+        /** Full text search tokenizer splits words at punctuation also, so such a keyword
+         * needs to be checked by "LIKE" to have exactly the same result as {@link #matchedAll(String)} */
+        boolean needsLikeCheck() {
+            return !isFullText() || value.codePoints().anyMatch(c -> c != ',' && !Character.isLetterOrDigit(c));
+        }
+
+        String toFullTextPhrase() {
+            return DOUBLE_QUOTE + value.replace(',', ' ').trim() + DOUBLE_QUOTE;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -158,26 +174,104 @@ public class KeywordsFilter implements IsEmpty {
         return true;
     }
 
+    /**
+     * Selection of notes, which match all keywords, see {@link #matchedAll(String)}.
+     * Words are searched using the full text search index, "contains:" keywords - using "LIKE".
+     * Arguments are added by {@link #prependSqlSelectionArgs(String[])}
+     * @param noteIdColumn column with the note's id
+     * @param contentColumn column with {@link org.andstatus.app.database.table.NoteTable#CONTENT_TO_SEARCH}
+     */
     @NonNull
-    public String getSqlSelection(String fieldName) {
+    public String getSqlSelection(String noteIdColumn, String contentColumn) {
         if (isEmpty()) {
             return "";
         }
         StringBuilder selection = new StringBuilder();
-        for (int ind = 0; ind < keywordsToFilter.size(); ind++) {
-            if (ind > 0) {
+        if (StringUtils.nonEmpty(getFullTextQuery(" ", true))) {
+            selection.append(noteIdColumn + " IN (" + NoteSearchIndex.sqlNoteIdsMatching() + ")");
+        }
+        for (Keyword keyword : keywordsToFilter) {
+            if (!keyword.needsLikeCheck()) continue;
+
+            if (selection.length() > 0) {
                 selection.append(" AND ");
             }
-            selection.append(fieldName + " LIKE ?");
+            selection.append(contentColumn + " LIKE ?");
         }
-        return selection.length() == 0 ? "" : "(" + selection.toString() + ")";
+        return "(" + selection.toString() + ")";
     }
 
     @NonNull
     public String[] prependSqlSelectionArgs(String[] selectionArgs) {
-        String[] selectionArgsOut = selectionArgs;
+        List<String> args = new ArrayList<>();
+        String fullTextQuery = getFullTextQuery(" ", true);
+        if (StringUtils.nonEmpty(fullTextQuery)) {
+            args.add(fullTextQuery);
+        }
+        for (Keyword keyword : keywordsToFilter) {
+            if (keyword.needsLikeCheck()) args.add("%" + keyword.value + "%");
+        }
+        return prependArgs(args, selectionArgs);
+    }
+
+    /**
+     * Selection of notes, which don't match any keyword, see {@link #matchedAny(String)}.
+     * Arguments are added by {@link #prependSqlSelectionArgsToExclude(String[])}
+     */
+    @NonNull
+    public String getSqlSelectionToExclude(String noteIdColumn, String contentColumn) {
+        if (isEmpty()) {
+            return "";
+        }
+        StringBuilder selection = new StringBuilder();
+        if (StringUtils.nonEmpty(getFullTextQuery(" OR ", false))) {
+            selection.append(noteIdColumn + " NOT IN (" + NoteSearchIndex.sqlNoteIdsMatching() + ")");
+        }
         for (Keyword keyword : keywordsToFilter) {
-            selectionArgsOut = StringUtils.addBeforeArray(selectionArgsOut, "%" + keyword.value + "%");
+            if (!keyword.needsLikeCheck()) continue;
+
+            if (selection.length() > 0) {
+                selection.append(" AND ");
+            }
+            // Activities without notes should be kept
+            selection.append("IFNULL(" + contentColumn + ",'') NOT LIKE ?");
+        }
+        return "(" + selection.toString() + ")";
+    }
+
+    @NonNull
+    public String[] prependSqlSelectionArgsToExclude(String[] selectionArgs) {
+        List<String> args = new ArrayList<>();
+        String fullTextQuery = getFullTextQuery(" OR ", false);
+        if (StringUtils.nonEmpty(fullTextQuery)) {
+            args.add(fullTextQuery);
+        }
+        for (Keyword keyword : keywordsToFilter) {
+            if (keyword.needsLikeCheck()) args.add("%" + keyword.value + "%");
+        }
+        return prependArgs(args, selectionArgs);
+    }
+
+    /** @param withLikeChecked include keywords, which will be checked by "LIKE" also */
+    @NonNull
+    private String getFullTextQuery(String operator, boolean withLikeChecked) {
+        StringBuilder query = new StringBuilder();
+        for (Keyword keyword : keywordsToFilter) {
+            if (!keyword.isFullText() || (!withLikeChecked && keyword.needsLikeCheck())) continue;
+
+            if (query.length() > 0) {
+                query.append(operator);
+            }
+            query.append(keyword.toFullTextPhrase());
+        }
+        return query.toString();
+    }
+
+    @NonNull
+    private static String[] prependArgs(List<String> args, String[] selectionArgs) {
+        String[] selectionArgsOut = selectionArgs;
+        for (int ind = args.size() - 1; ind >= 0; ind--) {
+            selectionArgsOut = StringUtils.addBeforeArray(selectionArgsOut, args.get(ind));
         }
         return selectionArgsOut;
     }
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.note;
+
+import android.content.ComponentCallbacks2;
+import android.text.Spannable;
+
+import androidx.annotation.NonNull;
+
+import org.andstatus.app.data.TextMediaType;
+import org.andstatus.app.net.social.Audience;
+import org.andstatus.app.net.social.SpanUtil;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded cache of parsed (see {@link SpanUtil#textToSpannable(String, TextMediaType, Audience)})
+ * name, summary and content of notes, so unchanged notes are not parsed again on each reload of a timeline.
+ * Key: (noteId, updatedDate, hash of the texts and of the audience), as mentions depend on the audience.
+ * The cache is bounded by the estimated memory footprint of cached Spannables.
+ * @author yvolk@yurivolkov.com
+ */
+public final class NoteContentCache {
+    static final long MAX_BYTES = Long.min(4_000_000, Runtime.getRuntime().maxMemory() / 64);
+    private static final int BYTES_PER_ENTRY = 200;
+    private static final int BYTES_PER_SPAN = 80;
+
+    private static final Map<Key, Parsed> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private static long bytes = 0;
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    static final class Parsed {
+        final Spannable name;
+        final Spannable summary;
+        final Spannable content;
+        final long bytes;
+
+        private Parsed(Spannable name, Spannable summary, Spannable content) {
+            this.name = name;
+            this.summary = summary;
+            this.content = content;
+            bytes = BYTES_PER_ENTRY + bytesOf(name) + bytesOf(summary) + bytesOf(content);
+        }
+
+        private static long bytesOf(Spannable spannable) {
+            return spannable.length() * 2L
+                    + spannable.getSpans(0, spannable.length(), Object.class).length * BYTES_PER_SPAN;
+        }
+    }
+
+    private static final class Key {
+        final long noteId;
+        final long updatedDate;
+        final int hash;
+
+        Key(long noteId, long updatedDate, int hash) {
+            this.noteId = noteId;
+            this.updatedDate = updatedDate;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+            return noteId == key.noteId && updatedDate == key.updatedDate && hash == key.hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(noteId, updatedDate, hash);
+        }
+    }
+
+    private NoteContentCache() {
+        // Empty
+    }
+
+    /** @return cached or newly parsed texts of the note. Notes without id are not cached */
+    @NonNull
+    static Parsed parse(long noteId, long updatedDate, String name, String summary, String content,
+                        @NonNull Audience audience) {
+        if (noteId == 0) return parse(name, summary, content, audience);
+
+        Key key = new Key(noteId, updatedDate, hashOf(name, summary, content, audience));
+        synchronized (entries) {
+            Parsed cached = entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+        Parsed parsed = parse(name, summary, content, audience);
+        if (parsed.bytes <= MAX_BYTES / 16) put(key, parsed);
+        return parsed;
+    }
+
+    private static Parsed parse(String name, String summary, String content, Audience audience) {
+        return new Parsed(
+                SpanUtil.textToSpannable(name, TextMediaType.PLAIN, audience),
+                SpanUtil.textToSpannable(summary, TextMediaType.PLAIN, audience),
+                SpanUtil.textToSpannable(content, TextMediaType.HTML, audience));
+    }
+
+    private static void put(Key key, Parsed parsed) {
+        synchronized (entries) {
+            Parsed replaced = entries.put(key, parsed);
+            bytes += parsed.bytes - (replaced == null ? 0 : replaced.bytes);
+            Iterator<Parsed> iterator = entries.values().iterator();
+            while (bytes > MAX_BYTES && iterator.hasNext()) {
+                bytes -= iterator.next().bytes;
+                iterator.remove();
+            }
+        }
+    }
+
+    /** Mentions are linked to actors of the audience, so the actors' names are a part of the key */
+    private static int hashOf(String name, String summary, String content, Audience audience) {
+        int hash = Objects.hash(name, summary, content);
+        return 31 * hash + audience.getActors().stream()
+                .mapToInt(actor -> Objects.hash(actor.actorId, actor.getWebFingerId(), actor.getUsername()))
+                .sum();
+    }
+
+    public static void clear() {
+        synchronized (entries) {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    /** See {@link ComponentCallbacks2#onTrimMemory(int)} */
+    public static void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW && level != ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            clear();
+        }
+    }
+
+    public static String getInfo() {
+        long hitsCount = hits.get();
+        long requests = hitsCount + misses.get();
+        synchronized (entries) {
+            return "NoteContentCache: " + entries.size() + " notes, " + bytes / 1024 + " of " + MAX_BYTES / 1024
+                    + " KB, hits:" + hitsCount + ", misses:" + misses.get()
+                    + (requests > 0 ? ", hit rate:" + (hitsCount * 100 / requests) + "%" : "");
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.note;
+
+import androidx.annotation.NonNull;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.data.AttachedImageFiles;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.net.social.Actor;
+import org.andstatus.app.net.social.Audience;
+import org.andstatus.app.origin.Origin;
+import org.andstatus.app.util.MyStringBuilder;
+import org.andstatus.app.util.TriState;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads audience, rebloggers and attached images of all notes of a page by a few queries,
+ * instead of querying them for each note separately
+ * @author yvolk@yurivolkov.com
+ */
+public class NoteDetailsLoader {
+    private final MyContext myContext;
+    private final Map<Long, Origin> noteOrigins = new HashMap<>();
+    private final Set<Long> noteIdsWithAttachments = new HashSet<>();
+
+    private Map<Long, Audience> audiences = Collections.emptyMap();
+    private Map<Long, List<Actor>> rebloggers = Collections.emptyMap();
+    private Map<Long, AttachedImageFiles> attachedImageFiles = Collections.emptyMap();
+
+    public NoteDetailsLoader(MyContext myContext) {
+        this.myContext = myContext;
+    }
+
+    /** Audience and rebloggers of the note will be loaded */
+    public void addNote(@NonNull Origin origin, long noteId) {
+        if (noteId != 0) noteOrigins.put(noteId, origin);
+    }
+
+    public void addAttachmentsOf(long noteId) {
+        if (noteId != 0) noteIdsWithAttachments.add(noteId);
+    }
+
+    public boolean isEmpty() {
+        return noteOrigins.isEmpty() && noteIdsWithAttachments.isEmpty();
+    }
+
+    public void load() {
+        if (!noteOrigins.isEmpty()) {
+            audiences = Audience.fromNoteIds(myContext, noteOrigins);
+            rebloggers = MyQuery.getRebloggers(myContext.getDatabase(), noteOrigins);
+        }
+        if (!noteIdsWithAttachments.isEmpty()) {
+            attachedImageFiles = AttachedImageFiles.load(myContext, noteIdsWithAttachments);
+        }
+    }
+
+    @NonNull
+    public Audience getAudience(@NonNull Origin origin, long noteId, TriState isPublic) {
+        if (noteId == 0) return Audience.EMPTY;
+
+        Audience audience = audiences.get(noteId);
+        if (audience == null) {
+            audience = new Audience(origin);
+        }
+        audience.setPublic(isPublic);
+        return audience;
+    }
+
+    @NonNull
+    public List<Actor> getRebloggers(long noteId) {
+        List<Actor> actors = rebloggers.get(noteId);
+        return actors == null ? Collections.emptyList() : actors;
+    }
+
+    @NonNull
+    public AttachedImageFiles getAttachedImageFiles(long noteId) {
+        AttachedImageFiles files = attachedImageFiles.get(noteId);
+        return files == null ? AttachedImageFiles.EMPTY : files;
+    }
+
+    @Override
+    public String toString() {
+        return MyStringBuilder.formatKeyValue(this, "notes:" + noteOrigins.size()
+                + ", withAttachments:" + noteIdsWithAttachments.size());
+    }
+}
@@ -21,14 +21,11 @@ import android.text.Html;
 
 import org.andstatus.app.actor.ActorViewItem;
 import org.andstatus.app.context.MyContext;
-import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.DownloadStatus;
-import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.database.table.NoteTable;
 import org.andstatus.app.net.social.Actor;
-import org.andstatus.app.net.social.Audience;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyStringBuilder;
 import org.andstatus.app.util.StringUtils;
@@ -63,7 +60,6 @@ public class NoteViewItem extends BaseNoteViewItem<NoteViewItem> {
         inReplyToNoteId = DbUtils.getLong(cursor, NoteTable.IN_REPLY_TO_NOTE_ID);
         inReplyToActor = ActorViewItem.fromActorId(getOrigin(), DbUtils.getLong(cursor, NoteTable.IN_REPLY_TO_ACTOR_ID));
         isPublic = DbUtils.getTriState(cursor, NoteTable.PUBLIC);
-        audience = Audience.fromNoteId(getOrigin(), getNoteId(), isPublic);
         insertedDate = DbUtils.getLong(cursor, ActivityTable.INS_DATE);
         activityUpdatedDate = DbUtils.getLong(cursor, ActivityTable.UPDATED_DATE);
         noteStatus = DownloadStatus.load(DbUtils.getLong(cursor, NoteTable.NOTE_STATUS));
@@ -75,8 +71,19 @@ public class NoteViewItem extends BaseNoteViewItem<NoteViewItem> {
         if (!StringUtils.isEmpty(via)) {
             noteSource = Html.fromHtml(via).toString().trim();
         }
+    }
 
-        for (Actor actor : MyQuery.getRebloggers(MyContextHolder.get().getDatabase(), getOrigin(), getNoteId())) {
+    @Override
+    public void addNoteDetailsToLoad(NoteDetailsLoader loader) {
+        super.addNoteDetailsToLoad(loader);
+        loader.addNote(getOrigin(), getNoteId());
+    }
+
+    @Override
+    public void setLoadedNoteDetails(NoteDetailsLoader loader) {
+        super.setLoadedNoteDetails(loader);
+        audience = loader.getAudience(getOrigin(), getNoteId(), isPublic);
+        for (Actor actor : loader.getRebloggers(getNoteId())) {
             rebloggers.put(actor.actorId, actor.getWebFingerId());
         }
     }
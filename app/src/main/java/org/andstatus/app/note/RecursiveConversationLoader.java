@@ -27,6 +27,14 @@ import org.andstatus.app.origin.Origin;
 import org.andstatus.app.timeline.meta.TimelineType;
 import org.andstatus.app.util.MyLog;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * @author yvolk@yurivolkov.com
  */
@@ -38,7 +46,56 @@ public class RecursiveConversationLoader<T extends ConversationItem<T>> extends
 
     @Override
     protected void load2(T nonLoaded) {
-        findPreviousNotesRecursively(nonLoaded);
+        cacheReplyGraph(nonLoaded);
+        addPreviousNotesAndReplies(nonLoaded);
+    }
+
+    /** Loads the selected note, notes it replies to and all replies to them in one query */
+    private void cacheReplyGraph(T item) {
+        if (item.getNoteId() == 0) return;
+
+        String selection = ProjectionMap.NOTE_TABLE_ALIAS + "." + NoteTable._ID
+                + " IN (" + sqlReplyGraphNoteIds(item.getNoteId()) + ")";
+        List<T> loaded = new ArrayList<>();
+        try (Cursor cursor = myContext.context().getContentResolver().query(getTimelineUri(),
+                item.getProjection().toArray(new String[]{}),
+                selection, null, null)) {
+            while (cursor != null && cursor.moveToNext()) {
+                T itemLoaded = item.fromCursor(myContext, cursor);
+                cachedConversationItems.putIfAbsent(itemLoaded.getNoteId(), itemLoaded);
+                loaded.add(itemLoaded);
+            }
+        }
+        MyLog.v(this, () -> "Reply graph of id=" + item.getNoteId() + ": " + loaded.size() + " notes");
+        loaded.forEach(this::cacheConversation);
+    }
+
+    /** Ids of the note, of notes it replies to (recursively) and of all replies to them (recursively) */
+    static String sqlReplyGraphNoteIds(long noteId) {
+        return "WITH RECURSIVE"
+                + " ancestor(id) AS (SELECT " + noteId
+                + " UNION SELECT " + NoteTable.IN_REPLY_TO_NOTE_ID + " FROM " + NoteTable.TABLE_NAME
+                + " INNER JOIN ancestor ON " + NoteTable.TABLE_NAME + "." + NoteTable._ID + "=ancestor.id"
+                + " WHERE " + NoteTable.IN_REPLY_TO_NOTE_ID + "!=0),"
+                + " reply(id) AS (SELECT id FROM ancestor"
+                + " UNION SELECT " + NoteTable.TABLE_NAME + "." + NoteTable._ID + " FROM " + NoteTable.TABLE_NAME
+                + " INNER JOIN reply ON " + NoteTable.IN_REPLY_TO_NOTE_ID + "=reply.id)"
+                + " SELECT id FROM reply";
+    }
+
+    /** parent note id -> replies to it */
+    private Map<Long, List<T>> mapOfReplies() {
+        Map<Long, List<T>> replies = new HashMap<>();
+        for (T item : cachedConversationItems.values()) {
+            if (item.inReplyToNoteId != 0) {
+                replies.computeIfAbsent(item.inReplyToNoteId, key -> new ArrayList<>()).add(item);
+            }
+        }
+        return replies;
+    }
+
+    private Uri getTimelineUri() {
+        return myContext.timelines().get(TimelineType.EVERYTHING, Actor.EMPTY, ma.getOrigin()).getUri();
     }
 
     @Override
@@ -54,9 +111,7 @@ public class RecursiveConversationLoader<T extends ConversationItem<T>> extends
 
         String selection = (ProjectionMap.NOTE_TABLE_ALIAS + "."
                 + NoteTable.CONVERSATION_ID + "=" + item.conversationId);
-        Uri uri = myContext.timelines().get(TimelineType.EVERYTHING, Actor.EMPTY, ma.getOrigin()).getUri();
-
-        try (Cursor cursor = myContext.context().getContentResolver().query(uri,
+        try (Cursor cursor = myContext.context().getContentResolver().query(getTimelineUri(),
                 item.getProjection().toArray(new String[]{}),
                 selection, null, null)) {
             while (cursor != null && cursor.moveToNext()) {
@@ -66,30 +121,45 @@ public class RecursiveConversationLoader<T extends ConversationItem<T>> extends
         }
     }
 
-    private void findPreviousNotesRecursively(T itemIn) {
-        if (!addNoteIdToFind(itemIn.getNoteId())) {
-            return;
-        }
-        T item = loadItemFromDatabase(itemIn);
-        findRepliesRecursively(item);
-        MyLog.v(this, () -> "findPreviousNotesRecursively id=" + item.getNoteId() + " replies:" + item.nReplies);
-        if (item.isLoaded()) {
-            if (addItemToList(item) && item.inReplyToNoteId != 0) {
-                findPreviousNotesRecursively(
-                        getItem(item.inReplyToNoteId, item.conversationId, item.replyLevel - 1));
+    private void addPreviousNotesAndReplies(T itemIn) {
+        Map<Long, List<T>> replies = mapOfReplies();
+        int cachedSize = cachedConversationItems.size();
+        T item = itemIn;
+        while (addNoteIdToFind(item.getNoteId())) {
+            item = loadItemFromDatabase(item);
+            if (cachedSize != cachedConversationItems.size()) {
+                // Another conversation was cached
+                replies = mapOfReplies();
+                cachedSize = cachedConversationItems.size();
             }
-        } else if (mAllowLoadingFromInternet) {
-            loadFromInternet(item.getNoteId());
+            addRepliesOf(item, replies);
+            long noteId = item.getNoteId();
+            int nReplies = item.nReplies;
+            MyLog.v(this, () -> "addPreviousNotesAndReplies id=" + noteId + " replies:" + nReplies);
+            if (!item.isLoaded()) {
+                if (mAllowLoadingFromInternet) {
+                    loadFromInternet(item.getNoteId());
+                }
+                return;
+            }
+            if (!addItemToList(item) || item.inReplyToNoteId == 0) return;
+
+            item = getItem(item.inReplyToNoteId, item.conversationId, item.replyLevel - 1);
         }
     }
 
-    private void findRepliesRecursively(T item) {
-        MyLog.v(this, () -> "findReplies for id=" + item.getNoteId());
-        for (T reply : cachedConversationItems.values()) {
-            if (reply.inReplyToNoteId == item.getNoteId()) {
-                item.nReplies++;
-                reply.replyLevel = item.replyLevel + 1;
-                findPreviousNotesRecursively(reply);
+    /** Adds replies to the item, replies to them etc. */
+    private void addRepliesOf(T item, Map<Long, List<T>> replies) {
+        Deque<T> parents = new ArrayDeque<>();
+        parents.add(item);
+        while (!parents.isEmpty()) {
+            T parent = parents.poll();
+            for (T reply : replies.getOrDefault(parent.getNoteId(), Collections.emptyList())) {
+                parent.nReplies++;
+                reply.replyLevel = parent.replyLevel + 1;
+                if (addNoteIdToFind(reply.getNoteId()) && addItemToList(reply)) {
+                    parents.add(reply);
+                }
             }
         }
     }
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.notification;
+
+import androidx.annotation.NonNull;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.database.table.ActivityTable;
+import org.andstatus.app.net.social.Actor;
+import org.andstatus.app.util.MyStringBuilder;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.andstatus.app.data.DbUtils.getLong;
+import static org.andstatus.app.util.RelativeTime.DATETIME_MILLIS_NEVER;
+
+/**
+ * Numbers of new notification events per event type and notified actor.
+ * The counters are loaded from the database once (and on recovery only),
+ * and then they are updated incrementally, as notification events of activities are set or cleared,
+ * so getting current {@link NotificationEvents} doesn't depend on the number of unread activities
+ * @author yvolk@yurivolkov.com
+ */
+class NotificationCounters {
+    static final NotificationCounters EMPTY = new NotificationCounters(MyContext.EMPTY);
+    private static final String COUNT = "cnt";
+    private static final String EVENT_DATE = "event_date";
+
+    private final MyContext myContext;
+    private final Map<NotificationEventType, Map<Long, Counter>> counters = new HashMap<>();
+
+    private static class Counter {
+        long count = 0;
+        long updatedDate = DATETIME_MILLIS_NEVER;
+
+        void add(long numberOfEvents, long date) {
+            count += numberOfEvents;
+            if (updatedDate < date) updatedDate = date;
+        }
+    }
+
+    NotificationCounters(MyContext myContext) {
+        this.myContext = myContext;
+    }
+
+    /** Full recount of new notification events in the database */
+    synchronized NotificationCounters load() {
+        counters.clear();
+        if (myContext.isEmpty()) return this;
+
+        String sql = "SELECT " + ActivityTable.NEW_NOTIFICATION_EVENT + ", " +
+                ActivityTable.NOTIFIED_ACTOR_ID + ", " +
+                "COUNT(*) AS " + COUNT + ", " +
+                "MAX(MAX(" + ActivityTable.INS_DATE + ", " + ActivityTable.UPDATED_DATE + ")) AS " + EVENT_DATE +
+                " FROM " + ActivityTable.TABLE_NAME +
+                " WHERE " + ActivityTable.NEW_NOTIFICATION_EVENT + "!=0" +
+                " GROUP BY " + ActivityTable.NEW_NOTIFICATION_EVENT + ", " + ActivityTable.NOTIFIED_ACTOR_ID;
+        MyQuery.foldLeft(myContext, sql, counters,
+            map -> cursor -> {
+                add(NotificationEventType.fromId(getLong(cursor, ActivityTable.NEW_NOTIFICATION_EVENT)),
+                        getLong(cursor, ActivityTable.NOTIFIED_ACTOR_ID),
+                        getLong(cursor, COUNT),
+                        getLong(cursor, EVENT_DATE));
+                return map;
+            });
+        return this;
+    }
+
+    /** An activity, notified to the actor, changed its new notification event */
+    synchronized void onEventChanged(@NonNull NotificationEventType oldEvent, long oldNotifiedActorId,
+                                     @NonNull NotificationEventType newEvent, long newNotifiedActorId, long date) {
+        if (oldEvent == newEvent && oldNotifiedActorId == newNotifiedActorId) return;
+
+        if (oldEvent.nonEmpty()) {
+            Counter counter = counters.getOrDefault(oldEvent, Collections.emptyMap()).get(oldNotifiedActorId);
+            if (counter != null && counter.count > 0) counter.count--;
+        }
+        add(newEvent, newNotifiedActorId, 1, date);
+    }
+
+    private void add(@NonNull NotificationEventType event, long notifiedActorId, long numberOfEvents, long date) {
+        if (event.isEmpty() || numberOfEvents < 1) return;
+
+        counters.computeIfAbsent(event, e -> new HashMap<>())
+                .computeIfAbsent(notifiedActorId, id -> new Counter())
+                .add(numberOfEvents, date);
+    }
+
+    /** The same as {@link org.andstatus.app.data.MyProvider#clearNotification} does in the database
+     * @param notifiedActorId 0 to clear all */
+    synchronized void clear(long notifiedActorId) {
+        if (notifiedActorId == 0) {
+            counters.clear();
+        } else {
+            counters.values().forEach(byActor -> byActor.remove(notifiedActorId));
+        }
+    }
+
+    /** @return new data of enabled events only. For an event, notified to several actors, the actor is empty */
+    synchronized Map<NotificationEventType, NotificationData> toNotificationData(
+            List<NotificationEventType> enabledEvents) {
+        Map<NotificationEventType, NotificationData> map = new HashMap<>();
+        counters.forEach((event, byActor) -> {
+            if (!enabledEvents.contains(event)) return;
+
+            long notifiedActorId = 0;
+            int actorsCount = 0;
+            Counter total = new Counter();
+            for (Map.Entry<Long, Counter> entry : byActor.entrySet()) {
+                if (entry.getValue().count < 1) continue;
+
+                notifiedActorId = entry.getKey();
+                actorsCount++;
+                total.add(entry.getValue().count, entry.getValue().updatedDate);
+            }
+            if (total.count < 1) return;
+
+            NotificationData data = new NotificationData(event,
+                    actorsCount == 1 ? myContext.users().load(notifiedActorId) : Actor.EMPTY, total.updatedDate);
+            data.addEventsAt(total.count - data.count, total.updatedDate);
+            map.put(event, data);
+        });
+        return map;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        counters.forEach((event, byActor) -> byActor.forEach((actorId, counter) ->
+                builder.append(event + " actorId:" + actorId + " count:" + counter.count + "; ")));
+        return MyStringBuilder.formatKeyValue(this, builder);
+    }
+}
@@ -23,36 +23,35 @@ import androidx.annotation.NonNull;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.data.MyProvider;
-import org.andstatus.app.data.MyQuery;
-import org.andstatus.app.database.table.ActivityTable;
-import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.timeline.meta.Timeline;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import static org.andstatus.app.data.DbUtils.getLong;
-
 public class NotificationEvents {
-    public final static NotificationEvents EMPTY = of(MyContext.EMPTY, Collections.emptyList());
+    public final static NotificationEvents EMPTY = of(MyContext.EMPTY, Collections.emptyList(),
+            NotificationCounters.EMPTY);
     public final MyContext myContext;
     private final List<NotificationEventType> enabledEvents;
+    private final NotificationCounters counters;
     public final Map<NotificationEventType, NotificationData> map;
 
     public static NotificationEvents of(@NonNull Context context) {
-        return of(MyContextHolder.get(context), Collections.emptyList());
+        return of(MyContextHolder.get(context), Collections.emptyList(), NotificationCounters.EMPTY);
     }
 
-    static NotificationEvents of(MyContext myContext, List<NotificationEventType> enabledEvents) {
-        return new NotificationEvents(myContext, enabledEvents, Collections.emptyMap());
+    static NotificationEvents of(MyContext myContext, List<NotificationEventType> enabledEvents,
+                                 NotificationCounters counters) {
+        return new NotificationEvents(myContext, enabledEvents, counters, Collections.emptyMap());
     }
 
     private NotificationEvents(MyContext myContext, List<NotificationEventType> enabledEvents,
+                               NotificationCounters counters,
                                Map<NotificationEventType, NotificationData> notificationDataMap) {
         this.myContext = myContext;
         this.enabledEvents = enabledEvents;
+        this.counters = counters;
         map = notificationDataMap;
     }
 
@@ -63,11 +62,13 @@ public class NotificationEvents {
 
     NotificationEvents clearAll() {
         MyProvider.clearAllNotifications(myContext);
+        counters.clear(0);
         return load();
     }
 
     public NotificationEvents clear(@NonNull Timeline timeline) {
         MyProvider.clearNotification(myContext, timeline);
+        counters.clear(timeline.actor.actorId);
         return load();
     }
 
@@ -94,38 +95,8 @@ public class NotificationEvents {
         }
     }
 
+    /** Current events, built from the counters, without rescanning of activities */
     public NotificationEvents load() {
-        String sql = "SELECT " + ActivityTable.NEW_NOTIFICATION_EVENT + ", " +
-                ActivityTable.NOTIFIED_ACTOR_ID + ", " +
-                ActivityTable.INS_DATE + ", " +
-                ActivityTable.UPDATED_DATE +
-                " FROM " + ActivityTable.TABLE_NAME +
-                " WHERE " + ActivityTable.NEW_NOTIFICATION_EVENT + "!=0";
-        Map<NotificationEventType, NotificationData> loadedMap = MyQuery.foldLeft(myContext, sql, new HashMap<>(),
-            map1 -> cursor -> foldEvent(
-                    map1,
-                    NotificationEventType.fromId(getLong(cursor, ActivityTable.NEW_NOTIFICATION_EVENT)),
-                    myContext.users().load(getLong(cursor, ActivityTable.NOTIFIED_ACTOR_ID)),
-                    Math.max(getLong(cursor, ActivityTable.INS_DATE), getLong(cursor, ActivityTable.UPDATED_DATE))
-            ));
-        return new NotificationEvents(myContext, enabledEvents, loadedMap);
-    }
-
-    private HashMap<NotificationEventType, NotificationData> foldEvent(
-            HashMap<NotificationEventType, NotificationData> map,
-            NotificationEventType eventType, Actor myActor, long updatedDate) {
-        NotificationData data = map.get(eventType);
-        if (data == null) {
-            if (enabledEvents.contains(eventType)) {
-                map.put(eventType, new NotificationData(eventType, myActor, updatedDate));
-            }
-        } else if( data.myActor.equals(myActor)) {
-            data.addEventsAt(1, updatedDate);
-        } else {
-            NotificationData data2 = new NotificationData(eventType, Actor.EMPTY, updatedDate);
-            data2.addEventsAt(data.count, data.updatedDate);
-            map.put(eventType, data2);
-        }
-        return map;
+        return new NotificationEvents(myContext, enabledEvents, counters, counters.toNotificationData(enabledEvents));
     }
 }
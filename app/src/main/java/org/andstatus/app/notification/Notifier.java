@@ -28,7 +28,10 @@ import org.andstatus.app.R;
 import org.andstatus.app.appwidget.AppWidgets;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.data.BatchTransaction;
 import org.andstatus.app.data.MyProvider;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.timeline.meta.Timeline;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
@@ -53,9 +56,11 @@ public class Notifier {
     private Uri soundUri;
     private List<NotificationEventType> enabledEvents = Collections.emptyList();
     private final AtomicReference<NotificationEvents> refEvents = new AtomicReference<>(NotificationEvents.EMPTY);
+    private final NotificationCounters counters;
 
     public Notifier(MyContext myContext) {
         this.myContext = myContext;
+        counters = new NotificationCounters(myContext);
     }
 
     public void clearAll() {
@@ -165,7 +170,23 @@ public class Notifier {
         soundUri = NotificationMethodType.SOUND.getUri();
         enabledEvents = NotificationEventType.validValues.stream().filter(NotificationEventType::isEnabled)
                 .collect(Collectors.toList());
-        refEvents.set(NotificationEvents.of(myContext, enabledEvents).load());
+        refEvents.set(NotificationEvents.of(myContext, enabledEvents, counters.load()).load());
+    }
+
+    /** Recount of new notification events from the database,
+     * needed only after bulk changes of activities, which don't go through {@link #onNotificationEventChanged} */
+    public void recount() {
+        counters.load();
+        refEvents.updateAndGet(NotificationEvents::load);
+    }
+
+    /** Should be called on each change of the new notification event or of the notified actor of an activity.
+     * Inside a {@link BatchTransaction} the counters are changed after its commit only */
+    public void onNotificationEventChanged(@NonNull NotificationEventType oldEvent, long oldNotifiedActorId,
+                                           @NonNull NotificationEventType newEvent, long newNotifiedActorId,
+                                           long date) {
+        BatchTransaction.afterCommit(() ->
+                counters.onEventChanged(oldEvent, oldNotifiedActorId, newEvent, newNotifiedActorId, date));
     }
 
     public boolean isEnabled(NotificationEventType eventType) {
@@ -175,7 +196,12 @@ public class Notifier {
     public void onUnsentActivity(long activityId) {
         if (activityId == 0 || !isEnabled(NotificationEventType.OUTBOX)) return;
 
+        NotificationEventType oldEvent = NotificationEventType.fromId(MyQuery.activityIdToLongColumnValue(
+                ActivityTable.NEW_NOTIFICATION_EVENT, activityId));
+        long oldNotifiedActorId = MyQuery.activityIdToLongColumnValue(ActivityTable.NOTIFIED_ACTOR_ID, activityId);
         MyProvider.setUnsentActivityNotification(myContext, activityId);
+        onNotificationEventChanged(oldEvent, oldNotifiedActorId, NotificationEventType.OUTBOX,
+                MyQuery.activityIdToLongColumnValue(ActivityTable.ACTOR_ID, activityId), System.currentTimeMillis());
         update();
     }
 
@@ -26,6 +26,7 @@ import java.util.HashSet;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -49,6 +50,10 @@ public class AsyncTaskLauncher<Params> {
     private static volatile ThreadPoolExecutor SYNC_POOL_EXECUTOR = null;
     private static volatile ThreadPoolExecutor LONG_UI_POOL_EXECUTOR = null;
     private static volatile ThreadPoolExecutor FILE_DOWNLOAD_EXECUTOR = null;
+    private static volatile ThreadPoolExecutor BACKGROUND_EXECUTOR = null;
+    private static volatile ThreadPoolExecutor DATA_CHECK_EXECUTOR = null;
+    private static volatile ThreadPoolExecutor CACHE_LOAD_EXECUTOR = null;
+    private static volatile ThreadPoolExecutor PREFETCH_EXECUTOR = null;
 
     private static ThreadPoolExecutor getExecutor(MyAsyncTask.PoolEnum pool) {
         ThreadPoolExecutor executor;
@@ -62,6 +67,18 @@ public class AsyncTaskLauncher<Params> {
             case SYNC:
                 executor = SYNC_POOL_EXECUTOR;
                 break;
+            case BACKGROUND:
+                executor = BACKGROUND_EXECUTOR;
+                break;
+            case DATA_CHECK:
+                executor = DATA_CHECK_EXECUTOR;
+                break;
+            case CACHE_LOAD:
+                executor = CACHE_LOAD_EXECUTOR;
+                break;
+            case PREFETCH:
+                executor = PREFETCH_EXECUTOR;
+                break;
             default:
                 return (ThreadPoolExecutor) MyAsyncTask.THREAD_POOL_EXECUTOR;
         }
@@ -95,11 +112,31 @@ public class AsyncTaskLauncher<Params> {
             case SYNC:
                 SYNC_POOL_EXECUTOR = executor;
                 break;
+            case BACKGROUND:
+                BACKGROUND_EXECUTOR = executor;
+                break;
+            case DATA_CHECK:
+                DATA_CHECK_EXECUTOR = executor;
+                break;
+            case CACHE_LOAD:
+                CACHE_LOAD_EXECUTOR = executor;
+                break;
+            case PREFETCH:
+                PREFETCH_EXECUTOR = executor;
+                break;
             default:
                 break;
         }
     }
 
+    /** The executor of the pool for plain functions, which are not {@link MyAsyncTask}s,
+     * e.g. for parallel parts of a running task.
+     * Its queue is bounded, so {@link java.util.concurrent.Executor#execute(Runnable)}
+     * may throw {@link RejectedExecutionException} */
+    public static Executor getPoolExecutor(MyAsyncTask.PoolEnum pool) {
+        return getExecutor(pool);
+    }
+
     public static boolean execute(Runnable backgroundFunc) {
         return execute(null, p -> {backgroundFunc.run(); return null;}, p -> r -> {});
     }
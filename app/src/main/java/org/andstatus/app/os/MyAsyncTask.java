@@ -65,10 +65,20 @@ public abstract class MyAsyncTask<Params, Progress, Result> extends AsyncTask<Pa
     volatile boolean hasExecutor = true;
 
     public enum PoolEnum {
-        SYNC(2, MAX_COMMAND_EXECUTION_SECONDS, true),
+        SYNC(4, MAX_COMMAND_EXECUTION_SECONDS, true),
         FILE_DOWNLOAD(1, MAX_COMMAND_EXECUTION_SECONDS, true),
         QUICK_UI(0, 20, false),
-        LONG_UI(1, MAX_COMMAND_EXECUTION_SECONDS, true);
+        LONG_UI(1, MAX_COMMAND_EXECUTION_SECONDS, true),
+        /** For parallel parts of other tasks, see {@link AsyncTaskLauncher#getPoolExecutor(PoolEnum)} */
+        BACKGROUND(4, MAX_COMMAND_EXECUTION_SECONDS, false),
+        /** Groups of {@link org.andstatus.app.data.checker.DataChecker}s, so long checks don't occupy
+         * the {@link #BACKGROUND} pool */
+        DATA_CHECK(2, MAX_COMMAND_EXECUTION_SECONDS, false),
+        /** Caches, which are loaded after initialization of a context,
+         * see {@link org.andstatus.app.user.CachedUsersAndActors} */
+        CACHE_LOAD(1, MAX_COMMAND_EXECUTION_SECONDS, false),
+        /** Parallel downloads of objects of a timeline page, which came by their ids only */
+        PREFETCH(4, MAX_COMMAND_EXECUTION_SECONDS, false);
 
         protected final int corePoolSize;
         final long maxCommandExecutionSeconds;
@@ -18,6 +18,7 @@ package org.andstatus.app.service;
 
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.http.HttpValidators;
 import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.net.social.Connection;
 import org.andstatus.app.util.MyLog;
@@ -58,6 +59,7 @@ class CommandExecutorStrategy implements CommandExecutorParent {
 
     private static void logEnd(CommandExecutorStrategy strategy) {
         MyLog.d(strategy, "Executed " + strategy.execContext);
+        MyLog.v(strategy, () -> HttpValidators.toSummary(strategy.execContext.myContext));
     }
 
     void broadcastProgress(String progress, boolean notTooOften) {
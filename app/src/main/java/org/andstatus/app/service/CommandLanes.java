@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import androidx.annotation.NonNull;
+
+import net.jcip.annotations.GuardedBy;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Allows several {@link CommandData} to be executed in parallel.
+ * Commands of one "lane" (of one account or, for commands without an account, of one origin)
+ * are executed sequentially, in the order of the queue, so e.g. notes of one account are sent in order.
+ * The number of commands executed in parallel is limited by the number of executors of the queue
+ * (see {@link MyService}), and for one origin - by {@link #MAX_PARALLEL_COMMANDS_PER_ORIGIN}
+ * @author yvolk@yurivolkov.com
+ */
+class CommandLanes {
+    private static final String COMMON_LANE = "common";
+    static final int MAX_PARALLEL_COMMANDS_PER_ORIGIN = 1;
+
+    @GuardedBy("this")
+    private final Map<String, LaneStats> lanes = new HashMap<>();
+    @GuardedBy("this")
+    private final Map<Long, Integer> executingAtOrigin = new HashMap<>();
+
+    private static class LaneStats {
+        final String name;
+        boolean busy = false;
+        long executedCount = 0;
+        long executionTimeMs = 0;
+
+        LaneStats(String name) {
+            this.name = name;
+        }
+
+        String toSummary() {
+            return name + ": " + executedCount + " commands in " + executionTimeMs / 1000 + "s"
+                    + (executionTimeMs > 0
+                        ? String.format(", %.2f/min", executedCount * 60000.0 / executionTimeMs)
+                        : "");
+        }
+    }
+
+    @NonNull
+    static String laneOf(@NonNull CommandData commandData) {
+        if (commandData.myAccount.isValid()) {
+            return "account:" + commandData.myAccount.getAccountName();
+        }
+        long originId = originIdOf(commandData);
+        return originId == 0 ? COMMON_LANE : "origin:" + originId;
+    }
+
+    private static long originIdOf(@NonNull CommandData commandData) {
+        return commandData.myAccount.isValid()
+                ? commandData.myAccount.getOriginId()
+                : commandData.getTimeline().getOrigin().getId();
+    }
+
+    /** @return true if the lane of the command is free, so the command may be acquired now */
+    synchronized boolean mayAcquire(@NonNull CommandData commandData) {
+        LaneStats lane = lanes.get(laneOf(commandData));
+        if (lane != null && lane.busy) return false;
+
+        long originId = originIdOf(commandData);
+        return originId == 0 || executingAtOrigin.getOrDefault(originId, 0) < MAX_PARALLEL_COMMANDS_PER_ORIGIN;
+    }
+
+    /** @return true if the command may be executed now. Then {@link #release} should be called after its execution */
+    synchronized boolean tryAcquire(@NonNull CommandData commandData) {
+        if (!mayAcquire(commandData)) return false;
+
+        LaneStats lane = lanes.get(laneOf(commandData));
+        long originId = originIdOf(commandData);
+        int executing = executingAtOrigin.getOrDefault(originId, 0);
+        if (lane == null) {
+            lane = new LaneStats(laneOf(commandData));
+            lanes.put(lane.name, lane);
+        }
+        lane.busy = true;
+        executingAtOrigin.put(originId, executing + 1);
+        return true;
+    }
+
+    /** @return summary of the command's lane throughput */
+    synchronized String release(@NonNull CommandData commandData, long executionTimeMs) {
+        LaneStats lane = lanes.get(laneOf(commandData));
+        if (lane == null) return "";
+
+        lane.busy = false;
+        lane.executedCount++;
+        lane.executionTimeMs += executionTimeMs;
+        long originId = originIdOf(commandData);
+        executingAtOrigin.put(originId, Math.max(0, executingAtOrigin.getOrDefault(originId, 0) - 1));
+        return lane.toSummary();
+    }
+
+    synchronized int busyCount() {
+        int count = 0;
+        for (LaneStats lane : lanes.values()) {
+            if (lane.busy) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (LaneStats lane : lanes.values()) {
+            if (builder.length() > 0) builder.append("; ");
+            builder.append(lane.toSummary());
+        }
+        return "Lanes{" + builder + "}";
+    }
+}
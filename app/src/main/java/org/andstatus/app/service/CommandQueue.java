@@ -26,17 +26,24 @@ import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.data.SqlIds;
 import org.andstatus.app.database.table.CommandTable;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import androidx.annotation.NonNull;
 
@@ -56,6 +63,8 @@ public class CommandQueue {
     private final Map<QueueType, OneQueue> queues = new HashMap<>();
     private volatile boolean loaded = false;
     private volatile boolean saved = false;
+    private final CommandLanes lanes = new CommandLanes();
+    private int executorsCount = 0;
 
     static void addToPreQueue(CommandData commandData) {
         switch (commandData.getCommand()) {
@@ -81,11 +90,18 @@ public class CommandQueue {
         Queue<CommandData> queue = new PriorityBlockingQueue<>(INITIAL_CAPACITY);
         final AtomicInteger savedCount = new AtomicInteger();
         volatile boolean savedForegroundTasks = false;
+        /** Loading of the commands, persisted in the database, was deferred: only new commands are in memory */
+        volatile boolean deferred = false;
+        /** Rows of this queue in the database, which are in memory now: commandId -> hash of the row's values.
+         * Only rows, which were removed or changed in memory, are written back on save */
+        final Map<Long, Integer> stored = new HashMap<>();
 
         public void clear() {
             queue.clear();
+            stored.clear();
             savedCount.set(0);
             savedForegroundTasks = false;
+            deferred = false;
         }
 
         public boolean isEmpty() {
@@ -133,6 +149,7 @@ public class CommandQueue {
             case UNKNOWN:
                 return null;
             default:
+                loadDeferred(queueType);
                 return queues.get(queueType).queue;
         }
     }
@@ -142,29 +159,75 @@ public class CommandQueue {
             MyLog.v(this, "Already loaded");
         } else {
             int count = load(QueueType.CURRENT) + load(QueueType.RETRY);
-            int countError = load(QueueType.ERROR);
+            int countError = deferLoading(QueueType.ERROR);
             MyLog.d(this, "State restored, " + (count > 0 ? Integer.toString(count) : "no ")
                     + " msg in the Queues"
-                    + (countError > 0 ? ", plus " + Integer.toString(countError) + " in Error queue" : "")
+                    + (countError > 0 ? ", plus " + Integer.toString(countError) + " in Error queue (not loaded)" : "")
             );
             loaded = true;
         }
         return this;
     }
 
+    /** Loads the queues for the first of several parallel executors */
+    synchronized void onExecutorStarted() {
+        executorsCount++;
+        load();
+    }
+
+    /** Saves the queues, when the last of parallel executors ended */
+    synchronized void onExecutorEnded() {
+        executorsCount = Math.max(0, executorsCount - 1);
+        if (executorsCount == 0) {
+            save();
+        } else {
+            MyLog.v(this, () -> "Not saving yet, " + executorsCount + " executors left");
+        }
+    }
+
+    /** The large Error queue is not needed to start executing commands, so it is loaded on first access only.
+     * Old commands are deleted from it right in the database
+     * @return Number of items in the database */
+    private int deferLoading(@NonNull QueueType queueType) {
+        final String method = "deferLoading-" + queueType.save();
+        OneQueue oneQueue = queues.get(queueType);
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            MyLog.d(context, method + "; Database is unavailable");
+            return 0;
+        }
+        DbUtils.execSQL(db, "DELETE FROM " + CommandTable.TABLE_NAME + " WHERE " + sqlQueueType(queueType)
+                + " AND " + CommandTable.LAST_EXECUTED_DATE + "<"
+                + (System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_DAYS_IN_ERROR_QUEUE)));
+        int count = (int) MyQuery.sqlToLong(db, method, "SELECT COUNT(*) FROM " + CommandTable.TABLE_NAME
+                + " WHERE " + sqlQueueType(queueType));
+        oneQueue.savedCount.set(count);
+        oneQueue.savedForegroundTasks = false;
+        oneQueue.deferred = count > 0;
+        return count;
+    }
+
+    private synchronized void loadDeferred(@NonNull QueueType queueType) {
+        OneQueue oneQueue = queues.get(queueType);
+        if (loaded && oneQueue != null && oneQueue.deferred) {
+            load(queueType);
+        }
+    }
+
     /** @return Number of items loaded */
     private int load(@NonNull QueueType queueType) {
         final String method = "loadQueue-" + queueType.save();
         OneQueue oneQueue = queues.get(queueType);
         Queue<CommandData> queue = oneQueue.queue;
+        Set<CommandData> index = new HashSet<>(queue);
+        List<Long> skipped = new ArrayList<>();
         int count = 0;
         SQLiteDatabase db = myContext.getDatabase();
         if (db == null) {
             MyLog.d(context, method + "; Database is unavailable");
             return 0;
         }
-        String sql = "SELECT * FROM " + CommandTable.TABLE_NAME + " WHERE " + CommandTable.QUEUE_TYPE + "='"
-                + queueType.save() + "'";
+        String sql = "SELECT * FROM " + CommandTable.TABLE_NAME + " WHERE " + sqlQueueType(queueType);
         Cursor c = null;
         try {
             c = db.rawQuery(sql, null);
@@ -172,10 +235,13 @@ public class CommandQueue {
                 CommandData cd = CommandData.fromCursor(myContext, c);
                 if (CommandEnum.EMPTY.equals(cd.getCommand())) {
                     MyLog.e(context, method + "; empty skipped " + cd);
-                } else if (queue.contains(cd)) {
+                    skipped.add(cd.getCommandId());
+                } else if (!index.add(cd)) {
                     MyLog.e(context, method + "; duplicate skipped " + cd);
+                    skipped.add(cd.getCommandId());
                 } else {
                     if (queue.offer(cd)) {
+                        oneQueue.stored.put(cd.getCommandId(), toContentValues(cd, queueType).hashCode());
                         count++;
                         if (MyLog.isVerboseEnabled() && (count < 6 || cd.getCommand() == CommandEnum.UPDATE_NOTE)) {
                             MyLog.v(context, method + "; " + count + ": " + cd.toString());
@@ -188,19 +254,57 @@ public class CommandQueue {
         } finally {
             DbUtils.closeSilently(c);
         }
+        if (!skipped.isEmpty()) {
+            db.delete(CommandTable.TABLE_NAME, CommandTable._ID + SqlIds.fromIds(skipped).getSql(), null);
+        }
         MyLog.d(context, method + "; loaded " + count + " commands from '" + queueType + "'");
         oneQueue.savedCount.set(0);
         oneQueue.savedForegroundTasks = false;
+        oneQueue.deferred = false;
         return count;
     }
 
+    private static String sqlQueueType(@NonNull QueueType queueType) {
+        return CommandTable.QUEUE_TYPE + "='" + queueType.save() + "'";
+    }
+
+    /** Commands of the queue in the database, which are equal to the command */
+    private List<CommandData> loadEqual(@NonNull SQLiteDatabase db, @NonNull QueueType queueType,
+                                        @NonNull CommandData commandData) {
+        String sql = "SELECT * FROM " + CommandTable.TABLE_NAME + " WHERE " + sqlQueueType(queueType)
+                + " AND " + CommandTable.COMMAND_CODE + "='" + commandData.getCommand().save() + "'"
+                + " AND " + CommandTable.ACCOUNT_ID + "=" + commandData.myAccount.getActorId()
+                + " AND IFNULL(" + CommandTable.ITEM_ID + ", 0)=" + commandData.itemId;
+        List<CommandData> list = new ArrayList<>();
+        try (Cursor c = db.rawQuery(sql, null)) {
+            while (c.moveToNext()) {
+                CommandData cd = CommandData.fromCursor(myContext, c);
+                if (cd.equals(commandData)) list.add(cd);
+            }
+        }
+        return list;
+    }
+
+    /** Removes the command and commands, equal to it, from the deferred queue in the database */
+    private void deleteFromDatabase(@NonNull SQLiteDatabase db, @NonNull QueueType queueType,
+                                    @NonNull CommandData commandData) {
+        List<Long> ids = new ArrayList<>();
+        if (commandData.getCommandId() != 0) ids.add(commandData.getCommandId());
+        loadEqual(db, queueType, commandData).forEach(cd -> ids.add(cd.getCommandId()));
+        if (ids.isEmpty()) return;
+
+        int deleted = db.delete(CommandTable.TABLE_NAME,
+                CommandTable._ID + SqlIds.fromIds(ids).getSql(), null);
+        OneQueue oneQueue = queues.get(queueType);
+        oneQueue.savedCount.set(Math.max(0, oneQueue.savedCount.get() - deleted));
+    }
+
     synchronized void save() {
         SQLiteDatabase db = myContext.getDatabase();
         if (db == null) {
             MyLog.d(context, "save; Database is unavailable");
             return;
         }
-        if (loaded) clearQueuesInDatabase(db);
         moveCommandsFromPreToMainQueue();
         int countCurrentRetry = save(db, QueueType.CURRENT) + save(db, QueueType.RETRY);
         int countError = save(db, QueueType.ERROR);
@@ -218,19 +322,26 @@ public class CommandQueue {
         OneQueue oneQueue = queues.get(queueType);
         Queue<CommandData> queue = oneQueue.queue;
         int count = 0;
+        int written = 0;
         try {
             if (loaded) {
                 oneQueue.savedCount.set(0);
                 oneQueue.savedForegroundTasks = false;
             }
+            Set<Long> kept = new HashSet<>();
             if (!queue.isEmpty()) {
                 while (!queue.isEmpty() && count < 300) {
                     CommandData cd = queue.poll();
+                    if (oneQueue.deferred) deleteFromDatabase(db, queueType, cd);
                     oneQueue.savedForegroundTasks |= cd.isInForeground();
-                    ContentValues values = new ContentValues();
-                    cd.toContentValues(values);
-                    values.put(CommandTable.QUEUE_TYPE, queueType.save());
-                    db.insert(CommandTable.TABLE_NAME, null, values);
+                    ContentValues values = toContentValues(cd, queueType);
+                    Integer storedHash = oneQueue.stored.get(cd.getCommandId());
+                    if (storedHash == null || storedHash != values.hashCode()) {
+                        db.insertWithOnConflict(CommandTable.TABLE_NAME, null, values,
+                                SQLiteDatabase.CONFLICT_REPLACE);
+                        written++;
+                    }
+                    kept.add(cd.getCommandId());
                     count++;
                     if (MyLog.isVerboseEnabled() && (count < 6 || cd.getCommand() == CommandEnum.UPDATE_NOTE)) {
                         MyLog.v(context, method + "; " + count + ": " + cd.toString());
@@ -240,12 +351,20 @@ public class CommandQueue {
                     }
                 }
                 if (queue.isEmpty()) {
-                    MyLog.d(context, method + "; " + count + " saved");
+                    MyLog.d(context, method + "; " + count + " saved, " + written + " written");
                 } else {
-                    MyLog.e(context, method + "; " + count + " saved" +
+                    MyLog.e(context, method + "; " + count + " saved, " + written + " written" +
                             (queue.isEmpty() ? "" : ", " + queue.size() + " left"));
+                    queue.forEach(cd -> kept.add(cd.getCommandId()));
                 }
             }
+            List<Long> removed = oneQueue.stored.keySet().stream()
+                    .filter(id -> !kept.contains(id)).collect(Collectors.toList());
+            if (!removed.isEmpty()) {
+                db.delete(CommandTable.TABLE_NAME, sqlQueueType(queueType) + " AND "
+                        + CommandTable._ID + SqlIds.fromIds(removed).getSql(), null);
+            }
+            oneQueue.stored.clear();
         } catch (Exception e) {
             String msgLog = method + "; " + count + " saved, " + queue.size() + " left.";
             MyLog.e(context, msgLog, e);
@@ -259,19 +378,11 @@ public class CommandQueue {
         return count;
     }
 
-    private synchronized void clearQueuesInDatabase(@NonNull SQLiteDatabase db) {
-        final String method = "clearQueuesInDatabase";
-        try {
-            String sql = "DELETE FROM " + CommandTable.TABLE_NAME;
-            DbUtils.execSQL(db, sql);
-        } catch (Exception e) {
-            MyLog.e(context, method, e);
-            if (SQLiteDiskIOException.class.isAssignableFrom(e.getClass())) {
-                throw e;
-            } else {
-                throw new IllegalStateException(method, e);
-            }
-        }
+    private static ContentValues toContentValues(@NonNull CommandData commandData, @NonNull QueueType queueType) {
+        ContentValues values = new ContentValues();
+        commandData.toContentValues(values);
+        values.put(CommandTable.QUEUE_TYPE, queueType.save());
+        return values;
     }
 
     void clear() {
@@ -281,12 +392,15 @@ public class CommandQueue {
             entry.getValue().clear();
         }
         preQueue.clear();
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db != null) DbUtils.execSQL(db, "DELETE FROM " + CommandTable.TABLE_NAME);
         save();
         MyLog.v(this, "Queues cleared");
     }
 
     void deleteCommand(CommandData commandData) {
         moveCommandsFromPreToMainQueue();
+        queues.keySet().forEach(this::loadDeferred);
         for (OneQueue oneQueue : queues.values()) {
             commandData.deleteCommandFromQueue(oneQueue.queue);
         }
@@ -308,12 +422,35 @@ public class CommandQueue {
     }
 
     void addToQueue(QueueType queueType, CommandData commandData) {
+        if (appendToDeferredQueue(queueType, commandData)) return;
+
         get(queueType).remove(commandData);
         if (!get(queueType).offer(commandData)) {
             MyLog.e(this, queueType.name() + " is full?");
         }
     }
 
+    /** Adds the command to the queue, which was not loaded yet, right in the database, without loading the queue
+     * @return true if appended */
+    private synchronized boolean appendToDeferredQueue(QueueType queueType, CommandData commandData) {
+        OneQueue oneQueue = queues.get(queueType);
+        if (oneQueue == null || !oneQueue.deferred) return false;
+
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) return false;
+
+        oneQueue.queue.remove(commandData);
+        deleteFromDatabase(db, queueType, commandData);
+        if (db.insertWithOnConflict(CommandTable.TABLE_NAME, null, toContentValues(commandData, queueType),
+                SQLiteDatabase.CONFLICT_REPLACE) == -1) {
+            return false;
+        }
+        oneQueue.savedCount.incrementAndGet();
+        oneQueue.savedForegroundTasks |= commandData.isInForeground();
+        MyLog.v(this, () -> "Appended to " + queueType + " queue in the database: " + commandData);
+        return true;
+    }
+
     boolean isAnythingToExecuteNow() {
         return !loaded && !saved || !preQueue.isEmpty() || isAnythingToExecuteNowIn(QueueType.CURRENT)
                 || isAnythingToRetryNow();
@@ -337,9 +474,14 @@ public class CommandQueue {
         return true;
     }
 
-    CommandData pollQueue() {
+    /**
+     * Polls a command, which may be executed now in parallel with commands of other executors.
+     * {@link #onExecuted(CommandData, long)} should be called after its execution
+     */
+    synchronized CommandData pollQueue() {
         moveCommandsFromPreToMainQueue();
         CommandData commandData;
+        List<CommandData> inBusyLanes = new ArrayList<>();
         do {
             commandData = get(QueueType.CURRENT).poll();
             if (commandData == null && isAnythingToRetryNow()) {
@@ -349,6 +491,12 @@ public class CommandQueue {
             if (commandData == null) {
                 break;
             }
+            if (!lanes.mayAcquire(commandData)) {
+                // The command is left in the Retry and Error queues, till its lane is free
+                inBusyLanes.add(commandData);
+                commandData = null;
+                continue;
+            }
             commandData = findInRetryQueue(commandData);
             if (commandData != null) {
                 commandData = findInErrorQueue(commandData);
@@ -358,7 +506,16 @@ public class CommandQueue {
                 addToPreQueue(commandData);
                 commandData = null;
             }
+            if (commandData != null && !lanes.tryAcquire(commandData)) {
+                inBusyLanes.add(commandData);
+                commandData = null;
+            }
         } while (commandData == null);
+        for (CommandData cd : inBusyLanes) {
+            if (!get(QueueType.CURRENT).offer(cd)) {
+                MyLog.e(this, "Couldn't return to the main queue " + cd);
+            }
+        }
         MyLog.v(this, "Polled in "
                 + (myContext.isInForeground() ? "foreground "
                     + (MyPreferences.isSyncWhileUsingApplicationEnabled() ? "enabled" : "disabled")
@@ -370,6 +527,15 @@ public class CommandQueue {
         return commandData;
     }
 
+    /** @return Throughput summary of the lane of the executed command */
+    String onExecuted(@NonNull CommandData commandData, long executionTimeMs) {
+        return lanes.release(commandData, executionTimeMs);
+    }
+
+    int busyLanesCount() {
+        return lanes.busyCount();
+    }
+
     private void moveCommandsFromPreToMainQueue() {
         for (CommandData cd : preQueue) {
             if (addToMainQueue(cd)) preQueue.remove(cd);
@@ -423,12 +589,12 @@ public class CommandQueue {
 
     private CommandData findInErrorQueue(CommandData cdIn) {
         CommandData cdOut = cdIn;
-        if (get(QueueType.ERROR).contains(cdIn)) {
-            for (CommandData cd : get(QueueType.ERROR)) {
+        if (queues.get(QueueType.ERROR).queue.contains(cdIn)) {
+            for (CommandData cd : queues.get(QueueType.ERROR).queue) {
                 if (cd.equals(cdIn)) {
                     if (cdIn.isManuallyLaunched() || cd.executedMoreSecondsAgoThan(MIN_RETRY_PERIOD_SECONDS)) {
                         cdOut = cd;
-                        get(QueueType.ERROR).remove(cd);
+                        queues.get(QueueType.ERROR).queue.remove(cd);
                         MyLog.v(this, () -> "Returned from Error queue: " + cd);
                         cd.resetRetries();
                     } else {
@@ -437,12 +603,34 @@ public class CommandQueue {
                     }
                 } else {
                     if (cd.executedMoreSecondsAgoThan(TimeUnit.DAYS.toSeconds(MAX_DAYS_IN_ERROR_QUEUE))) {
-                        get(QueueType.ERROR).remove(cd);
+                        queues.get(QueueType.ERROR).queue.remove(cd);
                         MyLog.i(this, "Removed old from Error queue: " + cd);
                     }
                 }
             }
         }
+        if (cdOut == cdIn && queues.get(QueueType.ERROR).deferred) {
+            cdOut = findInDeferredErrorQueue(cdIn);
+        }
         return cdOut;
     }
+
+    /** The same as {@link #findInErrorQueue(CommandData)} for commands, which were not loaded from the database */
+    private CommandData findInDeferredErrorQueue(CommandData cdIn) {
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) return cdIn;
+
+        for (CommandData cd : loadEqual(db, QueueType.ERROR, cdIn)) {
+            if (cdIn.isManuallyLaunched() || cd.executedMoreSecondsAgoThan(MIN_RETRY_PERIOD_SECONDS)) {
+                deleteFromDatabase(db, QueueType.ERROR, cd);
+                MyLog.v(this, () -> "Returned from Error queue in the database: " + cd);
+                cd.resetRetries();
+                return cd;
+            } else {
+                MyLog.v(this, () -> "Found in Error queue in the database: " + cd);
+                return null;
+            }
+        }
+        return cdIn;
+    }
 }
@@ -22,6 +22,7 @@ import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyStorage;
 import org.andstatus.app.data.DownloadData;
 import org.andstatus.app.data.DownloadFile;
+import org.andstatus.app.data.MediaFilesSize;
 import org.andstatus.app.data.DownloadStatus;
 import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.social.Connection;
@@ -70,8 +71,10 @@ public abstract class FileDownloader {
 
     private void loadUrl() {
         data.beforeDownload();
-        downloadFile();
-        data.saveToDatabase();
+        DownloadFile fileTemp = new DownloadFile(MyStorage.TEMP_FILENAME_PREFIX + data.getFilenameNew());
+        boolean modified = downloadFile(fileTemp);
+        String contentHash = !data.isError() && modified ? fileTemp.contentHash() : "";
+        data.saveWithFile(() -> storeFile(fileTemp, modified, contentHash));
         if (!data.isError()) {
             onSuccessfulLoad();
         }
@@ -79,16 +82,17 @@ public abstract class FileDownloader {
 
     protected abstract void onSuccessfulLoad();
 
-    private void downloadFile() {
+    /** @return false if the file was not modified since its previous download */
+    private boolean downloadFile(DownloadFile fileTemp) {
         final String method = "downloadFile";
-        DownloadFile fileTemp = new DownloadFile(MyStorage.TEMP_FILENAME_PREFIX + data.getFilenameNew());
+        boolean modified = true;
         try {
             File file = fileTemp.getFile();
             MyAccount ma = findBestAccountForDownload();
             MyLog.v(this, () -> "About to download " + data.toString() + "; account:" + ma.getAccountName());
             if (ma.isValidAndSucceeded()) {
-                ((connectionMock != null) ? connectionMock : getConnection(ma, data.getUri()))
-                        .downloadFile(connectionRequired, data.getUri(), file);
+                modified = ((connectionMock != null) ? connectionMock : getConnection(ma, data.getUri()))
+                        .downloadFile(connectionRequired, data.getUri(), file, data.getFile().existsNow());
             } else {
                 data.hardErrorLogged(method + ", No account to download the file", null);
             }
@@ -99,15 +103,33 @@ public abstract class FileDownloader {
                 data.softErrorLogged(method, e);
             }
         }
+        return modified;
+    }
+
+    /** Is called inside the transaction, which saves the download, see {@link DownloadData#saveWithFile(Runnable)} */
+    private void storeFile(DownloadFile fileTemp, boolean modified, String contentHash) {
+        final String method = "storeFile";
+        DownloadFile fileStored = data.getFile();
         if (data.isError()) {
             fileTemp.delete();
+            new DownloadFile(data.getFilenameNew()).delete();
+        } else if (modified) {
+            DownloadFile fileNew = data.onContentHash(contentHash);
+            if (StringUtils.nonEmpty(contentHash) && fileNew.existsNow()) {
+                MyLog.v(this, () -> "Same content as in " + fileNew + ", sharing it with " + data);
+                fileTemp.delete();
+            } else {
+                fileNew.delete();
+                if (fileTemp.getFile().renameTo(fileNew.getFile())) {
+                    MediaFilesSize.add(fileNew.getFilename(), fileNew.getSize());
+                } else {
+                    data.softErrorLogged(method + "; Couldn't rename file " + fileTemp + " to " + fileNew, null);
+                }
+            }
+        } else {
+            MyLog.v(this, () -> "Not modified, keeping " + fileStored + " of " + data);
+            data.keepStoredFile();
         }
-        DownloadFile fileNew = new DownloadFile(data.getFilenameNew());
-        fileNew.delete();
-        if (!data.isError() && !fileTemp.getFile().renameTo(fileNew.getFile())) {
-            data.softErrorLogged(method + "; Couldn't rename file " + fileTemp + " to " + fileNew, null);
-        }
-        data.onDownloaded();
     }
 
     public FileDownloader setConnectionRequired(ConnectionRequired connectionRequired) {
@@ -44,6 +44,8 @@ import org.andstatus.app.util.RelativeTime;
 import org.andstatus.app.util.SharedPreferencesUtil;
 import org.andstatus.app.util.TriState;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.andstatus.app.notification.NotificationEventType.SERVICE_RUNNING;
@@ -73,9 +75,13 @@ public class MyService extends Service {
     @GuardedBy("serviceStateLock")
     private int mLatestProcessedStartId = 0;
     
+    /** Number of commands, which may be executed in parallel, see {@link CommandLanes}.
+     * Only ONE for now: parallel execution is not safe yet, because compound updates of
+     * {@link org.andstatus.app.data.DataUpdater} and of the caches it uses are not synchronized */
+    private static final int MAX_EXECUTORS = 1;
     private final Object executorLock = new Object();
     @GuardedBy("executorLock")
-    private QueueExecutor mExecutor = null;
+    private final List<QueueExecutor> executors = new ArrayList<>();
 
     private final Object heartBeatLock = new Object();
     @GuardedBy("heartBeatLock")
@@ -247,7 +253,7 @@ public class MyService extends Service {
                 startExecution();
                 break;
             default:
-                MyLog.v(this, () -> "Didn't change execution " + mExecutor);
+                MyLog.v(this, () -> "Didn't change execution " + executorsToString());
                 break;
         }
     }
@@ -341,26 +347,25 @@ public class MyService extends Service {
         final String method = "ensureExecutorStarted";
         StringBuilder logMessageBuilder = new StringBuilder();
         synchronized(executorLock) {
-            if ( mExecutor != null && mExecutor.completedBackgroundWork()) {
-                logMessageBuilder.append(" Removing completed Executor " + mExecutor);
-                removeExecutor(logMessageBuilder);
-            }
-            if ( mExecutor != null && !isExecutorReallyWorkingNow()) {
-                logMessageBuilder.append(" Cancelling stalled Executor " + mExecutor);
-                removeExecutor(logMessageBuilder);
+            for (QueueExecutor executor : new ArrayList<>(executors)) {
+                if (executor.completedBackgroundWork()) {
+                    logMessageBuilder.append(" Removing completed Executor " + executor);
+                    removeExecutor(executor, logMessageBuilder);
+                } else if (!executor.isReallyWorking()) {
+                    logMessageBuilder.append(" Cancelling stalled Executor " + executor);
+                    removeExecutor(executor, logMessageBuilder);
+                }
             }
-            if (mExecutor != null) {
-                logMessageBuilder.append(" There is an Executor already " + mExecutor);
-            } else {
-                // For now let's have only ONE working thread 
-                // (it seems there is some problem in parallel execution...)
+            if (isNewExecutorNeeded()) {
                 QueueExecutor newExecutor = new QueueExecutor();
                 logMessageBuilder.append(" Adding and starting new Executor " + newExecutor);
                 if (AsyncTaskLauncher.execute(this, false, newExecutor)) {
-                    mExecutor = newExecutor;
+                    executors.add(newExecutor);
                 } else {
                     logMessageBuilder.append(" New executor was not added");
                 }
+            } else {
+                logMessageBuilder.append(" There are Executors already " + executorsToString());
             }
         }
         if (logMessageBuilder.length() > 0) {
@@ -368,17 +373,35 @@ public class MyService extends Service {
         }
     }
     
-    private void removeExecutor(StringBuilder logMessageBuilder) {
+    /** Additional executor is started only when all existing ones are busy and there are more commands */
+    @GuardedBy("executorLock")
+    private boolean isNewExecutorNeeded() {
+        if (executors.isEmpty()) return true;
+        if (executors.size() >= MAX_EXECUTORS) return false;
+
+        for (QueueExecutor executor : executors) {
+            if (executor.currentlyExecuting == null) return false;
+        }
+        return commandQueue.totalSizeToExecute() > commandQueue.busyLanesCount();
+    }
+
+    private void removeExecutor(QueueExecutor executor, StringBuilder logMessageBuilder) {
         synchronized(executorLock) {
-            if (mExecutor == null) {
+            if (!executors.contains(executor)) {
                 return;
             }
-            if (mExecutor.needsBackgroundWork()) {
+            if (executor.needsBackgroundWork()) {
                 logMessageBuilder.append(" Cancelling and");
-                mExecutor.cancelLogged(true);
+                executor.cancelLogged(true);
             }
-            logMessageBuilder.append(" Removing Executor " + mExecutor);
-            mExecutor = null;
+            logMessageBuilder.append(" Removing Executor " + executor);
+            executors.remove(executor);
+        }
+    }
+
+    private String executorsToString() {
+        synchronized(executorLock) {
+            return executors.toString();
         }
     }
 
@@ -399,8 +422,11 @@ public class MyService extends Service {
     
     private boolean isExecutorReallyWorkingNow() {
         synchronized(executorLock) {
-          return mExecutor != null && mExecutor.isReallyWorking();
-        }        
+            for (QueueExecutor executor : executors) {
+                if (executor.isReallyWorking()) return true;
+            }
+            return false;
+        }
     }
     
     @Override
@@ -471,16 +497,20 @@ public class MyService extends Service {
         StringBuilder logMessageBuilder = new StringBuilder();
         boolean could = true;
         synchronized(executorLock) {
-            if (mExecutor != null && mExecutor.needsBackgroundWork() && mExecutor.isReallyWorking() ) {
-                if (forceNow) {
-                    logMessageBuilder.append(" Cancelling working Executor;");
-                } else {
-                    logMessageBuilder.append(" Cannot stop now Executor " + mExecutor);
-                    could = false;
+            for (QueueExecutor executor : executors) {
+                if (executor.needsBackgroundWork() && executor.isReallyWorking() ) {
+                    if (forceNow) {
+                        logMessageBuilder.append(" Cancelling working Executor;");
+                    } else {
+                        logMessageBuilder.append(" Cannot stop now Executor " + executor);
+                        could = false;
+                    }
                 }
             }
             if (could) {
-                removeExecutor(logMessageBuilder);
+                for (QueueExecutor executor : new ArrayList<>(executors)) {
+                    removeExecutor(executor, logMessageBuilder);
+                }
             }
         }
         if (logMessageBuilder.length() > 0) {
@@ -520,8 +550,19 @@ public class MyService extends Service {
 
         @Override
         protected Boolean doInBackground2(Void aVoid) {
-            commandQueue.load();
-            MyLog.d(this, "Started, " + commandQueue.totalSizeToExecute() + " commands to process");
+            commandQueue.onExecutorStarted();
+            try {
+                MyLog.d(this, "Started, " + commandQueue.totalSizeToExecute() + " commands to process");
+                String breakReason = executeCommands();
+                MyLog.d(this, "Ended, " + breakReason + ", " + commandQueue.totalSizeToExecute() + " commands left");
+            } finally {
+                commandQueue.onExecutorEnded();
+            }
+            return true;
+        }
+
+        /** @return the reason to stop */
+        private String executeCommands() {
             String breakReason = "";
             do {
                 if (isStopping()) {
@@ -537,8 +578,8 @@ public class MyService extends Service {
                     break;
                 }
                 synchronized (executorLock) {
-                    if (mExecutor != this) {
-                        breakReason = "Other executor";
+                    if (!executors.contains(this)) {
+                        breakReason = "Removed executor";
                         break;
                     }
                 }
@@ -549,33 +590,44 @@ public class MyService extends Service {
                     breakReason = "No more commands";
                     break;
                 }
-                ConnectionState connectionState = getMyContext().getConnectionState();
-                if (commandData.getCommand().getConnectionRequired().isConnectionStateOk(connectionState)) {
-                    MyServiceEventsBroadcaster.newInstance(getMyContext(), getServiceState())
-                            .setCommandData(commandData)
-                            .setEvent(MyServiceEvent.BEFORE_EXECUTING_COMMAND).broadcast();
-                    if (commandData.getCommand() == DELETE_COMMAND) {
-                        commandQueue.deleteCommand(commandData);
-                    } else {
-                        CommandExecutorStrategy.executeCommand(commandData, this);
-                    }
-                } else {
-                    commandData.getResult().incrementNumIoExceptions();
-                    commandData.getResult().setMessage("Expected '"
-                            + commandData.getCommand().getConnectionRequired()
-                            + "', but was '" + connectionState + "' connection");
+                String laneSummary;
+                try {
+                    execute(commandData);
+                } finally {
+                    laneSummary = commandQueue.onExecuted(commandData,
+                            System.currentTimeMillis() - currentlyExecutingSince);
+                    currentlyExecuting = null;
                 }
                 if (commandData.getResult().shouldWeRetry()) {
                     commandQueue.addToQueue(QueueType.RETRY, commandData);
                 } else if (commandData.getResult().hasError()) {
                     commandQueue.addToQueue(QueueType.ERROR, commandData);
                 }
-                broadcastAfterExecutingCommand(commandData);
+                MyServiceEventsBroadcaster.newInstance(getMyContext(), getServiceState())
+                        .setCommandData(commandData).setEvent(MyServiceEvent.AFTER_EXECUTING_COMMAND)
+                        .setLaneSummary(laneSummary).broadcast();
                 addSyncOfThisToQueue(commandData);
             } while (true);
-            MyLog.d(this, "Ended, " + breakReason + ", " + commandQueue.totalSizeToExecute() + " commands left");
-            commandQueue.save();
-            return true;
+            return breakReason;
+        }
+
+        private void execute(CommandData commandData) {
+            ConnectionState connectionState = getMyContext().getConnectionState();
+            if (commandData.getCommand().getConnectionRequired().isConnectionStateOk(connectionState)) {
+                MyServiceEventsBroadcaster.newInstance(getMyContext(), getServiceState())
+                        .setCommandData(commandData)
+                        .setEvent(MyServiceEvent.BEFORE_EXECUTING_COMMAND).broadcast();
+                if (commandData.getCommand() == DELETE_COMMAND) {
+                    commandQueue.deleteCommand(commandData);
+                } else {
+                    CommandExecutorStrategy.executeCommand(commandData, this);
+                }
+            } else {
+                commandData.getResult().incrementNumIoExceptions();
+                commandData.getResult().setMessage("Expected '"
+                        + commandData.getCommand().getConnectionRequired()
+                        + "', but was '" + connectionState + "' connection");
+            }
         }
 
         private void addSyncOfThisToQueue(CommandData commandDataExecuted) {
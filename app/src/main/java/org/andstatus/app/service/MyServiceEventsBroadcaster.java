@@ -32,6 +32,7 @@ public class MyServiceEventsBroadcaster {
     private CommandData mCommandData = CommandData.EMPTY;
     private MyServiceEvent mEvent = MyServiceEvent.UNKNOWN;
     private String progress = null;
+    private String laneSummary = "";
     
     private MyServiceEventsBroadcaster(MyContext myContext, MyServiceState state) {
         this.mMyContext = myContext;
@@ -57,6 +58,12 @@ public class MyServiceEventsBroadcaster {
         return this;
     }
 
+    /** Throughput of the {@link CommandLanes} lane, where the command was executed */
+    public MyServiceEventsBroadcaster setLaneSummary(String laneSummary) {
+        this.laneSummary = laneSummary;
+        return this;
+    }
+
     public void broadcast() {
         Intent intent = MyAction.SERVICE_STATE.getIntent();
         if (mCommandData != CommandData.EMPTY) {
@@ -65,10 +72,14 @@ public class MyServiceEventsBroadcaster {
         mCommandData.toIntent(intent);
         intent.putExtra(IntentExtra.SERVICE_STATE.key, mState.save());
         intent.putExtra(IntentExtra.SERVICE_EVENT.key, mEvent.save());
+        if (StringUtils.nonEmpty(laneSummary)) {
+            intent.putExtra(IntentExtra.LANE_SUMMARY.key, laneSummary);
+        }
         if (MyLog.isVerboseEnabled()) {
             MyLog.v(this, () -> "state:" + mState + ", event:" + mEvent
             + ", " + mCommandData.toCommandSummary(MyContextHolder.get())
-            + (StringUtils.isEmpty(progress) ? "" : ", progress:" + progress) );
+            + (StringUtils.isEmpty(progress) ? "" : ", progress:" + progress)
+            + (StringUtils.isEmpty(laneSummary) ? "" : ", lane " + laneSummary) );
         }
         mMyContext.context().sendBroadcast(intent);
     }
@@ -17,6 +17,7 @@
 package org.andstatus.app.service;
 
 import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.data.BatchTransaction;
 import org.andstatus.app.data.DataUpdater;
 import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
@@ -97,19 +98,33 @@ class TimelineDownloaderOther extends TimelineDownloader {
                                 limit, actor);
                         break;
                 }
-                for (AActivity activity : activities) {
-                    toDownload--;
-                    syncTracker.onNewMsg(activity.getTimelinePosition(), activity.getUpdatedDate());
-                    if (!activity.isSubscribedByMe().equals(TriState.FALSE)
-                        && activity.getUpdatedDate() > 0
-                        && execContext.getTimeline().getTimelineType().isSubscribedByMe()
-                        && execContext.myContext.users().isMe(execContext.getTimeline().actor)
-                            ) {
-                        activity.setSubscribedByMe(TriState.TRUE);
+                // The page is stored in one transaction, which begins after the page is downloaded
+                BatchTransaction batch = BatchTransaction.beginOnFirstItem(execContext.myContext, "downloadPage");
+                try {
+                    for (AActivity activity : activities) {
+                        if (!activity.isSubscribedByMe().equals(TriState.FALSE)
+                            && activity.getUpdatedDate() > 0
+                            && execContext.getTimeline().getTimelineType().isSubscribedByMe()
+                            && execContext.myContext.users().isMe(execContext.getTimeline().actor)
+                                ) {
+                            activity.setSubscribedByMe(TriState.TRUE);
+                        }
+                        batch.execute(() -> {
+                            di.onActivity(activity, false);
+                            // The position is moved only, if the activity is committed, so it is not skipped
+                            // after a rollback of the page
+                            BatchTransaction.afterCommit(() ->
+                                    syncTracker.onNewMsg(activity.getTimelinePosition(), activity.getUpdatedDate()));
+                        });
                     }
-                    di.onActivity(activity, false);
+                    di.saveLum();
+                    batch.setSuccessful();
+                } finally {
+                    batch.end();
                 }
-                if (toDownload <= 0 || activities.isEmpty() || previousPosition.equals(syncTracker.getPreviousPosition())) {
+                int downloaded = activities.size();
+                toDownload -= downloaded;
+                if (toDownload <= 0 || downloaded == 0 || previousPosition.equals(syncTracker.getPreviousPosition())) {
                     break;
                 }
                 previousPosition = syncTracker.getPreviousPosition();
@@ -124,7 +139,6 @@ class TimelineDownloaderOther extends TimelineDownloader {
                 previousPosition = TimelinePosition.EMPTY;
             }
         }
-        di.saveLum();
     }
 
     @NonNull
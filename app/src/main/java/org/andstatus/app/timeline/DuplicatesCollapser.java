@@ -51,15 +51,27 @@ public class DuplicatesCollapser<T extends ViewItem<T>> {
         @NonNull
         ItemWithPage<T> parent;
         Set<ItemWithPage<T>> children = new HashSet<>();
+        /** Ids of the parent and of all children, so a lookup doesn't iterate through the children */
+        private final Set<Long> itemIds = new HashSet<>();
 
         GroupToCollapse(@NonNull ItemWithPage<T> parent) {
             this.parent = parent;
+            itemIds.add(parent.item.getId());
+        }
+
+        void addChild(@NonNull ItemWithPage<T> child) {
+            children.add(child);
+            itemIds.add(child.item.getId());
+        }
+
+        void replaceParent(@NonNull ItemWithPage<T> newParent) {
+            addChild(parent);
+            parent = newParent;
+            itemIds.add(newParent.item.getId());
         }
 
         boolean contains(long itemId) {
-            return itemId != 0 && (
-                    parent.item.getId() == itemId ||
-                    children.stream().anyMatch(child -> child.item.getId() == itemId));
+            return itemId != 0 && itemIds.contains(itemId);
         }
 
     }
@@ -173,12 +185,11 @@ public class DuplicatesCollapser<T extends ViewItem<T>> {
                     switch (item.duplicates(data.params.timeline, preferredOrigin, group.parent.item)) {
                         case DUPLICATES:
                             found = true;
-                            group.children.add(itemPair);
+                            group.addChild(itemPair);
                             break;
                         case IS_DUPLICATED:
                             found = true;
-                            group.children.add(group.parent);
-                            group.parent = itemPair;
+                            group.replaceParent(itemPair);
                             break;
                         default:
                             break;
@@ -886,6 +886,8 @@ public class TimelineActivity<T extends ViewItem<T>> extends NoteEditorListActiv
             } else {
                 otherPageToRequest = WhichPage.EMPTY;
             }
+        } else if (!isParamsChanged && dataLoaded.params.isFirstPartOfPage()) {
+            otherPageToRequest = WhichPage.OLDER;
         } else {
             otherPageToRequest = WhichPage.EMPTY;
         }
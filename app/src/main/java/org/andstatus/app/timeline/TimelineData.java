@@ -26,8 +26,10 @@ import org.andstatus.app.util.MyStringBuilder;
 import org.andstatus.app.util.TryUtils;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 import androidx.annotation.NonNull;
 import io.vavr.control.Try;
@@ -136,8 +138,9 @@ public class TimelineData<T extends ViewItem<T>> {
     }
 
     private void removeDuplicatesWithYounger(TimelinePage<T> page, int indExistingPage) {
+        Set<T> itemsOfPage = new HashSet<>(page.items);
         for (int ind = Integer.min(indExistingPage, pages.size() - 1); ind >= 0; ind--) {
-            pages.get(ind).items.removeAll(page.items);
+            pages.get(ind).items.removeAll(itemsOfPage);
         }
     }
 
@@ -146,8 +149,9 @@ public class TimelineData<T extends ViewItem<T>> {
     }
 
     private void removeDuplicatesWithOlder(TimelinePage<T> page, int indExistingPage) {
+        Set<T> itemsOfPage = new HashSet<>(page.items);
         for (int ind = Integer.max(indExistingPage, 0); ind < pages.size(); ind++) {
-            pages.get(ind).items.removeAll(page.items);
+            pages.get(ind).items.removeAll(itemsOfPage);
         }
     }
 
@@ -21,13 +21,17 @@ import android.database.Cursor;
 import org.andstatus.app.actor.ActorListLoader;
 import org.andstatus.app.actor.ActorListType;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.list.SyncLoader;
+import org.andstatus.app.note.NoteContentCache;
+import org.andstatus.app.note.NoteDetailsLoader;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.MyStringBuilder;
 import org.andstatus.app.util.StopWatch;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import androidx.annotation.NonNull;
@@ -57,7 +61,7 @@ public class TimelineLoader<T extends ViewItem<T>> extends SyncLoader<T> {
         }
         params.timeline.save(params.getMyContext());
         if (params.whichPage != WhichPage.EMPTY) {
-            filter(loadActors(loadFromCursor(queryDatabase())));
+            filter(loadActors(loadNoteDetails(loadFromCursor(queryDatabase()))));
         }
         params.isLoaded = true;
         if (MyLog.isDebugEnabled()) {
@@ -103,11 +107,16 @@ public class TimelineLoader<T extends ViewItem<T>> extends SyncLoader<T> {
         int rowsCount = 0;
         if (cursor != null && !cursor.isClosed()) {
             try {
+                final int dateColumnIndex = cursor.getColumnIndex(
+                        ActivityTable.getTimeSortField(getParams().getTimelineType()));
+                final int activityIdColumnIndex = cursor.getColumnIndex(ActivityTable.ACTIVITY_ID);
                 if (cursor.moveToFirst()) {
                     do {
                         rowsCount++;
                         T item = (T) page.getEmptyItem().fromCursor(params.getMyContext(), cursor);
-                        getParams().rememberItemDateLoaded(item.getDate());
+                        getParams().rememberItemDateLoaded(
+                                dateColumnIndex < 0 ? item.getDate() : cursor.getLong(dateColumnIndex),
+                                activityIdColumnIndex < 0 ? 0 : cursor.getLong(activityIdColumnIndex));
                         items.add(item);
                     } while (cursor.moveToNext());
                 }
@@ -122,6 +131,17 @@ public class TimelineLoader<T extends ViewItem<T>> extends SyncLoader<T> {
         return items;
     }
 
+    /** Audience, rebloggers and attached images of all notes of the page are loaded by a few queries */
+    private List<T> loadNoteDetails(List<T> items) {
+        if (items.isEmpty()) return items;
+        NoteDetailsLoader loader = new NoteDetailsLoader(params.getMyContext());
+        items.forEach(item -> item.addNoteDetailsToLoad(loader));
+        if (loader.isEmpty()) return items;
+        loader.load();
+        items.forEach(item -> item.setLoadedNoteDetails(loader));
+        return items;
+    }
+
     private List<T> loadActors(List<T> items) {
         if (items.isEmpty() && !params.timeline.hasActorProfile()) return items;
         ActorListLoader loader = new ActorListLoader(params.getMyContext(), ActorListType.ACTORS_AT_ORIGIN,
@@ -131,6 +151,7 @@ public class TimelineLoader<T extends ViewItem<T>> extends SyncLoader<T> {
         if (loader.getList().isEmpty()) return items;
         loader.load(progress -> {});
         items.forEach(item -> item.setLoadedActors(loader));
+        MyLog.v(this, NoteContentCache::getInfo);
         page.setLoadedActor(loader);
         return items;
     }
@@ -144,15 +165,11 @@ public class TimelineLoader<T extends ViewItem<T>> extends SyncLoader<T> {
         TimelineFilter filter = new TimelineFilter(getParams().getTimeline());
         int rowsCount = 0;
         int filteredOutCount = 0;
-        boolean reversedOrder = getParams().isSortOrderAscending();
+        int firstIndex = page.items.size();
         for (T item : items) {
             rowsCount++;
             if (item.matches(filter)) {
-                if (reversedOrder) {
-                    page.items.add(0, item);
-                } else {
-                    page.items.add(item);
-                }
+                page.items.add(item);
             } else {
                 filteredOutCount++;
                 if (MyLog.isVerboseEnabled() && filteredOutCount < 6) {
@@ -161,6 +178,9 @@ public class TimelineLoader<T extends ViewItem<T>> extends SyncLoader<T> {
                 }
             }
         }
+        if (getParams().isSortOrderAscending()) {
+            Collections.reverse(page.items.subList(firstIndex, page.items.size()));
+        }
         if (MyLog.isDebugEnabled()) {
             MyLog.d(this, method + " ended; Filtered out " + filteredOutCount + " of " + rowsCount
                     + " rows, " + stopWatch.getTime() + "ms" );
@@ -20,13 +20,17 @@ import android.app.LoaderManager;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
+import android.provider.BaseColumns;
 import androidx.annotation.NonNull;
 
 import org.andstatus.app.IntentExtra;
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContext;
+import org.andstatus.app.data.ProjectionMap;
 import org.andstatus.app.data.TimelineSql;
 import org.andstatus.app.database.table.ActivityTable;
+import org.andstatus.app.database.table.NoteTable;
+import org.andstatus.app.note.KeywordsFilter;
 import org.andstatus.app.timeline.meta.Timeline;
 import org.andstatus.app.timeline.meta.TimelineTitle;
 import org.andstatus.app.timeline.meta.TimelineType;
@@ -47,23 +51,36 @@ public class TimelineParameters {
      * are being loaded in a case User scrolls down to the end of list.
      */
     static final int PAGE_SIZE = 200;
+    /** The first page of a timeline, which is shown from its top and replaces all loaded pages, is loaded
+     * in two parts: this number of items, enough to fill the screen, and then an {@link WhichPage#OLDER} page */
+    static final int FIRST_PAGE_SIZE = 40;
     final Timeline timeline;
 
     final WhichPage whichPage;
     private Set<String> mProjection;
 
     long maxDate = 0;
+    /** If non-zero, rows with {@link #maxDate} are loaded only if their activity ids are less than this,
+     * so the page continues the previous one exactly after its last row (keyset pagination) */
+    long maxDateId = 0;
 
     // These params are updated just before page loading
     volatile long minDate = 0;
+    /** If non-zero, rows with {@link #minDate} are loaded only if their activity ids are greater than this */
+    volatile long minDateId = 0;
     volatile SelectionAndArgs selectionAndArgs = new SelectionAndArgs();
     volatile String sortOrderAndLimit = "";
+    /** 0 if the number of rows is not limited */
+    volatile int limit = 0;
 
     // Execution state / loaded data:
     volatile boolean isLoaded = false;
     volatile int rowsLoaded = 0;
     volatile long minDateLoaded = 0;
     volatile long maxDateLoaded = 0;
+    /** Activity id of the row with {@link #minDateLoaded}, the last in the sort order, if several rows have this date */
+    volatile long minDateLoadedId = 0;
+    volatile long maxDateLoadedId = 0;
 
     public TimelineParameters(MyContext myContext, Timeline timeline, WhichPage whichPage) {
         this.myContext = myContext;
@@ -88,15 +105,19 @@ public class TimelineParameters {
             case OLDER:
                 if (prev.mayHaveOlderPage()) {
                     params.maxDate = prev.minDateLoaded;
+                    params.maxDateId = prev.minDateLoadedId;
                 } else {
                     params.maxDate = prev.maxDate;
+                    params.maxDateId = prev.maxDateId;
                 }
                 break;
             case YOUNGER:
                 if (prev.mayHaveYoungerPage()) {
                     params.minDate = prev.maxDateLoaded;
+                    params.minDateId = prev.maxDateLoadedId;
                 } else {
                     params.minDate = prev.minDate;
+                    params.minDateId = prev.minDateId;
                 }
                 break;
             default:
@@ -122,7 +143,13 @@ public class TimelineParameters {
     public boolean mayHaveOlderPage() {
         return whichPage.equals(WhichPage.CURRENT)
                 || minDate > 0
-                || (maxDate > 0 && rowsLoaded > 0 && maxDate > minDateLoaded);
+                || (maxDate > 0 && rowsLoaded > 0 && maxDate > minDateLoaded)
+                || (!isSortOrderAscending() && limit > 0 && rowsLoaded >= limit);
+    }
+
+    /** The first part of the page, see {@link #FIRST_PAGE_SIZE} */
+    public boolean isFirstPartOfPage() {
+        return limit == FIRST_PAGE_SIZE && rowsLoaded >= limit;
     }
 
     public boolean isSortOrderAscending() {
@@ -145,7 +172,9 @@ public class TimelineParameters {
                 + (timeline.getActorId() == 0 ? "" : ", selectedActorId=" + timeline.getActorId())
             //    + ", projection=" + Arrays.toString(mProjection)
                 + (minDate > 0 ? ", minDate=" + MyLog.formatDateTime(minDate) : "")
+                + (minDateId > 0 ? ", minDateId=" + minDateId : "")
                 + (maxDate > 0 ? ", maxDate=" + MyLog.formatDateTime(maxDate) : "")
+                + (maxDateId > 0 ? ", maxDateId=" + maxDateId : "")
                 + (selectionAndArgs.isEmpty() ? "" : ", sa=" + selectionAndArgs)
                 + (StringUtils.isEmpty(sortOrderAndLimit) ? "" : ", sortOrder=" + sortOrderAndLimit)
                 + (isLoaded  ? ", loaded" : "")
@@ -209,11 +238,18 @@ public class TimelineParameters {
     }
 
     public void rememberItemDateLoaded(long date) {
-        if (minDateLoaded == 0 || minDateLoaded > date) {
+        rememberItemDateLoaded(date, 0);
+    }
+
+    /** @param activityId the second part of the (date, id) key, by which rows are sorted */
+    void rememberItemDateLoaded(long date, long activityId) {
+        if (minDateLoaded == 0 || minDateLoaded > date || (minDateLoaded == date && minDateLoadedId > activityId)) {
             minDateLoaded = date;
+            minDateLoadedId = activityId;
         }
-        if (maxDateLoaded == 0 || maxDateLoaded < date) {
+        if (maxDateLoaded == 0 || maxDateLoaded < date || (maxDateLoaded == date && maxDateLoadedId < activityId)) {
             maxDateLoaded = date;
+            maxDateLoadedId = activityId;
         }
     }
 
@@ -230,19 +266,40 @@ public class TimelineParameters {
     }
 
     private String buildSortOrderAndLimit() {
-        return  ActivityTable.getTimelineSortOrder(getTimelineType(), isSortOrderAscending())
-                + (minDate > 0 && maxDate > 0 ? "" : " LIMIT " + PAGE_SIZE);
+        limit = minDate > 0 && maxDate > 0
+                ? 0
+                : (whichPage == WhichPage.TOP || (whichPage == WhichPage.CURRENT && minDate == 0)
+                        ? FIRST_PAGE_SIZE : PAGE_SIZE);
+        boolean ascending = isSortOrderAscending();
+        return  ActivityTable.getTimelineSortOrder(getTimelineType(), ascending)
+                + ", " + ActivityTable.ACTIVITY_ID + (ascending ? " ASC" : " DESC")
+                + (limit > 0 ? " LIMIT " + limit : "");
     }
 
     private SelectionAndArgs buildSelectionAndArgs() {
         SelectionAndArgs sa = new SelectionAndArgs();
+        final String dateField = ActivityTable.getTimeSortField(getTimelineType());
+        final String idField = ProjectionMap.ACTIVITY_TABLE_ALIAS + "." + BaseColumns._ID;
         final long minDateActual = minDate > 0 ? minDate : 1;
-        sa.addSelection(ActivityTable.getTimeSortField(getTimelineType()) + " >= ?",
-                String.valueOf(minDateActual));
-        if (maxDate > 0) {
-            sa.addSelection(ActivityTable.getTimeSortField(getTimelineType()) + " <= ?",
+        if (minDate > 0 && minDateId > 0) {
+            sa.addSelection("(" + dateField + " > ? OR (" + dateField + " = ? AND " + idField + " > ?))",
+                    new String[]{String.valueOf(minDate), String.valueOf(minDate), String.valueOf(minDateId)});
+        } else {
+            sa.addSelection(dateField + " >= ?", String.valueOf(minDateActual));
+        }
+        if (maxDate > 0 && maxDateId > 0) {
+            sa.addSelection("(" + dateField + " < ? OR (" + dateField + " = ? AND " + idField + " < ?))",
+                    new String[]{String.valueOf(maxDate), String.valueOf(maxDate), String.valueOf(maxDateId)});
+        } else if (maxDate > 0) {
+            sa.addSelection(dateField + " <= ?",
                     String.valueOf(maxDate >= minDateActual ? maxDate : minDateActual));
         }
+        KeywordsFilter keywordsFilter = new TimelineFilter(timeline).keywordsFilter;
+        if (keywordsFilter.nonEmpty()) {
+            sa.addSelection(keywordsFilter.getSqlSelectionToExclude(
+                    ProjectionMap.ACTIVITY_TABLE_ALIAS + "." + ActivityTable.NOTE_ID, NoteTable.CONTENT_TO_SEARCH),
+                    keywordsFilter.prependSqlSelectionArgsToExclude(new String[]{}));
+        }
         return sa;
     }
 
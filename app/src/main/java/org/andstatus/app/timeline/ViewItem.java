@@ -22,6 +22,7 @@ import android.database.Cursor;
 import org.andstatus.app.R;
 import org.andstatus.app.actor.ActorListLoader;
 import org.andstatus.app.context.MyContext;
+import org.andstatus.app.note.NoteDetailsLoader;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.timeline.meta.Timeline;
 import org.andstatus.app.timeline.meta.TimelineType;
@@ -135,6 +136,14 @@ public class ViewItem<T extends ViewItem<T>> implements IsEmpty {
         // Empty
     }
 
+    public void addNoteDetailsToLoad(NoteDetailsLoader loader) {
+        // Empty
+    }
+
+    public void setLoadedNoteDetails(NoteDetailsLoader loader) {
+        // Empty
+    }
+
     @Override
     public int hashCode() {
         int result = Long.hashCode(getId());
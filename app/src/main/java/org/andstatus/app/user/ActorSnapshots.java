@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.user;
+
+import androidx.annotation.NonNull;
+
+import org.andstatus.app.net.social.Actor;
+import org.andstatus.app.util.MyStringBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded cache of actors, as they were loaded from the database for lists of actors,
+ * so the same actors are not queried again on each page load.
+ * Each snapshot has a version stamp: a snapshot, read from the database before the actor was invalidated
+ * (see {@link CachedUsersAndActors#updateCache(Actor)} and {@link CachedUsersAndActors#reload(long)}),
+ * is not accepted, so a stale actor cannot replace a fresh one
+ * @author yvolk@yurivolkov.com
+ */
+public class ActorSnapshots {
+    static final int MAX_SIZE = 2000;
+
+    private long version = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private final Map<Long, Snapshot> snapshots = new LinkedHashMap<Long, Snapshot>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Snapshot> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private static class Snapshot {
+        final Actor actor;
+        final boolean withAvatar;
+        final long version;
+        final boolean valid;
+
+        Snapshot(Actor actor, boolean withAvatar, long version, boolean valid) {
+            this.actor = actor;
+            this.withAvatar = withAvatar;
+            this.version = version;
+            this.valid = valid;
+        }
+    }
+
+    ActorSnapshots() {
+    }
+
+    /** The stamp to be taken before reading actors from the database */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /** @return the actor or {@link Actor#EMPTY}, if there is no valid snapshot */
+    @NonNull
+    public synchronized Actor get(long actorId, boolean withAvatar) {
+        Snapshot snapshot = snapshots.get(actorId);
+        if (snapshot == null || !snapshot.valid || (withAvatar && !snapshot.withAvatar)) {
+            misses++;
+            return Actor.EMPTY;
+        }
+        hits++;
+        return snapshot.actor;
+    }
+
+    /** @param versionRead of the database read, see {@link #getVersion()} */
+    public synchronized void put(@NonNull Actor actor, boolean withAvatar, long versionRead) {
+        if (actor.isEmpty() || actor.actorId == 0) return;
+
+        Snapshot existing = snapshots.get(actor.actorId);
+        if (existing != null && existing.version > versionRead && existing.actor != actor) return;
+
+        snapshots.put(actor.actorId, new Snapshot(actor, withAvatar, versionRead, true));
+    }
+
+    /** The actor changed, its snapshot (if it is not the same instance) should be read again */
+    synchronized void invalidate(@NonNull Actor actor) {
+        Snapshot existing = snapshots.get(actor.actorId);
+        if (existing != null && existing.actor == actor) return;
+
+        invalidate(actor.actorId, actor);
+    }
+
+    synchronized void invalidate(long actorId) {
+        invalidate(actorId, Actor.EMPTY);
+    }
+
+    private void invalidate(long actorId, Actor actor) {
+        if (actorId == 0) return;
+
+        version++;
+        snapshots.put(actorId, new Snapshot(actor, false, version, false));
+    }
+
+    public synchronized void clear() {
+        version++;
+        snapshots.clear();
+    }
+
+    public synchronized int size() {
+        return snapshots.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        long requests = hits + misses;
+        return MyStringBuilder.formatKeyValue(this, "size:" + snapshots.size()
+                + ", version:" + version
+                + ", hits:" + hits + ", misses:" + misses
+                + (requests > 0 ? ", hit rate:" + (hits * 100 / requests) + "%" : ""));
+    }
+}
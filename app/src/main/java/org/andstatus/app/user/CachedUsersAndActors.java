@@ -16,20 +16,31 @@ import org.andstatus.app.database.table.TimelineTable;
 import org.andstatus.app.database.table.UserTable;
 import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.origin.Origin;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.util.CollectionsUtil;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.StopWatch;
 import org.andstatus.app.util.TriState;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static org.andstatus.app.util.RelativeTime.SOME_TIME_AGO;
 
 public class CachedUsersAndActors {
+    /** A background thread doesn't wait longer for the friends, see {@link #friendsOfMyActors()} */
+    private static final long MAX_WAIT_FOR_FRIENDS_MS = 3000;
     private final MyContext myContext;
     public final Map<Long, User> users = new ConcurrentHashMap<>();
     public final Map<Long, Actor> actors = new ConcurrentHashMap<>();
@@ -38,7 +49,10 @@ public class CachedUsersAndActors {
     public final Map<Long, User> myUsers = new ConcurrentHashMap<>();
     public final Map<Long, Actor> myActors = new ConcurrentHashMap<>();
     /** key - friendId, set of values - IDs of my actors  */
-    public final Map<Long, Set<Long>> friendsOfMyActors = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> friendsOfMyActors = new ConcurrentHashMap<>();
+    public final ActorSnapshots snapshots = new ActorSnapshots();
+    /** Friends of my actors and actors of timelines are loaded in the background on initialization */
+    private volatile CompletableFuture<Void> backgroundLoad = CompletableFuture.completedFuture(null);
 
     public static CachedUsersAndActors newEmpty(MyContext myContext) {
         return new CachedUsersAndActors(myContext);
@@ -52,20 +66,60 @@ public class CachedUsersAndActors {
         return myUsers.size();
     }
 
+    /** Loads my users and actors only, which are needed to show the first timeline.
+     * The rest is loaded in the background, see {@link #friendsOfMyActors()} */
     public CachedUsersAndActors initialize() {
+        StopWatch stopWatch = StopWatch.createStarted();
         initializeMyUsers();
-        initializeFriendsOfMyActors();
-        loadTimelineActors();
-        MyLog.v(this, () -> "Users list initialized, "
+        MyLog.v(this, () -> "My users initialized in " + stopWatch.getTime() + " ms, "
                 + myUsers.size() + " users, "
-                + myActors.size() + " my actors, "
-                + friendsOfMyActors.size() + " friends");
+                + myActors.size() + " my actors");
+        try {
+            backgroundLoad = CompletableFuture.runAsync(this::loadInBackground,
+                    AsyncTaskLauncher.getPoolExecutor(MyAsyncTask.PoolEnum.CACHE_LOAD));
+        } catch (RejectedExecutionException e) {
+            MyLog.v(this, "Pool is busy, loading friends of my actors now");
+            loadInBackground();
+        }
         return this;
     }
 
+    private void loadInBackground() {
+        try {
+            StopWatch stopWatch = StopWatch.createStarted();
+            initializeFriendsOfMyActors();
+            long friendsMs = stopWatch.getTime();
+            loadTimelineActors();
+            MyLog.v(this, () -> "Users list initialized, "
+                    + friendsOfMyActors.size() + " friends in " + friendsMs + " ms"
+                    + ", timeline actors in " + (stopWatch.getTime() - friendsMs) + " ms");
+        } catch (Exception e) {
+            MyLog.w(this, "Failed to load friends of my actors", e);
+        }
+    }
+
+    /** key - friendId, set of values - IDs of my actors.
+     * If the background load is not completed yet, the UI thread gets friends, loaded so far (i.e. no friends),
+     * and a background thread waits for the load not longer than {@link #MAX_WAIT_FOR_FRIENDS_MS} */
+    public Map<Long, Set<Long>> friendsOfMyActors() {
+        if (!backgroundLoad.isDone() && MyAsyncTask.nonUiThread()) {
+            try {
+                backgroundLoad.get(MAX_WAIT_FOR_FRIENDS_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                MyLog.v(this, "Friends of my actors are not loaded yet");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                MyLog.w(this, "Failed to load friends of my actors", e.getCause());
+            }
+        }
+        return friendsOfMyActors;
+    }
+
     private void initializeMyUsers() {
         users.clear();
         actors.clear();
+        snapshots.clear();
         myUsers.clear();
         myActors.clear();
         final String sql = "SELECT " + ActorSql.select()
@@ -77,7 +131,7 @@ public class CachedUsersAndActors {
 
     private void initializeFriendsOfMyActors() {
         final String FOLLOWER_ID = "followerId";
-        friendsOfMyActors.clear();
+        Map<Long, Set<Long>> friends = new HashMap<>();
         final String sql = "SELECT DISTINCT " + ActorSql.select()
                 + ", friends." + ActorTable.PARENT_ACTOR_ID + " AS " + FOLLOWER_ID
                 + " FROM (" + ActorSql.tables() + ")"
@@ -88,10 +142,13 @@ public class CachedUsersAndActors {
         final Function<Cursor, Void> function = cursor -> {
             Actor friend = Actor.fromCursor(myContext, cursor, true);
             Actor me = Actor.load(myContext, DbUtils.getLong(cursor, FOLLOWER_ID));
-            friendsOfMyActors.compute(friend.actorId, CollectionsUtil.addValue(me.actorId));
+            friends.compute(friend.actorId, CollectionsUtil.addValue(me.actorId));
             return null;
         };
         MyQuery.get(myContext, sql, function);
+        // Merged, so readers never see the map empty in the meantime
+        friendsOfMyActors.putAll(friends);
+        friendsOfMyActors.keySet().retainAll(friends.keySet());
     }
 
     public Actor load(long actorId) {
@@ -105,13 +162,14 @@ public class CachedUsersAndActors {
     }
 
     public Actor reload(long actorId) {
+        snapshots.invalidate(actorId);
         Actor reloaded = Actor.load(myContext, actorId, true, Actor::getEmpty);
         if (isMe(reloaded)) loadFriendsOfMy(reloaded);
         return reloaded;
     }
 
     private void loadFriendsOfMy(Actor actor) {
-        friendsOfMyActors.entrySet().stream().filter( entry -> entry.getValue().contains(actor.actorId))
+        friendsOfMyActors().entrySet().stream().filter( entry -> entry.getValue().contains(actor.actorId))
                 .forEach(entry ->
                         friendsOfMyActors.compute(entry.getKey(), CollectionsUtil.removeValue(actor.actorId)));
         MyQuery.getGroupMemberIds(myContext, actor.actorId, GroupType.FRIENDS)
@@ -140,7 +198,7 @@ public class CachedUsersAndActors {
     }
 
     public boolean isMeOrMyFriend(Actor actor) {
-        return actor.nonEmpty() && (isMe(actor) || friendsOfMyActors.containsKey(actor.actorId));
+        return actor.nonEmpty() && (isMe(actor) || friendsOfMyActors().containsKey(actor.actorId));
     }
 
     public boolean isMe(@NonNull Actor actor) {
@@ -246,6 +304,7 @@ public class CachedUsersAndActors {
         }
         if (actor.isBetterToCacheThan(actors.get(actor.actorId))) {
             actors.put(actor.actorId, actor);
+            snapshots.invalidate(actor);
             actorGroupTypes.put(actor.actorId, actor.groupType);
             if (actor.isOidReal()) {
                 originIdAndUsernameToActorId.put(actor.origin.getId() + ";" + actor.getUsername(), actor.actorId);
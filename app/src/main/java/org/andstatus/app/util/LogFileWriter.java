@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.util.Log;
+
+import net.jcip.annotations.GuardedBy;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Writes lines of the log file in one background thread, so logging threads don't wait for disk I/O.
+ * Logging threads add lines to a bounded lock-free queue. When the queue is full, new lines are dropped,
+ * and the number of dropped lines is written to the log instead.
+ * The writer keeps the log file open and flushes it periodically.
+ * A new log file is started, when the file grows too large or on the next day.
+ * @author yvolk@yurivolkov.com
+ */
+final class LogFileWriter {
+    private static final String TAG = LogFileWriter.class.getSimpleName();
+    private static final int CAPACITY = 10000;
+    private static final long WRITE_PERIOD_MS = 200;
+    private static final long FLUSH_PERIOD_MS = 1000;
+    private static final long MAX_FILE_SIZE = 10_000_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The limits and the day may be changed in tests */
+    static volatile int capacity = CAPACITY;
+    static volatile long maxFileSize = MAX_FILE_SIZE;
+    /** The day part of the log file name, see {@link MyLog#currentDateTimeFormatted()} */
+    static volatile Supplier<String> today = () -> MyLog.currentDateTimeFormatted().substring(0, 10);
+
+    private static final Queue<String> lines = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger size = new AtomicInteger();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final AtomicReference<Thread> writerThread = new AtomicReference<>();
+
+    /** The writer thread and opening / closing of the file only, not the logging threads */
+    static final Object fileLock = new Object();
+    @GuardedBy("fileLock")
+    private static Writer out = null;
+    @GuardedBy("fileLock")
+    private static File openedFile = null;
+    @GuardedBy("fileLock")
+    private static String openedFilename = "";
+    @GuardedBy("fileLock")
+    private static String openedDay = "";
+    @GuardedBy("fileLock")
+    private static long fileSize = 0;
+    @GuardedBy("fileLock")
+    private static long flushedAt = 0;
+
+    private LogFileWriter() {
+        // Empty
+    }
+
+    static void add(String line) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            dropped.incrementAndGet();
+        } else {
+            lines.offer(line);
+        }
+        ensureWriterStarted();
+    }
+
+    /** Opens the current log file, so it exists right after logging to the file was turned on */
+    static void open() {
+        synchronized (fileLock) {
+            ensureFileOpened();
+        }
+    }
+
+    /** Writes all queued lines and closes the file */
+    static void close() {
+        synchronized (fileLock) {
+            writeQueued();
+            closeFile();
+        }
+    }
+
+    private static void ensureWriterStarted() {
+        if (writerThread.get() != null) return;
+
+        Thread thread = new Thread(LogFileWriter::writeLoop, TAG);
+        thread.setDaemon(true);
+        if (writerThread.compareAndSet(null, thread)) thread.start();
+    }
+
+    private static void writeLoop() {
+        try {
+            while (MyLog.isLogToFileEnabled() || size.get() > 0) {
+                synchronized (fileLock) {
+                    writeQueued();
+                    flushPeriodically();
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(WRITE_PERIOD_MS));
+            }
+        } finally {
+            close();
+            writerThread.set(null);
+            // Lines, added after the last write
+            if (size.get() > 0 && MyLog.isLogToFileEnabled()) ensureWriterStarted();
+        }
+    }
+
+    @GuardedBy("fileLock")
+    private static void writeQueued() {
+        long droppedCount = dropped.getAndSet(0);
+        if (droppedCount > 0) {
+            write(MyLog.currentDateTimeForLogLine() + " " + MyLog.logLevelToString(MyLog.WARN) + "/" + TAG
+                    + ": " + droppedCount + " lines dropped, the queue is full\n");
+        }
+        String line;
+        while ((line = lines.poll()) != null) {
+            size.decrementAndGet();
+            write(line);
+        }
+    }
+
+    @GuardedBy("fileLock")
+    private static void write(String line) {
+        if (!ensureFileOpened()) return;
+
+        try {
+            out.write(line);
+            fileSize += utf8Length(line);
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't write to " + openedFile, e);
+            closeFile();
+        }
+    }
+
+    @GuardedBy("fileLock")
+    private static void flushPeriodically() {
+        if (out == null || System.currentTimeMillis() - flushedAt < FLUSH_PERIOD_MS) return;
+
+        try {
+            out.flush();
+            flushedAt = System.currentTimeMillis();
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't flush " + openedFile, e);
+            closeFile();
+        }
+        if (out != null && (fileSize > maxFileSize || !openedDay.equals(today.get()) || !openedFile.exists())) {
+            // The file is too large, old or was deleted, e.g. by pruning of old logs
+            closeFile();
+            MyLog.setNextLogFileName();
+        }
+    }
+
+    @GuardedBy("fileLock")
+    private static boolean ensureFileOpened() {
+        String filename = MyLog.getLogFilename();
+        if (StringUtils.isEmpty(filename)) {
+            closeFile();
+            return false;
+        }
+        if (out != null && filename.equals(openedFilename)) return true;
+
+        closeFile();
+        File file = MyLog.getFileInLogDir(filename, false);
+        if (file == null) return false;
+
+        try {
+            out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true),
+                    StandardCharsets.UTF_8), BUFFER_SIZE);
+            openedFile = file;
+            openedFilename = filename;
+            openedDay = today.get();
+            fileSize = file.length();
+            flushedAt = System.currentTimeMillis();
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't open " + file, e);
+            return false;
+        }
+    }
+
+    @GuardedBy("fileLock")
+    private static void closeFile() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Couldn't close " + openedFile, e);
+            }
+        }
+        out = null;
+        openedFile = null;
+        openedFilename = "";
+    }
+
+    /** Size of the line in the file, without encoding it */
+    static long utf8Length(String line) {
+        long length = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < line.length()
+                    && Character.isLowSurrogate(line.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -427,7 +427,9 @@ public class MyLog {
         logToFileEnabled.set(logEnabled);
         if (logToFileEnabled.get()) {
             setNextLogFileName(false);
+            LogFileWriter.open();
         } else { 
+            LogFileWriter.close();
             synchronized (logToFileEnabled) {
                 logFileName = null;
             }
@@ -468,24 +470,7 @@ public class MyLog {
             builder.append(getStackTrace(tr));
         }
         builder.append("\n");
-        writeRawStringToLogFile(builder);
-    }
-
-    private static final Object logFileWriterLock = new Object();
-
-    private static void writeRawStringToLogFile(StringBuilder builder) {
-        synchronized (logFileWriterLock) {
-            writeStringToFile(builder.toString(), getMostRecentLogFileName(), true, false);
-        }
-    }
-    
-    private static String getMostRecentLogFileName() {
-        String filename = getLogFilename();
-        if (!FileUtils.exists(getFileInLogDir(filename, false))) {
-            setNextLogFileName(true);
-            filename = getLogFilename();
-        }
-        return filename;
+        LogFileWriter.add(builder.toString());
     }
     
     public static String getLogFilename() {